@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc;
+
+/**
+ * Region allocator that carves structs from large pre-reserved chunks of native heap.
+ * Allocation only bumps a pointer and memory is released all at once with {@link #reset()}
+ * or {@link #close()}. Calling free() on pointers allocated from an arena does nothing.
+ *
+ * Arenas are not thread safe. Arrays allocated from an arena can't be locked with lock().
+ *
+ * @author Antti Laisi
+ */
+public interface ArenaAllocator extends NativeHeapAllocator, AutoCloseable {
+
+	/**
+	 * Releases all structs allocated from this arena. Chunks are retained and reused by
+	 * subsequent allocations. Pointers allocated before reset must not be used after calling
+	 * this method.
+	 *
+	 * Calling this method never allocates from JVM heap. Java execution time is O(1) unless
+	 * chunks larger than the default chunk size have been allocated.
+	 */
+	
+	/* Aayush
+	This method frees every struct in the arena at once so the space can be used again. The big chunks of memory are kept for the next allocations.
+	*/
+	void reset();
+
+	/**
+	 * Returns all chunks of this arena to the native heap. The arena must not be used after
+	 * calling this method.
+	 */
+	
+	/* Aayush
+	This method frees every chunk of memory that the arena has reserved and closes the arena.
+	*/
+	@Override
+	void close();
+
+}
@@ -46,6 +46,69 @@ public interface Array<T> extends Pointer<T> {
 	*/
 	T clear(final long index);
 
+	/**
+	 * Sets memory to 0 from fromIndex to toIndex, exclusive, with a single memory set.
+	 *
+	 * @param fromIndex First struct to clear
+	 * @param toIndex Struct after the last struct to clear
+	 */
+	
+	/* Aayush
+	This method clears all structs in a range of the array at once by setting their memory to 0.
+	*/
+	void clear(final long fromIndex, final long toIndex);
+
+	/**
+	 * Copies length structs starting at srcIndex of this array to dest starting at destIndex
+	 * with a single memory copy. The arrays may overlap, for example when they are slices of the
+	 * same array, and structs are copied as if through a temporary buffer.
+	 *
+	 * Calling this method never allocates from JVM heap.
+	 *
+	 * @param srcIndex First struct to copy
+	 * @param dest Array to copy to, with structs of the same size
+	 * @param destIndex First struct to copy to
+	 * @param length Amount of structs to copy
+	 */
+	
+	/* Aayush
+	This method copies a range of structs from this array to another array in one step. It works even when both arrays share the same memory.
+	*/
+	void copy(final long srcIndex, final Array<T> dest, final long destIndex, final long length);
+
+	/**
+	 * Moves length structs starting at fromIndex to start at toIndex of this array with a single
+	 * memory copy. The ranges may overlap. Structs of the source range that are not overwritten
+	 * are left unchanged.
+	 *
+	 * Calling this method never allocates from JVM heap.
+	 *
+	 * @param fromIndex First struct to move
+	 * @param toIndex Index where the first struct is moved
+	 * @param length Amount of structs to move
+	 */
+	
+	/* Aayush
+	This method moves a range of structs to another place in the same array in one step, for example to close a gap left by removed structs.
+	*/
+	void move(final long fromIndex, final long toIndex, final long length);
+
+	/**
+	 * Sets every struct from fromIndex to toIndex, exclusive, to a copy of template. The range
+	 * is filled with a logarithmic amount of memory copies.
+	 *
+	 * Calling this method never allocates from JVM heap.
+	 *
+	 * @param fromIndex First struct to fill
+	 * @param toIndex Struct after the last struct to fill
+	 * @param template Struct of the same type, may be a struct of this array
+	 */
+	
+	/* Aayush
+	This method copies one struct into every position of a range of the array.
+	*/
+	void fill(final long fromIndex, final long toIndex, final T template);
+
 	/**
 	 * Returns the amount of structs in this memory region.
 	 *
@@ -57,6 +120,40 @@ public interface Array<T> extends Pointer<T> {
 	*/
 	long size();
 
+	/**
+	 * Returns an array of structs from fromIndex to toIndex, exclusive, of this array. The slice
+	 * shares memory with this array, nothing is copied. Freeing the slice does not release memory
+	 * and the slice must not be used after this array is freed or reallocated.
+	 *
+	 * Calling this method allocates at least 2 objects from JVM heap. Each slice has its own
+	 * struct instance, so slices can be accessed from different threads.
+	 *
+	 * @param fromIndex First struct of the slice
+	 * @param toIndex Struct after the last struct of the slice
+	 * @return Slice of this array
+	 */
+	
+	/* Aayush
+	This method returns a smaller array that covers only part of this array. No memory is copied, the smaller array reads and writes the same structs.
+	*/
+	Array<T> slice(final long fromIndex, final long toIndex);
+
+	/**
+	 * Returns a cursor over all structs of this array. The cursor can be split into cursors over
+	 * disjoint ranges that are scanned from different threads, for example by fork-join tasks.
+	 * Every cursor has its own struct instance.
+	 *
+	 * Calling this method allocates at least 2 objects from JVM heap. Scanning with a cursor never
+	 * allocates from JVM heap.
+	 *
+	 * @return Cursor before the first struct of this array
+	 */
+	
+	/* Aayush
+	This method returns a cursor that walks through the structs of the array. The cursor can be split in two so that several threads can each walk through their own part of the array.
+	*/
+	Cursor<T> cursor();
+
 	/**
 	 * Returns a shallow clone of an array. Cloning is a cheap operation, only the pointer is cloned and
 	 * not the array content.
@@ -69,4 +166,66 @@ public interface Array<T> extends Pointer<T> {
 	*/
 	@Override
 	Array<T> clone();
+
+	/**
+	 * Position in a range of an {@link Array}. Cursors are not thread safe, each thread scans its
+	 * own cursor returned by {@link #trySplit()}.
+	 */
+	public interface Cursor<T> {
+
+		/**
+		 * Moves to the next struct in the range.
+		 *
+		 * @return false if the range has no more structs
+		 */
+		
+		/* Aayush
+		This method moves the cursor to the next struct and returns false when there are no more.
+		*/
+		boolean next();
+
+		/**
+		 * @return Array index of the current struct
+		 */
+		
+		/* Aayush
+		This method returns the position in the array of the struct the cursor is at.
+		*/
+		long index();
+
+		/**
+		 * Accessor for the current struct. The returned struct is always the same object for a
+		 * cursor and only the struct pointer address is modified by this method.
+		 *
+		 * @return Struct at the current index
+		 */
+		
+		/* Aayush
+		This method returns the struct the cursor is at.
+		*/
+		T get();
+
+		/**
+		 * @return Amount of structs left in the range of this cursor
+		 */
+		
+		/* Aayush
+		This method returns how many structs the cursor has not visited yet.
+		*/
+		long remaining();
+
+		/**
+		 * Splits the remaining range of this cursor. The returned cursor covers the first half
+		 * of the structs not yet visited and this cursor continues with the second half.
+		 *
+		 * Calling this method allocates at least 2 objects from JVM heap.
+		 *
+		 * @return Cursor over the first half, null if less than 2 structs remain
+		 */
+		
+		/* Aayush
+		This method divides the structs the cursor has not visited yet into two halves. It returns a new cursor for the first half and keeps the second half for itself.
+		*/
+		Cursor<T> trySplit();
+	}
 }
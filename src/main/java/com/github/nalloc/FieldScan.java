@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc;
+
+import com.github.nalloc.impl.HeapArray;
+import com.github.nalloc.impl.UnsafeFieldScan;
+
+/**
+ * Aggregates over a single INT or LONG field of the structs of an {@link Array}. Scans read
+ * memory directly in tight loops without positioning the struct of the array, so they work for
+ * structs stored in rows and in columns. Scans of columnar arrays read only the memory of the
+ * scanned field.
+ *
+ * A scan reads the address and size of the array on every call, so it stays valid when the
+ * array is reallocated. Scans of disjoint ranges can run in parallel.
+ *
+ * @author Antti Laisi
+ */
+public interface FieldScan {
+
+	/**
+	 * Calling this method never allocates from JVM heap.
+	 *
+	 * @param fromIndex First struct of the range
+	 * @param toIndex Struct after the last struct of the range
+	 * @return Sum of the field, overflows silently like long addition
+	 */
+	
+	/* Aayush
+	This method adds up the values of the field in a range of structs.
+	*/
+	long sum(final long fromIndex, final long toIndex);
+
+	/**
+	 * Calling this method never allocates from JVM heap.
+	 *
+	 * @param fromIndex First struct of the range
+	 * @param toIndex Struct after the last struct of the range
+	 * @return Smallest value of the field, Long.MAX_VALUE if the range is empty
+	 */
+	
+	/* Aayush
+	This method returns the smallest value of the field in a range of structs.
+	*/
+	long min(final long fromIndex, final long toIndex);
+
+	/**
+	 * Calling this method never allocates from JVM heap.
+	 *
+	 * @param fromIndex First struct of the range
+	 * @param toIndex Struct after the last struct of the range
+	 * @return Largest value of the field, Long.MIN_VALUE if the range is empty
+	 */
+	
+	/* Aayush
+	This method returns the largest value of the field in a range of structs.
+	*/
+	long max(final long fromIndex, final long toIndex);
+
+	/**
+	 * Counts structs whose field is between low and high, inclusive.
+	 *
+	 * Calling this method never allocates from JVM heap.
+	 *
+	 * @param fromIndex First struct of the range
+	 * @param toIndex Struct after the last struct of the range
+	 * @param low Smallest value to count
+	 * @param high Largest value to count
+	 * @return Amount of structs with the field between low and high
+	 */
+	
+	/* Aayush
+	This method counts the structs in a range whose field value is between low and high.
+	*/
+	long count(final long fromIndex, final long toIndex, final long low, final long high);
+
+	public class Factory {
+		/**
+		 * Creates a scan over a field of an array. Calling this method allocates from JVM heap,
+		 * callers should store the returned scan.
+		 *
+		 * @param structs Array to scan
+		 * @param field Name of a single INT or LONG field
+		 * @return New scan instance
+		 */
+		
+		/* Aayush
+		This function creates a scan that computes sums, minimums, maximums and counts over one number field of an array.
+		*/
+		public static FieldScan create(final Array<?> structs, final String field) {
+			return new UnsafeFieldScan((HeapArray<?>) structs, field);
+		}
+	}
+}
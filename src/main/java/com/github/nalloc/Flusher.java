@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc;
+
+import java.util.concurrent.Future;
+
+/**
+ * Group commit of a memory mapped array. Flush requests from many threads are merged into a
+ * single range flush on a background thread, so writers don't each call msync().
+ *
+ * Flushers are thread safe.
+ *
+ * @author Antti Laisi
+ */
+public interface Flusher extends AutoCloseable {
+
+	/**
+	 * Requests a flush of structs from fromIndex to toIndex, exclusive. Requests made before the
+	 * background thread starts the next flush share the same future and the flushed range covers
+	 * all of them. Calling this method allocates at most 2 objects from JVM heap per flush.
+	 *
+	 * @param fromIndex First struct to write
+	 * @param toIndex Struct after the last struct to write
+	 * @return Future that completes when the structs are written to the file
+	 */
+	
+	/* Aayush
+	This method asks for the structs from fromIndex up to toIndex to be written to disk. The returned future finishes when they have been written, so a writer can wait on it to know its data is safe.
+	*/
+	Future<Void> flush(final long fromIndex, final long toIndex);
+
+	/**
+	 * Completes pending flushes and stops the background thread. The array is not unmapped.
+	 */
+	
+	/* Aayush
+	This method finishes the flushes that were asked for and stops the background thread.
+	*/
+	@Override
+	void close();
+}
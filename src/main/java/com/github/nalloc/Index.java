@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc;
+
+/**
+ * Sorted index of an {@link Array} of structs, keyed by an INT or LONG field of the struct.
+ * Entries are pairs of a key and an array index, so many structs can have the same key.
+ *
+ * The index is a B+tree in a memory mapped file. Nodes are fixed size pages and leaves are
+ * linked, so range queries read consecutive keys without going back up the tree. Indexes are
+ * not thread safe.
+ *
+ * @author Antti Laisi
+ */
+public interface Index<T> extends AutoCloseable {
+
+	/**
+	 * Adds the struct at index of the indexed array with the current value of its key field.
+	 *
+	 * @param index Array index of the struct
+	 */
+	
+	/* Aayush
+	This method adds the struct at index in the array to the index, using the value of its key field.
+	*/
+	void add(final long index);
+
+	/**
+	 * Removes the struct at index of the indexed array. The key field must have the same value as
+	 * when the struct was added. Nodes that become empty are not merged.
+	 *
+	 * @param index Array index of the struct
+	 * @return true if the struct was in the index
+	 */
+	
+	/* Aayush
+	This method removes the struct at index from the index. It must be called before the key field of the struct is changed.
+	*/
+	boolean remove(final long index);
+
+	/**
+	 * Returns a cursor over structs with keys between from and to, inclusive, in key order.
+	 * Calling this method allocates one object from JVM heap. The index must not be modified
+	 * while the cursor is used.
+	 *
+	 * @param from Smallest key
+	 * @param to Largest key
+	 * @return Cursor positioned before the first struct
+	 */
+	
+	/* Aayush
+	This method returns a cursor that goes through every struct with a key from "from" to "to", in order of the key.
+	*/
+	Cursor<T> range(final long from, final long to);
+
+	/**
+	 * @return Amount of entries in the index
+	 */
+	
+	/* Aayush
+	This method returns how many structs are in the index.
+	*/
+	long size();
+
+	/**
+	 * Sets the indexed array, for example after it has been remapped.
+	 *
+	 * @param records Indexed array
+	 */
+	
+	/* Aayush
+	This method changes which array the index reads structs from. It is needed when the array has been mapped again.
+	*/
+	void records(final Array<T> records);
+
+	/**
+	 * Unmaps the index file. The indexed array is not freed.
+	 */
+	
+	/* Aayush
+	This method unmaps the index file from memory. The array of structs stays mapped.
+	*/
+	@Override
+	void close();
+
+	/**
+	 * Position in a range of an {@link Index}.
+	 */
+	public interface Cursor<T> {
+
+		/**
+		 * Moves to the next struct in the range.
+		 *
+		 * @return false if the range has no more structs
+		 */
+		
+		/* Aayush
+		This method moves the cursor to the next struct and returns false when there are no more.
+		*/
+		boolean next();
+
+		/**
+		 * @return Key of the current struct
+		 */
+		
+		/* Aayush
+		This method returns the key of the struct the cursor is at.
+		*/
+		long key();
+
+		/**
+		 * @return Array index of the current struct
+		 */
+		
+		/* Aayush
+		This method returns the position in the array of the struct the cursor is at.
+		*/
+		long index();
+
+		/**
+		 * Accessor for the current struct. The returned struct is always the same object for an
+		 * index and only the struct pointer address is modified by this method.
+		 *
+		 * @return Struct at the current index of the indexed array
+		 */
+		
+		/* Aayush
+		This method returns the struct the cursor is at.
+		*/
+		T get();
+	}
+}
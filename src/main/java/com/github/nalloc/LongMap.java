@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc;
+
+/**
+ * Hash map from long keys to structs. Structs are stored inline in the table, so the map is
+ * a single memory region and get, put and remove never allocate from JVM heap.
+ *
+ * The table grows incrementally: when it gets full a table of double size is allocated and
+ * every following put and remove moves a few entries to it, so no single call copies the
+ * whole map.
+ *
+ * Maps are not thread safe.
+ *
+ * @author Antti Laisi
+ */
+public interface LongMap<T> extends AutoCloseable {
+
+	/**
+	 * Accessor for the struct of key. To prevent JVM heap allocations the returned struct is always
+	 * the same object for a map instance and only the struct pointer address is modified by this
+	 * method. The struct is valid until the next call to {@link #put(long)} or {@link #remove(long)}.
+	 *
+	 * @param key Key to look up
+	 * @return Struct of key or null if the map does not contain key
+	 */
+	
+	/* Aayush
+	This method returns the struct stored for key, or null if the key is not in the map.
+	*/
+	T get(final long key);
+
+	/**
+	 * Accessor for the struct of key, adding a zeroed struct if the map does not contain key.
+	 * The struct is valid until the next call to {@link #put(long)} or {@link #remove(long)}.
+	 *
+	 * @param key Key to look up or add
+	 * @return Struct of key
+	 */
+	
+	/* Aayush
+	This method returns the struct stored for key. If the key is not in the map yet it is added with a struct of zeroes, which can then be written to.
+	*/
+	T put(final long key);
+
+	/**
+	 * Removes key and its struct from the map.
+	 *
+	 * @param key Key to remove
+	 * @return true if the map contained key
+	 */
+	
+	/* Aayush
+	This method removes key from the map and returns whether it was there.
+	*/
+	boolean remove(final long key);
+
+	/**
+	 * @return Amount of keys in the map
+	 */
+	
+	/* Aayush
+	This method returns how many keys are in the map.
+	*/
+	long size();
+
+	/**
+	 * Frees the memory of the map. Maps backed by a file are unmapped and can be mapped again.
+	 */
+	
+	/* Aayush
+	This method frees the memory of the map. If the map is stored in a file, the file keeps the entries.
+	*/
+	void free();
+
+	/**
+	 * AutoCloseable support, calls free().
+	 */
+	
+	/* Aayush
+	This method calls the free() method.
+	*/
+	@Override
+	void close();
+}
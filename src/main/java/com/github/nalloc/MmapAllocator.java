@@ -36,6 +36,11 @@ public interface MmapAllocator {
 	 * Calling this method allocates at least 3 objects from JVM heap. At least one object is
 	 * eligible for GC. Java execution time is O(1).
 	 *
+	 * Mappings larger than 2GB are single native mappings on JVMs that allow reflective access to
+	 * sun.nio.ch.FileChannelImpl (on JDK 9 and later with --add-opens java.base/sun.nio.ch=ALL-UNNAMED).
+	 * Other JVMs map them in segments of buffers up to 2GB. Such mappings, and slices of them that
+	 * cross segments, can't be cast to {@link ByteBuffer}.
+	 *
 	 * @param file File to mmap
 	 * @param nmemb Amount of structs the mapping has space for
 	 * @param structType Class annotated with &#064;Struct
@@ -47,6 +52,43 @@ public interface MmapAllocator {
 	*/
 	<T> Array<T> mmap(final File file, final long nmemb, final Class<T> structType) throws IOException;
 
+	/**
+	 * Maps all structs of an existing file read-only. The file is opened only for reading, so it
+	 * can be on a read-only volume and processes mapping the same file share its page cache.
+	 *
+	 * Mmap is called with flags MAP_SHARED and protection PROT_READ. Setters of the returned
+	 * structs and clear() of the array throw {@link java.nio.ReadOnlyBufferException}. Calling this
+	 * method allocates at least 3 objects from JVM heap. Java execution time is O(1).
+	 *
+	 * @param file File to mmap
+	 * @param structType Class annotated with &#064;Struct
+	 * @return Read-only mmapped array of file length divided by struct size structs
+	 */
+	
+	/* Aayush
+	This function maps an existing file to virtual memory for reading only. The structs of the returned array can be read but trying to change them fails.
+	*/
+	<T> Array<T> mmapReadOnly(final File file, final Class<T> structType) throws IOException;
+
+	/**
+	 * Maps all structs of an existing file as a private copy-on-write mapping. Changes to the
+	 * returned array are visible only to this mapping and are never written to the file. Only
+	 * pages that are written are copied, unchanged pages are shared with the page cache.
+	 *
+	 * Mmap is called with flags MAP_PRIVATE. The file is never extended and the array can't be
+	 * remapped. Calling this method allocates at least 3 objects from JVM heap. Java execution
+	 * time is O(1).
+	 *
+	 * @param file File to mmap
+	 * @param structType Class annotated with &#064;Struct
+	 * @return Private mmapped array of file length divided by struct size structs
+	 */
+	
+	/* Aayush
+	This function maps an existing file to virtual memory as a private copy. Changes to the array stay in memory and are thrown away when the array is freed, the file itself never changes.
+	*/
+	<T> Array<T> mmapPrivate(final File file, final Class<T> structType) throws IOException;
+
 	/**
 	 * mmap() creates a new mapping in the virtual address space of the calling process.
 	 *
@@ -71,8 +113,16 @@ public interface MmapAllocator {
 	 *
 	 * See <a href="http://pubs.opengroup.org/onlinepubs/009695399/functions/mmap.html">mmap</a>.
 	 *
-	 * Mmap is called with flags MAP_PRIVATE | MAP_ANONYMOUS. The mapping length is nmemb times struct size.
-	 * Calling this method allocates at least 3 objects from JVM heap. Java execution time is O(1).
+	 * Mappings up to 2GB are direct byte buffers allocated by the JDK. The mapping length is nmemb times
+	 * struct size. Calling this method allocates at least 3 objects from JVM heap. Java execution time is O(1).
+	 *
+	 * Mappings larger than 2GB are created with flags MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE and
+	 * require JNA (net.java.dev.jna:jna) on the class path. They only reserve virtual address space,
+	 * pages are zeroed by the kernel and committed on first touch. No swap is reserved, touching more
+	 * pages than the kernel can commit fails as an out of memory condition of the process. Such mappings
+	 * can't be cast to {@link ByteBuffer}.
+	 *
+	 * @throws UnsupportedOperationException if the mapping is larger than 2GB and JNA is not available
 	 *
 	 * @param nmemb Amount of structs the mapping has space for
 	 * @param structType Class annotated with &#064;Struct
@@ -85,10 +135,246 @@ public interface MmapAllocator {
 	<T> Array<T> mmap(final long nmemb, final Class<T> structType);
 
 	/**
-	 * Casts the {@link Array} of structs to {@link ByteBuffer}.
+	 * Creates a new mapping of the file of an array with space for nmemb structs. The file is
+	 * extended if needed without filling the added region, so file systems that support sparse
+	 * files allocate blocks only when they are written to. The file is never truncated.
+	 *
+	 * The content of the array is not copied. The old array stays valid and shares the mapped
+	 * content with the returned array until the old array is freed, so readers can move to the
+	 * new mapping at their own pace.
+	 *
+	 * Read-only arrays are mapped read-only again. Their file is never extended, so a read-only
+	 * array can be remapped only as far as the file has been written by others. Private arrays
+	 * can't be remapped.
+	 *
+	 * Calling this method allocates at least 3 objects from JVM heap. Java execution time is O(1).
+	 *
+	 * @param structs Array mapped with {@link #mmap(File, long, Class)}
+	 * @param nmemb Amount of structs the new mapping has space for
+	 * @return New mmapped array of the same file
+	 */
+	
+	/* Aayush
+	This function grows (or shrinks) an array that was mapped from a file by making the file bigger and mapping it again. Nothing is copied and the old array can still be used until it is freed.
+	*/
+	<T> Array<T> remap(final Array<T> structs, final long nmemb) throws IOException;
+
+	/**
+	 * msync() writes modified pages of the whole array to its file and waits for the write
+	 * to complete.
+	 *
+	 * See <a href="http://pubs.opengroup.org/onlinepubs/009695399/functions/msync.html">msync</a>.
+	 *
+	 * @param structs Array mapped with {@link #mmap(File, long, Class)}
+	 */
+	
+	/* Aayush
+	This function writes every change made to a mapped array to its file on disk right away, instead of waiting for the operating system to do it.
+	*/
+	void force(final Array<?> structs) throws IOException;
+
+	/**
+	 * msync() writes modified pages of structs from fromIndex to toIndex, exclusive, to the file
+	 * of the array and waits for the write to complete. The range is extended to page boundaries.
+	 * Fields of a columnar array are spread over the whole array, so its whole array is synced.
+	 * Read-only and private mappings are never written to the file and are not synced.
+	 *
+	 * Ranges require reflective access to java.nio (on JDK 9 and later
+	 * --add-opens java.base/java.nio=ALL-UNNAMED), otherwise the whole file is synced.
+	 *
+	 * @param structs Array mapped with {@link #mmap(File, long, Class)}
+	 * @param fromIndex First struct to write
+	 * @param toIndex Struct after the last struct to write
+	 */
+	
+	/* Aayush
+	This function works like force() but only writes the structs from fromIndex up to toIndex to disk.
+	*/
+	void force(final Array<?> structs, final long fromIndex, final long toIndex) throws IOException;
+
+	/**
+	 * Creates a group commit flusher for an array. Writers request flushes of index ranges and
+	 * a background thread merges all requests that arrive while a flush is running into one
+	 * range flush.
+	 *
+	 * Calling this method starts a thread.
+	 *
+	 * @param structs Array mapped with {@link #mmap(File, long, Class)}
+	 * @return New flusher
+	 */
+	
+	/* Aayush
+	This function creates a flusher that collects flush requests from many threads and writes them to disk together on one background thread.
+	*/
+	Flusher flusher(final Array<?> structs);
+
+	/**
+	 * madvise() gives the kernel a hint how structs from fromIndex to toIndex, exclusive, will be
+	 * accessed. Hints for a columnar array apply to the whole array.
+	 *
+	 * See <a href="http://pubs.opengroup.org/onlinepubs/009695399/functions/posix_madvise.html">posix_madvise</a>.
+	 *
+	 * With JNA (net.java.dev.jna:jna) on the class path madvise is called directly. Without JNA only
+	 * {@link Advice#WILL_NEED} and {@link Advice#DONT_NEED} (JDK 14 and later) are given, through the
+	 * JDK wrappers reached with reflective access to java.nio (on JDK 9 and later
+	 * --add-opens java.base/java.nio=ALL-UNNAMED). Other advice is then accepted and ignored, as the
+	 * kernel may do with any advice. DONT_NEED is ignored for anonymous mappings, which are private
+	 * memory and would lose their content.
+	 *
+	 * Calling this method allocates from JVM heap.
+	 *
+	 * @param structs Mmapped array
+	 * @param fromIndex First struct of the range
+	 * @param toIndex Struct after the last struct of the range
+	 * @param advice Expected access pattern
+	 */
+	
+	/* Aayush
+	This function tells the operating system how a range of the array will be used, so it can read pages ahead or drop them from memory.
+	*/
+	void advise(final Array<?> structs, final long fromIndex, final long toIndex, final Advice advice);
+
+	/**
+	 * Faults in the pages of structs from fromIndex to toIndex, exclusive, by touching every page
+	 * from parallel threads. File mappings are read, so pages are not made dirty. Anonymous
+	 * mappings are committed for writing without changing their content. Columnar arrays are
+	 * touched whole.
+	 *
+	 * Calling this method starts threads and returns when all pages are touched.
+	 *
+	 * @param structs Mmapped array
+	 * @param fromIndex First struct of the range
+	 * @param toIndex Struct after the last struct of the range
+	 * @param threads Amount of threads
+	 */
+	
+	/* Aayush
+	This function loads a range of the array into memory up front with several threads, so later reads and writes don't have to wait for the operating system to load pages.
+	*/
+	void touch(final Array<?> structs, final long fromIndex, final long toIndex, final int threads);
+
+	/**
+	 * Locks the memory of the mapped array in RAM with mlock(), so its pages are never swapped out.
+	 * The lock is released when the array is freed. Locking requires JNA
+	 * (net.java.dev.jna:jna), an optional dependency of nalloc, on the class path and is limited by
+	 * RLIMIT_MEMLOCK of the process. Whole pages are locked, pages shared with other locked arrays
+	 * stay locked until all of them are unlocked.
+	 *
+	 * Calling this method allocates from JVM heap.
+	 *
+	 * @param structs Array to lock
+	 * @throws IOException if the kernel refuses the lock, for example when RLIMIT_MEMLOCK is exceeded.
+	 * The array stays usable without the lock.
+	 * @throws UnsupportedOperationException if JNA is not available
+	 */
+	
+	/* Aayush
+	This function pins the memory of an array in RAM so the operating system never moves it to disk. If the operating system refuses, an error explains why and the array still works as before.
+	*/
+	void lock(final Array<?> structs) throws IOException;
+
+	/**
+	 * Returns the amount of memory currently locked with lock() by all allocators of the process.
 	 *
 	 * Calling this method never allocates from JVM heap.
 	 *
+	 * @return Locked memory in bytes
+	 */
+	
+	/* Aayush
+	This function returns how many bytes of memory are pinned in RAM right now.
+	*/
+	long locked();
+
+	/**
+	 * Maps a {@link RingBuffer} of structs from a file. The file is created and initialized if it
+	 * is empty, otherwise the sequences stored in the file are used, so producers and the consumer
+	 * can map the same file from different processes. Every process must pass the same capacity
+	 * and struct type, a file of another ring buffer is rejected with {@link IllegalStateException}
+	 * before it is extended. If the process initializing a new file dies, the next process to map it
+	 * initializes it after waiting for a second.
+	 *
+	 * Calling this method allocates at least 5 objects from JVM heap. Java execution time is O(1).
+	 *
+	 * @param file File to mmap
+	 * @param capacity Amount of entries in the ring, a power of two
+	 * @param structType Class annotated with &#064;Struct
+	 * @param multiProducer Whether more than one producer claims entries concurrently
+	 * @param waitStrategy How producers and the consumer wait
+	 * @return Mmapped ring buffer
+	 */
+	
+	/* Aayush
+	This function maps a file as a queue of objects. One or more producers can write objects to the queue and a consumer reads them, even from another JVM that maps the same file.
+	*/
+	<T> RingBuffer<T> mmapRing(final File file, final int capacity, final Class<T> structType,
+			final boolean multiProducer, final RingBuffer.WaitStrategy waitStrategy) throws IOException;
+
+	/**
+	 * Maps a hash map from long keys to structs from a file. If the file contains a map it is
+	 * reopened with its entries and capacity is ignored. While the map grows the larger table is
+	 * mapped from a file with suffix .resize, which replaces the map file when growing is complete.
+	 *
+	 * Calling this method allocates at least 7 objects from JVM heap. Get, put and remove of the
+	 * returned map never allocate from JVM heap, except when the map grows.
+	 *
+	 * @param file File to mmap
+	 * @param capacity Amount of keys the map holds before it grows
+	 * @param structType Class annotated with &#064;Struct
+	 * @return Mmapped map
+	 */
+	
+	/* Aayush
+	This function maps a file as a map where every long key has a struct. When the file is mapped again later the map still has its entries.
+	*/
+	<T> LongMap<T> mmapLongMap(final File file, final long capacity, final Class<T> structType) throws IOException;
+
+	/**
+	 * Maps a sorted {@link Index} of an array from a file. The index is keyed by a single INT or
+	 * LONG field of the struct. If the file contains an index it is reopened without reading the
+	 * index content, it must have been created for the same field.
+	 *
+	 * Indexes of arrays mapped with {@link #mmapReadOnly(File, Class)} are mapped read-only from an
+	 * existing index file, which is opened only for reading. Adding to and removing from them throws
+	 * {@link java.nio.ReadOnlyBufferException}.
+	 *
+	 * Calling this method allocates at least 6 objects from JVM heap. Java execution time is O(1).
+	 *
+	 * @param file Index file to mmap
+	 * @param records Indexed array
+	 * @param field Name of the key field
+	 * @return Mmapped index
+	 */
+	
+	/* Aayush
+	This function maps a file as a sorted index of an array, so structs can be found by the value of one of their number fields without going through the whole array.
+	*/
+	<T> Index<T> mmapIndex(final File file, final Array<T> records, final String field) throws IOException;
+
+	/**
+	 * Maps an append-only {@link StructLog} from a directory of segment files. The directory is
+	 * created if it does not exist. If it contains segments the log continues after the last
+	 * published struct. New segments have space for segmentSize structs.
+	 *
+	 * Calling this method allocates at least 5 objects from JVM heap.
+	 *
+	 * @param directory Directory of segment files
+	 * @param segmentSize Amount of structs in a segment
+	 * @param structType Class annotated with &#064;Struct
+	 * @return Mmapped log
+	 */
+	
+	/* Aayush
+	This function opens a log in a directory where structs can only be added to the end. The log is split into files of segmentSize structs and a new file is started when one is full.
+	*/
+	<T> StructLog<T> mmapLog(final File directory, final long segmentSize, final Class<T> structType) throws IOException;
+
+	/**
+	 * Casts the {@link Array} of structs to {@link ByteBuffer}. Arrays larger than 2GB can't be cast.
+	 * A slice of an array is returned as a buffer over the memory of the slice only.
+	 *
+	 * Calling this method never allocates from JVM heap for arrays that are not slices.
+	 *
 	 * @param structs Mmapped array
 	 * @return Array memory region as buffer
 	 */
@@ -98,6 +384,20 @@ public interface MmapAllocator {
 	*/
 	ByteBuffer toBytes(final Array<?> structs);
 
+	/**
+	 * Access pattern hints for {@link MmapAllocator#advise(Array, long, long, Advice)}.
+	 */
+	
+	/* Aayush
+	Establishes the hints that can be given about how a range of an array will be read: in order, in random order, soon, or not anymore.
+	*/
+	public enum Advice {
+		SEQUENTIAL,
+		RANDOM,
+		WILL_NEED,
+		DONT_NEED;
+	}
+
 	public class Factory {
 		/**
 		 * Creates a new {@link MmapAllocator} that can allocate structs listed in structTypes.
@@ -14,7 +14,12 @@
 
 package com.github.nalloc;
 
+import java.io.IOException;
+
+import com.github.nalloc.impl.UnsafeArenaAllocator;
 import com.github.nalloc.impl.UnsafeNativeHeapAllocator;
+import com.github.nalloc.impl.UnsafePooledAllocator;
+import com.github.nalloc.impl.UnsafeThreadCachingAllocator;
 
 
 /**
@@ -30,7 +35,8 @@ public interface NativeHeapAllocator {
 	 *
 	 * See <a href="http://pubs.opengroup.org/onlinepubs/009695399/functions/malloc.html">malloc</a>.
 	 *
-	 * Size is determined by struct size. Calling this method allocates at least 2 objects from JVM heap.
+	 * Size is determined by struct size. Calling this method allocates at least 2 objects from JVM heap,
+	 * use {@link #view(Class)} for garbage free allocation.
 	 *
 	 * @param structType Class annotated with &#064;Struct
 	 * @return Pointer to struct instance
@@ -47,7 +53,9 @@ public interface NativeHeapAllocator {
 	 *
 	 * See <a href="http://pubs.opengroup.org/onlinepubs/009695399/functions/calloc.html">calloc</a>.
 	 *
-	 * Calling this method allocates at least 2 objects from JVM heap. Java execution time is O(1).
+	 * Calling this method allocates at least 2 objects from JVM heap. Java execution time is O(1) for
+	 * arrays that are allocated from kernel zeroed pages, see {@link Factory#create(long, Class...)}.
+	 * Smaller arrays are zeroed in O(n).
 	 *
 	 * @param nmemb Size of array
 	 * @param structType Class annotated with &#064;Struct
@@ -67,7 +75,10 @@ public interface NativeHeapAllocator {
 	 *
 	 * See <a href="http://pubs.opengroup.org/onlinepubs/009695399/functions/realloc.html">realloc</a>.
 	 *
-	 * Calling this method never allocates from JVM heap. Java execution time is O(1).
+	 * Calling this method never allocates from JVM heap. Arrays allocated from kernel zeroed pages
+	 * are resized with mremap() in O(1) without committing untouched pages. Other arrays are
+	 * resized with the C library realloc(), which may copy the array in O(n). Arrays of structs
+	 * aligned to more than 16 bytes outside zeroed pages are always copied.
 	 *
 	 * @param pointer Pointer to struct array
 	 * @param nmemb New size of array
@@ -79,6 +90,75 @@ public interface NativeHeapAllocator {
 	*/
 	<T> Array<T> realloc(final Array<T> pointer, final long nmemb);
 
+	/**
+	 * Returns a view for allocating structs as raw addresses and accessing them through a reusable
+	 * flyweight. Addresses can be stored in primitive arrays and steady-state allocation through a
+	 * view never allocates from JVM heap.
+	 *
+	 * Calling this method allocates at least 2 objects from JVM heap, callers should store the
+	 * returned view.
+	 *
+	 * @param structType Class annotated with &#064;Struct
+	 * @return View to structs of type structType
+	 */
+	
+	/* Aayush
+	This function returns a view for a struct type. The view can allocate structs as plain memory addresses and can read or write a struct at any memory address without creating new objects.
+	*/
+	<T> View<T> view(final Class<T> structType);
+
+	/**
+	 * Creates a hash map from long keys to structs. Tables of the map are allocated from this
+	 * allocator. A grown table that is not allocated from kernel zeroed pages is allocated before
+	 * the map needs it and zeroed a part at a time by later puts and removes, so no single put
+	 * zeroes a whole table.
+	 *
+	 * Calling this method allocates at least 5 objects from JVM heap. Get, put and remove of the
+	 * returned map never allocate from JVM heap.
+	 *
+	 * @param capacity Amount of keys the map holds before it grows
+	 * @param structType Class annotated with &#064;Struct
+	 * @return New empty map
+	 */
+	
+	/* Aayush
+	This function creates a map where every long key has a struct. The structs are stored in native memory inside the map itself.
+	*/
+	<T> LongMap<T> longMap(final long capacity, final Class<T> structType);
+
+	/**
+	 * Locks the memory of the array in RAM with mlock(), so its pages are never swapped out.
+	 * The lock is released when the array is freed or reallocated. Locking requires JNA
+	 * (net.java.dev.jna:jna), an optional dependency of nalloc, on the class path and is limited by
+	 * RLIMIT_MEMLOCK of the process. Whole pages are locked, pages shared with other locked arrays
+	 * stay locked until all of them are unlocked.
+	 *
+	 * Calling this method allocates from JVM heap.
+	 *
+	 * @param structs Array to lock
+	 * @throws IOException if the kernel refuses the lock, for example when RLIMIT_MEMLOCK is exceeded.
+	 * The array stays usable without the lock.
+	 * @throws UnsupportedOperationException if JNA is not available
+	 */
+	
+	/* Aayush
+	This function pins the memory of an array in RAM so the operating system never moves it to disk. If the operating system refuses, an error explains why and the array still works as before.
+	*/
+	void lock(final Array<?> structs) throws IOException;
+
+	/**
+	 * Returns the amount of memory currently locked with lock() by all allocators of the process.
+	 *
+	 * Calling this method never allocates from JVM heap.
+	 *
+	 * @return Locked memory in bytes
+	 */
+	
+	/* Aayush
+	This function returns how many bytes of memory are pinned in RAM right now.
+	*/
+	long locked();
+
 	public class Factory {
 		/**
 		 * Creates a new {@link NativeHeapAllocator} that can allocate structs listed in structTypes.
@@ -94,5 +174,76 @@ public interface NativeHeapAllocator {
 		public static NativeHeapAllocator create(final Class<?>... structTypes) {
 			return new UnsafeNativeHeapAllocator(structTypes);
 		}
+
+		/**
+		 * Creates a new {@link NativeHeapAllocator} that can allocate structs listed in structTypes.
+		 * Arrays of at least zeroPageThreshold bytes are allocated from memory pages that the kernel
+		 * zeroes on first touch, so calloc() of a large array is O(1) also in native code.
+		 *
+		 * @param zeroPageThreshold Minimum length of arrays in bytes allocated from kernel zeroed pages
+		 * @param structTypes Struct classes that the returned allocator can instantiate
+		 * @return New allocator instance
+		 */
+		
+		/* Aayush
+		This function creates a new Native Heap Allocator like create() but lets you choose how big an array must be, in bytes, before calloc() gets memory pages from the operating system that are already set to 0.
+		*/
+		public static NativeHeapAllocator create(final long zeroPageThreshold, final Class<?>... structTypes) {
+			return new UnsafeNativeHeapAllocator(zeroPageThreshold, structTypes);
+		}
+
+		/**
+		 * Creates a new {@link ArenaAllocator} that can allocate structs listed in structTypes.
+		 * Native memory is reserved in chunks of chunkSize bytes. Requests larger than chunkSize
+		 * are served from a dedicated chunk.
+		 *
+		 * @param chunkSize Size of a single chunk in bytes
+		 * @param structTypes Struct classes that the returned allocator can instantiate
+		 * @return New arena instance
+		 */
+		
+		/* Aayush
+		This function creates a new Arena Allocator that is capable of allocating structs that are in structTypes. Memory is reserved in big chunks of chunkSize bytes and handed out piece by piece.
+		*/
+		public static ArenaAllocator createArena(final long chunkSize, final Class<?>... structTypes) {
+			return new UnsafeArenaAllocator(chunkSize, structTypes);
+		}
+
+		/**
+		 * Creates a new pooled {@link NativeHeapAllocator} that can allocate structs listed in structTypes.
+		 * Each struct type has its own pool of fixed-size slots carved from slabs of slabSize bytes.
+		 * Freed structs are kept in a free list and malloc() reuses them without calling the native heap.
+		 * Slabs are never returned to the native heap. The returned allocator is not thread safe.
+		 *
+		 * @param slabSize Size of a single slab in bytes
+		 * @param structTypes Struct classes that the returned allocator can instantiate
+		 * @return New allocator instance
+		 */
+		
+		/* Aayush
+		This function creates a new Native Heap Allocator that keeps a pool of free spaces for every struct type. When a struct is freed its space goes back to the pool and the next malloc of the same struct type reuses it.
+		*/
+		public static NativeHeapAllocator createPooled(final long slabSize, final Class<?>... structTypes) {
+			return new UnsafePooledAllocator(slabSize, structTypes);
+		}
+
+		/**
+		 * Creates a new thread safe {@link NativeHeapAllocator} that can allocate structs listed in structTypes.
+		 * Every thread has its own pool of slots per struct type carved from slabs of slabSize bytes.
+		 * Malloc and free on the allocating thread are never synchronized. Structs freed by other threads
+		 * are handed back to the allocating thread through a lock-free queue. Slabs are never returned to
+		 * the native heap.
+		 *
+		 * @param slabSize Size of a single slab in bytes
+		 * @param structTypes Struct classes that the returned allocator can instantiate
+		 * @return New allocator instance
+		 */
+		
+		/* Aayush
+		This function creates a new Native Heap Allocator that can be used by many threads at once. Every thread keeps its own pool of free spaces for every struct type, so threads do not have to wait for each other.
+		*/
+		public static NativeHeapAllocator createThreadCaching(final long slabSize, final Class<?>... structTypes) {
+			return new UnsafeThreadCachingAllocator(slabSize, structTypes);
+		}
 	}
 }
@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc;
+
+/**
+ * Bounded queue of structs in a memory mapped file with one consumer and one or many producers.
+ * Producers and the consumer can be in different processes mapping the same file.
+ *
+ * Entries are addressed by an ever increasing sequence. Producers claim sequences, write the
+ * entries and publish them. The consumer waits for published sequences, reads the entries and
+ * releases them for reuse. Claiming and waiting can be done in batches.
+ *
+ * A ring buffer instance is not thread safe, every thread must use its own {@link #clone()}.
+ *
+ * @author Antti Laisi
+ */
+public interface RingBuffer<T> extends AutoCloseable {
+
+	/**
+	 * @return Amount of entries in the ring
+	 */
+	
+	/* Aayush
+	This method returns how many entries fit into the ring buffer.
+	*/
+	long capacity();
+
+	/**
+	 * Claims n consecutive sequences for writing, waiting with the wait strategy while the ring is full.
+	 *
+	 * @param n Amount of sequences to claim, at most capacity
+	 * @return First claimed sequence
+	 */
+	
+	/* Aayush
+	This method reserves n entries for a producer to write to. If the ring is full it waits until the consumer has released enough entries. It returns the sequence number of the first reserved entry.
+	*/
+	long claim(final int n);
+
+	/**
+	 * Claims n consecutive sequences for writing if the ring has room for them.
+	 *
+	 * @param n Amount of sequences to claim, at most capacity
+	 * @return First claimed sequence or -1 if the ring is full
+	 */
+	
+	/* Aayush
+	This method works like claim() but does not wait. It returns -1 if the ring does not have room for n entries.
+	*/
+	long tryClaim(final int n);
+
+	/**
+	 * Accessor for a claimed entry. The returned struct is always the same object for a ring buffer
+	 * instance and only the struct pointer address is modified by this method.
+	 *
+	 * @param sequence Claimed sequence
+	 * @return Struct addressed to the entry of sequence
+	 */
+	
+	/* Aayush
+	This method returns the struct of an entry that a producer has reserved so that the producer can write to it.
+	*/
+	T write(final long sequence);
+
+	/**
+	 * Makes written entries visible to the consumer.
+	 *
+	 * @param sequence First sequence to publish
+	 * @param n Amount of sequences to publish
+	 */
+	
+	/* Aayush
+	This method tells the consumer that n entries starting from sequence have been written and can be read.
+	*/
+	void publish(final long sequence, final int n);
+
+	/**
+	 * @return Next sequence the consumer has not released yet
+	 */
+	
+	/* Aayush
+	This method returns the sequence of the next entry the consumer should read. It is stored in the file, so a restarted consumer continues where it stopped.
+	*/
+	long readSequence();
+
+	/**
+	 * Waits with the wait strategy until sequence is published.
+	 *
+	 * @param sequence Sequence to wait for
+	 * @return Highest sequence published without gaps after sequence, at least sequence
+	 */
+	
+	/* Aayush
+	This method waits until the entry at sequence has been published. It returns the last entry that can be read right now, so the consumer can read many entries in one go.
+	*/
+	long waitFor(final long sequence);
+
+	/**
+	 * Accessor for a published entry. The returned struct is always the same object for a ring buffer
+	 * instance and only the struct pointer address is modified by this method.
+	 *
+	 * @param sequence Published sequence
+	 * @return Struct addressed to the entry of sequence
+	 */
+	
+	/* Aayush
+	This method returns the struct of a published entry so that the consumer can read it.
+	*/
+	T read(final long sequence);
+
+	/**
+	 * Releases entries up to and including sequence so producers can reuse them.
+	 *
+	 * @param sequence Last consumed sequence
+	 */
+	
+	/* Aayush
+	This method tells the producers that the consumer is done with every entry up to sequence, so the space can be written again.
+	*/
+	void release(final long sequence);
+
+	/**
+	 * Returns a new instance of the same ring buffer with its own structs. Cloning is a cheap
+	 * operation, the mapping is shared.
+	 *
+	 * @return Clone of this ring buffer
+	 */
+	
+	/* Aayush
+	This method returns a copy of the ring buffer object that uses the same memory. Every thread should use its own copy.
+	*/
+	RingBuffer<T> clone();
+
+	/**
+	 * Unmaps the ring buffer. Clones must not be used after calling this method.
+	 */
+	
+	/* Aayush
+	This method unmaps the ring buffer file from memory.
+	*/
+	@Override
+	void close();
+
+	/**
+	 * How producers wait for room and the consumer waits for entries.
+	 */
+	
+	/* Aayush
+	Establishes the ways a thread can wait: spinning on the CPU, giving the CPU to other threads, or sleeping for a moment.
+	*/
+	public enum WaitStrategy {
+		BUSY_SPIN,
+		YIELD,
+		PARK;
+	}
+}
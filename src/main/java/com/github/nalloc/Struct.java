@@ -60,6 +60,28 @@ public @interface Struct {
 	*/
 	byte pad() default 1;
 
+	/**
+	 * Layout of struct arrays. Single structs are always stored in rows.
+	 */
+	
+	/* Aayush
+	Sets whether the structs of an array are stored one after another or field by field when being created.
+	*/
+	Layout layout() default Layout.ROW;
+
+	/**
+	 * Align fields to their natural alignment like a C compiler and the struct to a multiple of
+	 * this many bytes, 0 keeps fields packed. Natural alignment of a field is the size of its type,
+	 * of a nested struct the alignment of that struct. Use 1 for plain C alignment and 64 to place
+	 * each struct of an array on its own cache line. Struct size is padded to a multiple of the
+	 * largest alignment. Only row layout can be aligned.
+	 */
+	
+	/* Aayush
+	Sets whether the fields of the struct are lined up in memory the way a C compiler would do it, and the byte boundary each struct starts at, when being created.
+	*/
+	int align() default 0;
+
 	/**
 	 * Single field in a struct.
 	 */
@@ -101,6 +123,45 @@ public @interface Struct {
 		Sets the field's struct class to void if one is not defined when creating the field.
 		*/
 		Class<?> struct() default void.class;
+
+		/**
+		 * Generate atomic accessors for a single INT or LONG field. In addition to the plain getter and
+		 * setter the struct implements <code>&lt;name&gt;Volatile()</code>, <code>&lt;name&gt;Volatile(value)</code>,
+		 * <code>&lt;name&gt;Ordered(value)</code>, <code>&lt;name&gt;CompareAndSet(expect, update)</code> and
+		 * <code>&lt;name&gt;GetAndAdd(delta)</code> if they are declared by the struct interface. The field
+		 * offset must be a multiple of the field size.
+		 */
+		
+		/* Aayush
+		Declares if a field gets extra methods that can be used safely by many threads or processes at once, like compare-and-set and get-and-add. Only works for single int and long fields.
+		*/
+		boolean atomic() default false;
+
+		/**
+		 * Align the field to a multiple of this many bytes, 0 uses the alignment of the struct.
+		 * Use 64 to keep a frequently written field on a cache line of its own. Must be a power of two.
+		 */
+		
+		/* Aayush
+		Sets the byte boundary a field of a struct starts at, for example 64 to give a busy counter a cache line of its own.
+		*/
+		int align() default 0;
+	}
+
+	/**
+	 * Memory layout of struct arrays.
+	 *
+	 * ROW stores structs one after another. COLUMNAR stores each field of all structs of an array
+	 * contiguously, so a scan over one field reads only the memory of that field. Columnar arrays
+	 * can't be sliced or remapped and can't be indexed.
+	 */
+	
+	/* Aayush
+	Establishes the ways struct arrays can be laid out in memory: struct after struct, or all values of one field together followed by all values of the next field.
+	*/
+	public enum Layout {
+		ROW,
+		COLUMNAR;
 	}
 
 	/**
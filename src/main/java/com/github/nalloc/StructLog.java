@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc;
+
+import java.io.IOException;
+
+/**
+ * Append-only log of structs in a directory of memory mapped segment files. Each segment has
+ * space for a fixed amount of structs, a new segment is created when the last one is full.
+ * Structs are addressed by a sequence that starts from 0 and never repeats.
+ *
+ * A log has a single writer. Readers can tail the log from other threads and from other
+ * processes that map the same directory, they see structs once the writer publishes them.
+ *
+ * @author Antti Laisi
+ */
+public interface StructLog<T> extends AutoCloseable {
+
+	/**
+	 * Appends a zeroed struct to the log. The struct is not visible to readers before
+	 * {@link #publish()}. Appending only moves a cursor in the mapped segment, a system call
+	 * is made only when a new segment is created. The returned struct is always the same object
+	 * for a log and only the struct pointer address is modified by this method.
+	 *
+	 * @return Appended struct
+	 */
+	
+	/* Aayush
+	This method adds a new struct of zeroes at the end of the log and returns it so it can be written. Readers see it after publish() is called.
+	*/
+	T append();
+
+	/**
+	 * Makes all appended structs visible to readers.
+	 */
+	
+	/* Aayush
+	This method lets readers see every struct appended so far.
+	*/
+	void publish();
+
+	/**
+	 * @return Sequence of the next appended struct
+	 */
+	
+	/* Aayush
+	This method returns the sequence number the next appended struct will get.
+	*/
+	long writeSequence();
+
+	/**
+	 * @return Sequence of the oldest struct in the log
+	 */
+	
+	/* Aayush
+	This method returns the sequence number of the oldest struct still kept in the log.
+	*/
+	long firstSequence();
+
+	/**
+	 * Deletes segments that only contain structs before sequence. The segment being written is
+	 * never deleted. Readers of deleted segments can read them until they move to the next segment.
+	 *
+	 * @param sequence First sequence to retain
+	 * @return Amount of deleted segments
+	 */
+	
+	/* Aayush
+	This method deletes the segment files whose structs all come before sequence, so old parts of the log stop using disk space.
+	*/
+	int deleteBefore(final long sequence);
+
+	/**
+	 * Creates a reader that starts from sequence. Calling this method maps a segment file.
+	 *
+	 * @param sequence First sequence to read, at least {@link #firstSequence()}
+	 * @return New reader
+	 */
+	
+	/* Aayush
+	This method creates a reader that reads the log starting from sequence.
+	*/
+	Reader<T> reader(final long sequence) throws IOException;
+
+	/**
+	 * Publishes appended structs and unmaps the segment being written.
+	 */
+	
+	/* Aayush
+	This method publishes the appended structs and unmaps the log.
+	*/
+	@Override
+	void close();
+
+	/**
+	 * Tailing reader of a {@link StructLog}. Readers are not thread safe.
+	 */
+	public interface Reader<T> extends AutoCloseable {
+
+		/**
+		 * Moves to the next published struct.
+		 *
+		 * @return false if the writer has not published more structs yet
+		 */
+		
+		/* Aayush
+		This method moves the reader to the next struct. It returns false if there is nothing new to read yet, and can be called again later.
+		*/
+		boolean next();
+
+		/**
+		 * Accessor for the current struct. The returned struct is always the same object for a
+		 * reader and only the struct pointer address is modified by this method.
+		 *
+		 * @return Struct at the current sequence
+		 */
+		
+		/* Aayush
+		This method returns the struct the reader is at.
+		*/
+		T get();
+
+		/**
+		 * @return Sequence of the current struct
+		 */
+		
+		/* Aayush
+		This method returns the sequence number of the struct the reader is at.
+		*/
+		long sequence();
+
+		/**
+		 * Unmaps the segment being read.
+		 */
+		
+		/* Aayush
+		This method unmaps the segment file the reader is reading.
+		*/
+		@Override
+		void close();
+	}
+}
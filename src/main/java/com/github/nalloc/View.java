@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc;
+
+/**
+ * Garbage free access to structs of a single type by raw memory address. Memory is allocated
+ * and freed as plain long addresses and structs are accessed through a flyweight that can be
+ * pointed at any address. Calling methods of a view never allocates from JVM heap.
+ *
+ * Views are not thread safe, the flyweight is shared by all callers of a view instance.
+ *
+ * @author Antti Laisi
+ */
+public interface View<T> {
+
+	/**
+	 * Points the flyweight at address. The returned struct is always the same object for a view
+	 * instance and only the struct pointer address is modified by this method.
+	 *
+	 * @param address Address of a struct
+	 * @return Struct addressed to address
+	 */
+	
+	/* Aayush
+	This method moves the shared struct object of the view to the memory address and returns it.
+	*/
+	T at(final long address);
+
+	/**
+	 * Points the flyweight at index of an array starting at address.
+	 *
+	 * @param address Address of the first struct in array
+	 * @param index Array index
+	 * @return Struct addressed to index
+	 */
+	
+	/* Aayush
+	This method moves the shared struct object of the view to a specific index in an array that starts at the memory address and returns it.
+	*/
+	T at(final long address, final long index);
+
+	/**
+	 * Allocates memory for a single struct. The memory is not initialized.
+	 *
+	 * @return Address of the allocated struct
+	 * @see NativeHeapAllocator#malloc(Class)
+	 */
+	
+	/* Aayush
+	This method allocates space in memory for one struct and returns the memory address of the space instead of a pointer object.
+	*/
+	long malloc();
+
+	/**
+	 * Allocates memory for an array of nmemb structs. The memory is set to zero.
+	 *
+	 * @param nmemb Size of array
+	 * @return Address of the first struct in array
+	 * @see NativeHeapAllocator#calloc(long, Class)
+	 */
+	
+	/* Aayush
+	This method allocates space in memory for an array of structs, sets it to 0, and returns the memory address of the space instead of an array object.
+	*/
+	long calloc(final long nmemb);
+
+	/**
+	 * Frees a struct allocated with {@link #malloc()}.
+	 *
+	 * @param address Address returned by malloc()
+	 */
+	
+	/* Aayush
+	This method frees the memory of a struct that was allocated with malloc().
+	*/
+	void free(final long address);
+
+	/**
+	 * Frees an array allocated with {@link #calloc(long)}.
+	 *
+	 * @param address Address returned by calloc()
+	 * @param nmemb Size of array passed to calloc()
+	 */
+	
+	/* Aayush
+	This method frees the memory of an array that was allocated with calloc(). The size of the array must be the same as given to calloc().
+	*/
+	void free(final long address, final long nmemb);
+
+	/**
+	 * @return Length of struct in bytes
+	 */
+	
+	/* Aayush
+	This method returns the number of bytes that one struct takes.
+	*/
+	long sizeOf();
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import com.github.nalloc.Array;
+
+/**
+ * {@link Array} of structs aligned to more than malloc aligns to. The allocation is padded by
+ * the difference, the array starts at the first multiple of the alignment in it.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+final class AlignedArray<T> extends HeapArray<T> {
+
+	long base;
+
+	/**
+	 * @param base Address of the allocation
+	 * @param address Aligned address of the array in the allocation
+	 * @param size Size of array
+	 * @param struct Struct instance
+	 */
+	AlignedArray(final long base, final long address, final long size, final NativeStruct struct) {
+		super(address, size, struct);
+		this.base = base;
+	}
+
+	@Override
+	public void free() {
+		unlock();
+		UNSAFE.freeMemory(base);
+	}
+
+	@Override
+	public Array<T> clone() {
+		return new AlignedArray<>(base, address(), size, struct.clone());
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import com.github.nalloc.Array;
+
+/**
+ * {@link Array} allocated from an arena. Freeing is a no-op, memory is released when
+ * the arena is reset or closed.
+ *
+ * @author Antti Laisi
+ */
+final class ArenaArray<T> extends HeapArray<T> {
+
+	ArenaArray(final long address, final long size, final NativeStruct struct) {
+		super(address, size, struct);
+	}
+
+	@Override
+	public void free() {
+		/* released by the arena */
+	}
+
+	@Override
+	public Array<T> clone() {
+		return new ArenaArray<>(address(), size, struct.clone());
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.io.IOException;
+
+import com.github.nalloc.Array;
+
+/**
+ * {@link Array} of structs stored in columns, each field of the array in its own contiguous
+ * column. Column i starts at address + size * (offset of field i). The memory is owned by an
+ * array of the allocator that is wrapped, so arrays stored in rows don't pay for the layout.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+final class ColumnarArray<T> extends HeapArray<T> {
+
+	final HeapArray<T> memory;
+	private final long[] columns;
+
+	/**
+	 * @param memory Array owning the memory of the columns
+	 */
+	private ColumnarArray(final HeapArray<T> memory) {
+		super(memory.address(), memory.size, memory.struct);
+		this.memory = memory;
+		this.columns = memory.struct.getColumns();
+	}
+
+	/**
+	 * @param array Array allocated for a struct type
+	 * @return Columnar view of the array if its struct is stored in columns, otherwise the array
+	 */
+	static <T> HeapArray<T> layout(final HeapArray<T> array) {
+		return array.struct.getColumns() != null ? new ColumnarArray<T>(array) : array;
+	}
+
+	/**
+	 * @param array Array returned by {@link #layout(HeapArray)}
+	 * @return Array owning the memory of the array
+	 */
+	static <T> HeapArray<T> memory(final HeapArray<T> array) {
+		return array instanceof ColumnarArray ? ((ColumnarArray<T>) array).memory : array;
+	}
+
+	/**
+	 * Updates the address and size of an array returned by {@link #layout(HeapArray)} after its
+	 * memory was reallocated.
+	 */
+	static void reallocated(final HeapArray<?> array) {
+		if(array instanceof ColumnarArray) {
+			ColumnarArray<?> columnar = (ColumnarArray<?>) array;
+			columnar.address(columnar.memory.address());
+			columnar.size = columnar.memory.size;
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(final long index) {
+		struct.address = address();
+		struct.rows = size;
+		struct.row = index;
+		return (T) struct;
+	}
+
+	@Override
+	public T clear(final long index) {
+		clear(index, index + 1);
+		return get(index);
+	}
+
+	@Override
+	public void clear(final long fromIndex, final long toIndex) {
+		checkWrite(fromIndex, toIndex);
+		long offset = 0;
+		for(long column : columns) {
+			UNSAFE.setMemory(address() + size * offset + fromIndex * column, (toIndex - fromIndex) * column, (byte) 0);
+			offset += column;
+		}
+	}
+
+	@Override
+	public void copy(final long srcIndex, final Array<T> dest, final long destIndex, final long length) {
+		ColumnarArray<T> to = (ColumnarArray<T>) dest;
+		checkRange(srcIndex, srcIndex + length);
+		to.checkWrite(destIndex, destIndex + length);
+		// Unsafe.copyMemory is a conjoint copy, overlapping regions are copied like memmove()
+		long offset = 0;
+		for(long column : columns) {
+			UNSAFE.copyMemory(address() + size * offset + srcIndex * column,
+					to.address() + to.size * offset + destIndex * column, length * column);
+			offset += column;
+		}
+	}
+
+	@Override
+	public void fill(final long fromIndex, final long toIndex, final T template) {
+		checkWrite(fromIndex, toIndex);
+		NativeStruct source = (NativeStruct) template;
+		if(source.getSize() != struct.getSize()) {
+			throw new IllegalArgumentException("Struct sizes differ: " + struct.getSize() + " and " + source.getSize());
+		}
+		if(fromIndex == toIndex) {
+			return;
+		}
+		long offset = 0;
+		for(long column : columns) {
+			fill(source.address + source.rows * offset + source.row * column,
+					address() + size * offset + fromIndex * column, column, (toIndex - fromIndex) * column);
+			offset += column;
+		}
+	}
+
+	/**
+	 * Moves the columns of a columnar array in place when the amount of rows changes. Arrays
+	 * must be relaid out before shrinking and after growing their memory.
+	 *
+	 * @param address Address of the array
+	 * @param columns Byte lengths of fields, null for arrays stored in rows
+	 * @param oldRows Amount of structs stored in the columns
+	 * @param newRows New amount of structs
+	 */
+	static void relayout(final long address, final long[] columns, final long oldRows, final long newRows) {
+		if(columns == null || oldRows == newRows) {
+			return;
+		}
+		long rows = Math.min(oldRows, newRows);
+		long offset = 0;
+		if(newRows < oldRows) {
+			for(long column : columns) {
+				UNSAFE.copyMemory(address + oldRows * offset, address + newRows * offset, rows * column);
+				offset += column;
+			}
+			return;
+		}
+		for(long column : columns) {
+			offset += column;
+		}
+		for(int i = columns.length - 1; i >= 0; i--) {
+			offset -= columns[i];
+			UNSAFE.copyMemory(address + oldRows * offset, address + newRows * offset, rows * columns[i]);
+		}
+	}
+
+	@Override
+	public Array<T> slice(final long fromIndex, final long toIndex) {
+		checkRange(fromIndex, toIndex);
+		throw new UnsupportedOperationException("Columnar arrays can't be sliced");
+	}
+
+	@Override
+	HeapArray<T> root() {
+		return memory;
+	}
+
+	@Override
+	void lock() throws IOException {
+		memory.lock();
+	}
+
+	@Override
+	void unlock() {
+		memory.unlock();
+	}
+
+	@Override
+	public void free() {
+		memory.free();
+	}
+
+	@Override
+	public Array<T> clone() {
+		return new ColumnarArray<>((HeapArray<T>) memory.clone());
+	}
+}
@@ -14,45 +14,90 @@
 
 package com.github.nalloc.impl;
 
-import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.READ;
 import static java.nio.file.StandardOpenOption.WRITE;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.github.nalloc.Array;
+import com.github.nalloc.Flusher;
+import com.github.nalloc.Index;
+import com.github.nalloc.LongMap;
 import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.RingBuffer;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Type;
+import com.github.nalloc.StructLog;
 
 /**
  * {@link MmapAllocator} implementation using direct {@link ByteBuffer}s.
  *
+ * Files up to 2GB are mapped into a single buffer. Larger files are mapped with a single native
+ * mapping when the JDK internals for it are accessible, otherwise into segments of buffers that
+ * hold a power of two structs each.
+ *
  * @author Antti Laisi
  */
 public class DirectBufferMmapAllocator implements MmapAllocator {
 
+	private static final long DIRECT_BUFFER_ALIGNMENT = 16;
+
+	/**
+	 * Default maximum length of a single mapped buffer in bytes.
+	 */
+	public static final long DEFAULT_SEGMENT_LENGTH = Integer.MAX_VALUE;
+
 	private final Map<Class<?>, Class<? extends NativeStruct>> implementations = new HashMap<>();
+	private final Map<Class<?>, Class<? extends NativeStruct>> readOnlyImplementations = new HashMap<>();
+	private final StructClassGenerator generator;
+	private final long segmentLength;
 
 	public DirectBufferMmapAllocator(final Class<?>... structTypes) {
-		StructClassGenerator generator = new StructClassGenerator(structTypes);
+		this(DEFAULT_SEGMENT_LENGTH, structTypes);
+	}
+
+	/**
+	 * @param segmentLength Maximum length of a single mapped buffer in bytes, files longer than
+	 *            this are mapped in segments, at most {@link #DEFAULT_SEGMENT_LENGTH}
+	 * @param structTypes Struct types
+	 */
+	public DirectBufferMmapAllocator(final long segmentLength, final Class<?>... structTypes) {
+		if(segmentLength < 1 || segmentLength > DEFAULT_SEGMENT_LENGTH) {
+			throw new IllegalArgumentException("segmentLength must be 1-" + DEFAULT_SEGMENT_LENGTH);
+		}
+		this.segmentLength = segmentLength;
+		generator = new StructClassGenerator(structTypes);
 		for(Class<?> struct : structTypes) {
 			implementations.put(struct, generator.generate(struct));
+			readOnlyImplementations.put(struct, generator.generateReadOnly(struct));
 		}
 	}
 
 	@Override
 	public <T> Array<T> mmap(final File file, final long nmemb, final Class<T> structType) throws IOException {
-		FileChannel channel = FileChannel.open(file.toPath(), READ, WRITE, CREATE);
+		return mmapArray(file, MapMode.READ_WRITE, nmemb, NativeStruct.create(implementations.get(structType)));
+	}
+
+	@Override
+	public <T> Array<T> mmapReadOnly(final File file, final Class<T> structType) throws IOException {
+		NativeStruct struct = NativeStruct.create(readOnlyImplementations.get(structType));
+		return mmapArray(file, MapMode.READ_ONLY, file.length() / struct.getSize(), struct);
+	}
+
+	@Override
+	public <T> Array<T> mmapPrivate(final File file, final Class<T> structType) throws IOException {
 		NativeStruct struct = NativeStruct.create(implementations.get(structType));
-		ByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, nmemb * struct.getSize()).order(ByteOrder.nativeOrder());
-		channel.close();
-		return new MmapArray<T>(buffer, nmemb, struct);
+		return mmapArray(file, MapMode.PRIVATE, file.length() / struct.getSize(), struct);
 	}
 
 	@Override
@@ -61,20 +106,401 @@ public class DirectBufferMmapAllocator implements MmapAllocator {
 			throw new IllegalArgumentException("Only direct buffers in native byte order can be mapped");
 		}
 		NativeStruct struct = NativeStruct.create(implementations.get(structType));
-		return new MmapArray<T>(buffer, buffer.capacity() / struct.getSize(), struct);
+		return ColumnarArray.layout(new MmapArray<T>(buffer, buffer.capacity() / struct.getSize(), struct));
 	}
 
 	@Override
 	public <T> Array<T> mmap(final long nmemb, final Class<T> structType) {
 		NativeStruct struct = NativeStruct.create(implementations.get(structType));
+		long length = nmemb * struct.getSize();
+		if(length > Integer.MAX_VALUE || struct.getAlignment() > DIRECT_BUFFER_ALIGNMENT && MappedMemory.isZeroedAvailable()) {
+			return mmapLargeAnonymous(nmemb, struct);
+		}
+		if(struct.getAlignment() > DIRECT_BUFFER_ALIGNMENT) {
+			// an aligned slice of a larger buffer could not be freed
+			return UnsafeNativeHeapAllocator.callocAligned(nmemb, struct);
+		}
 		ByteBuffer buffer = ByteBuffer.allocateDirect((int)(nmemb * struct.getSize())).order(ByteOrder.nativeOrder());
-		return new MmapArray<>(buffer, nmemb, struct);
+		return ColumnarArray.layout(new MmapArray<T>(buffer, nmemb, struct));
+	}
+
+	@Override
+	public <T> Array<T> remap(final Array<T> structs, final long nmemb) throws IOException {
+		HeapArray<T> array = (HeapArray<T>) structs;
+		if(array instanceof SliceArray) {
+			throw new IllegalArgumentException("Slices can't be remapped");
+		}
+		if(array.struct.getColumns() != null) {
+			throw new UnsupportedOperationException("Columnar arrays can't be remapped, their layout depends on the array size");
+		}
+		File file = file(array);
+		MapMode mode = mode(array);
+		if(mode == MapMode.PRIVATE) {
+			throw new IllegalArgumentException("Private mappings can't be remapped without losing changes");
+		}
+		return mmapArray(file, mode, nmemb, NativeStruct.create(array.struct.getClass()));
+	}
+
+	@Override
+	public void force(final Array<?> structs) throws IOException {
+		if(structs instanceof MmapArray && ((MmapArray<?>) structs).file != null) {
+			((MappedByteBuffer) ((MmapArray<?>) structs).buffer).force();
+		} else {
+			force(structs, 0, structs.size());
+		}
+	}
+
+	@Override
+	public void force(final Array<?> structs, final long fromIndex, final long toIndex) throws IOException {
+		checkRange(structs, fromIndex, toIndex);
+		HeapArray<?> array = (HeapArray<?>) structs;
+		long msize = array.struct.getSize();
+		file(root(array));
+		RandomAccessFile sync = sync(root(array));
+		if(sync == null) {
+			// read-only and private mappings never write to the file
+			return;
+		}
+		if(array.struct.getColumns() != null) {
+			// a range of a columnar array is spread over all columns
+			MappedMemory.force(sync, array.address(), array.size * msize);
+			return;
+		}
+		for(long index = fromIndex; index < toIndex;) {
+			long n = Math.min(toIndex - index, array.run(index));
+			MappedMemory.force(sync, array.at(index), n * msize);
+			index += n;
+		}
+	}
+
+	@Override
+	public void advise(final Array<?> structs, final long fromIndex, final long toIndex, final Advice advice) {
+		checkRange(structs, fromIndex, toIndex);
+		HeapArray<?> array = (HeapArray<?>) structs;
+		long msize = array.struct.getSize();
+		if(array.struct.getColumns() != null) {
+			advise(array, array.address(), array.size * msize, advice);
+			return;
+		}
+		for(long index = fromIndex; index < toIndex;) {
+			long n = Math.min(toIndex - index, array.run(index));
+			advise(array, array.at(index), n * msize, advice);
+			index += n;
+		}
+	}
+
+	private static void advise(final HeapArray<?> array, final long address, final long length, final Advice advice) {
+		switch(advice) {
+		case WILL_NEED:
+			MappedMemory.willNeed(address, length);
+			break;
+		case DONT_NEED:
+			// private anonymous memory and copy-on-write pages of private file mappings would lose their content
+			MapMode mode = mode(root(array));
+			if(mode == MapMode.READ_WRITE || mode == MapMode.READ_ONLY) {
+				MappedMemory.dontNeed(address, length);
+			}
+			break;
+		case SEQUENTIAL:
+			MappedMemory.sequential(address, length);
+			break;
+		case RANDOM:
+			MappedMemory.random(address, length);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown advice " + advice);
+		}
+	}
+
+	@Override
+	public void touch(final Array<?> structs, final long fromIndex, final long toIndex, final int threads) {
+		checkRange(structs, fromIndex, toIndex);
+		if(threads < 1) {
+			throw new IllegalArgumentException("threads must be > 0");
+		}
+		HeapArray<?> array = (HeapArray<?>) structs;
+		long msize = array.struct.getSize();
+		HeapArray<?> root = root(array);
+		boolean file = root instanceof MappedArray || root instanceof SegmentedArray
+				|| (root instanceof MmapArray && ((MmapArray<?>) root).file != null);
+		if(array.struct.getColumns() != null) {
+			MappedMemory.touch(array.address(), array.size * msize, !file, threads);
+			return;
+		}
+		int runs = 0;
+		for(long index = fromIndex; index < toIndex; runs++) {
+			index += Math.min(toIndex - index, array.run(index));
+		}
+		long[] addresses = new long[runs];
+		long[] lengths = new long[runs];
+		int run = 0;
+		for(long index = fromIndex; index < toIndex; run++) {
+			long n = Math.min(toIndex - index, array.run(index));
+			addresses[run] = array.at(index);
+			lengths[run] = n * msize;
+			index += n;
+		}
+		// the threads split the pages of all runs once
+		MappedMemory.touch(addresses, lengths, !file, threads);
+	}
+
+	@Override
+	public void lock(final Array<?> structs) throws IOException {
+		((HeapArray<?>) structs).lock();
+	}
+
+	@Override
+	public long locked() {
+		return MemoryLock.locked();
+	}
+
+	@Override
+	public Flusher flusher(final Array<?> structs) {
+		file(root((HeapArray<?>) structs));
+		return new GroupCommitFlusher(this, structs.clone());
+	}
+
+	@Override
+	public <T> RingBuffer<T> mmapRing(final File file, final int capacity, final Class<T> structType,
+			final boolean multiProducer, final RingBuffer.WaitStrategy waitStrategy) throws IOException {
+		if(capacity < 1 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		NativeStruct struct = NativeStruct.create(implementations.get(structType));
+		long length = MmapRingBuffer.length(capacity, struct.getSize());
+		long nmemb = (length + struct.getSize() - 1) / struct.getSize();
+		// mapping extends the file, a ring buffer of another capacity must be rejected before that
+		MmapRingBuffer.checkHeader(file, capacity, struct.getSize());
+		HeapArray<?> mapping = (HeapArray<?>) mmap(file, MapMode.READ_WRITE, nmemb, struct.clone());
+		try {
+			return new MmapRingBuffer<>(mapping, capacity, struct, multiProducer, waitStrategy);
+		} catch(RuntimeException e) {
+			mapping.free();
+			throw e;
+		}
+	}
+
+	@Override
+	public <T> LongMap<T> mmapLongMap(final File file, final long capacity, final Class<T> structType)
+			throws IOException {
+		NativeStruct struct = NativeStruct.create(implementations.get(structType));
+		return new OpenAddressingLongMap<>(new FileLongMapStorage(this, file, struct.clone()), capacity, struct);
+	}
+
+	@Override
+	public <T> Index<T> mmapIndex(final File file, final Array<T> records, final String field) throws IOException {
+		HeapArray<T> array = (HeapArray<T>) records.clone();
+		if(array.struct.getColumns() != null) {
+			throw new IllegalArgumentException("Columnar arrays can't be indexed");
+		}
+		Class<?> structType = null;
+		boolean readOnly = false;
+		for(Map.Entry<Class<?>, Class<? extends NativeStruct>> implementation : implementations.entrySet()) {
+			if(implementation.getValue() == array.struct.getClass()) {
+				structType = implementation.getKey();
+			}
+		}
+		for(Map.Entry<Class<?>, Class<? extends NativeStruct>> implementation : readOnlyImplementations.entrySet()) {
+			if(implementation.getValue() == array.struct.getClass()) {
+				structType = implementation.getKey();
+				readOnly = true;
+			}
+		}
+		if(structType == null) {
+			throw new IllegalArgumentException("Array of a struct type not known to this allocator");
+		}
+		Field key = StructClassGenerator.field(structType, field);
+		if((key.type() != Type.INT && key.type() != Type.LONG) || key.len() != 1) {
+			throw new IllegalArgumentException("Only single INT and LONG fields can be index keys: " + field);
+		}
+		return new MmapBTreeIndex<>(this, file, array, generator.offset(structType, field), key.type() == Type.INT ? 4 : 8,
+				readOnly);
+	}
+
+	@Override
+	public <T> StructLog<T> mmapLog(final File directory, final long segmentSize, final Class<T> structType)
+			throws IOException {
+		if(segmentSize < 1) {
+			throw new IllegalArgumentException("segmentSize must be > 0");
+		}
+		return new MmapStructLog<>(this, directory, segmentSize, NativeStruct.create(implementations.get(structType)));
+	}
+
+	/*
+	 * Maps files longer than the segment length in segments unless they can be mapped with a
+	 * single native mapping. The offsets of columns depend on the amount of structs, which the
+	 * file does not store, so columnar files are mapped only with the size they were written with.
+	 */
+	private <T> Array<T> mmapArray(final File file, final MapMode mode, final long nmemb, final NativeStruct struct)
+			throws IOException {
+		long length = nmemb * struct.getSize();
+		if(struct.getColumns() != null && file.length() != 0 && file.length() != length) {
+			throw new IllegalStateException("Columnar file " + file + " of " + file.length()
+					+ " bytes can't be mapped as " + nmemb + " structs of " + struct.getSize() + " bytes");
+		}
+		if(length <= segmentLength || segmentLength == DEFAULT_SEGMENT_LENGTH && MappedMemory.isAvailable()) {
+			return mmap(file, mode, nmemb, struct);
+		}
+		if(struct.getColumns() != null) {
+			throw new UnsupportedOperationException("Columnar arrays can't be mapped in segments, file " + file
+					+ " is longer than " + segmentLength + " bytes");
+		}
+		long msize = struct.getSize();
+		if(msize > segmentLength) {
+			throw new IllegalArgumentException("Struct of " + msize + " bytes is longer than segments of "
+					+ segmentLength + " bytes");
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(segmentLength / msize);
+		long segment = msize << shift;
+		ByteBuffer[] buffers = new ByteBuffer[(int) ((length + segment - 1) / segment)];
+		RandomAccessFile sync = mode == MapMode.READ_WRITE ? new RandomAccessFile(file, "rw") : null;
+		FileChannel channel = sync != null ? sync.getChannel() : open(file, mode);
+		try {
+			if(mode != MapMode.READ_WRITE && channel.size() < length) {
+				throw new IOException("File " + file + " is shorter than " + length + " bytes");
+			}
+			for(int i = 0; i < buffers.length; i++) {
+				long position = i * segment;
+				buffers[i] = channel.map(mode, position, Math.min(segment, length - position)).order(ByteOrder.nativeOrder());
+			}
+		} catch(IOException | RuntimeException e) {
+			for(ByteBuffer buffer : buffers) {
+				if(buffer != null) {
+					PointerArithmetics.INSTANCE.free(buffer);
+				}
+			}
+			channel.close();
+			throw e;
+		}
+		if(sync == null) {
+			channel.close();
+		}
+		return new SegmentedArray<T>(file, mode, buffers, shift, nmemb, struct, sync);
+	}
+
+	/*
+	 * FileChannel.map is limited to 2GB, larger files are mapped with a single native mapping.
+	 * Writable files stay open until the mapping is freed, msync needs the descriptor of the file
+	 * that was mapped. Read-only files are opened only for reading and must be long enough, pages
+	 * past the end of file would fault with SIGBUS. Private mappings are never extended either,
+	 * FileChannel requires a writable channel for them.
+	 */
+	<T> Array<T> mmap(final File file, final MapMode mode, final long nmemb, final NativeStruct struct)
+			throws IOException {
+		long length = nmemb * struct.getSize();
+		RandomAccessFile sync = mode == MapMode.READ_WRITE ? new RandomAccessFile(file, "rw") : null;
+		FileChannel channel = sync != null ? sync.getChannel() : open(file, mode);
+		HeapArray<T> array = null;
+		try {
+			if(mode != MapMode.READ_WRITE && channel.size() < length) {
+				throw new IOException("File " + file + " is shorter than " + length + " bytes");
+			}
+			if(length > Integer.MAX_VALUE) {
+				long address = MappedMemory.map(channel, mode, 0, length);
+				array = new MappedArray<T>(file, mode, address, nmemb, length, struct, sync);
+			} else {
+				ByteBuffer buffer = channel.map(mode, 0, length).order(ByteOrder.nativeOrder());
+				array = new MmapArray<T>(buffer, nmemb, struct, file, mode, sync);
+			}
+			return ColumnarArray.layout(array);
+		} finally {
+			if(array == null || sync == null) {
+				channel.close();
+			}
+		}
+	}
+
+	/*
+	 * Direct buffers are limited to 2GB and aligned to 16 bytes, larger anonymous mappings and
+	 * mappings of structs with larger alignment are private anonymous mappings of page aligned
+	 * kernel zeroed pages that are committed on first touch. Without JNA structs with larger
+	 * alignment are allocated from the C heap with padding for aligning them.
+	 */
+	private <T> Array<T> mmapLargeAnonymous(final long nmemb, final NativeStruct struct) {
+		long length = nmemb * struct.getSize();
+		if(!MappedMemory.isZeroedAvailable()) {
+			throw new UnsupportedOperationException("Anonymous mappings larger than 2GB require JNA (net.java.dev.jna:jna)",
+					Libc.unavailable());
+		}
+		try {
+			return ColumnarArray.layout(new ZeroPageArray<T>(MappedMemory.mapZeroed(length), nmemb, length, struct));
+		} catch(IOException e) {
+			OutOfMemoryError error = new OutOfMemoryError("Unable to map " + length + " bytes");
+			error.initCause(e);
+			throw error;
+		}
+	}
+
+	/*
+	 * Opens a file for a read-only or private mapping, writable files are opened with
+	 * RandomAccessFile to keep its descriptor for flushing.
+	 */
+	private static FileChannel open(final File file, final MapMode mode) throws IOException {
+		return mode == MapMode.READ_ONLY ? FileChannel.open(file.toPath(), READ)
+				: FileChannel.open(file.toPath(), READ, WRITE);
+	}
+
+	private static void checkRange(final Array<?> structs, final long fromIndex, final long toIndex) {
+		if(fromIndex < 0 || fromIndex > toIndex || toIndex > structs.size()) {
+			throw new IllegalArgumentException("Invalid range " + fromIndex + "-" + toIndex);
+		}
+	}
+
+	private static HeapArray<?> root(final HeapArray<?> array) {
+		return array instanceof SliceArray ? ((SliceArray<?>) array).root : ColumnarArray.memory(array);
+	}
+
+	/*
+	 * Map mode of an array mapped from a file, null for anonymous memory.
+	 */
+	private static MapMode mode(final HeapArray<?> array) {
+		return array instanceof MmapArray ? ((MmapArray<?>) array).mode
+				: array instanceof MappedArray ? ((MappedArray<?>) array).mode
+				: array instanceof SegmentedArray ? ((SegmentedArray<?>) array).mode : null;
+	}
+
+	private static RandomAccessFile sync(final HeapArray<?> array) {
+		return array instanceof MmapArray ? ((MmapArray<?>) array).sync
+				: array instanceof MappedArray ? ((MappedArray<?>) array).sync
+				: array instanceof SegmentedArray ? ((SegmentedArray<?>) array).sync : null;
+	}
+
+	private static File file(final HeapArray<?> array) {
+		File file = array instanceof MmapArray ? ((MmapArray<?>) array).file
+				: array instanceof MappedArray ? ((MappedArray<?>) array).file
+				: array instanceof SegmentedArray ? ((SegmentedArray<?>) array).file : null;
+		if(file == null) {
+			throw new IllegalArgumentException("Only arrays mapped from files can be remapped or flushed");
+		}
+		return file;
 	}
 
 	@Override
 	public ByteBuffer toBytes(final Array<?> structs) {
-		MmapArray<?> array = (MmapArray<?>) structs;
-		return array.buffer;
+		HeapArray<?> array = (HeapArray<?>) structs;
+		HeapArray<?> root = root(array);
+		ByteBuffer buffer;
+		long start;
+		if(root instanceof MmapArray) {
+			buffer = ((MmapArray<?>) root).buffer;
+			start = root.address();
+		} else if(root instanceof SegmentedArray && root != array && array.run(0) >= array.size) {
+			SegmentedArray<?> segmented = (SegmentedArray<?>) root;
+			long first = array.size == 0 ? Math.max(array.rootIndex(0) - 1, 0) : array.rootIndex(0);
+			int segment = (int) (first >>> segmented.shift);
+			buffer = segmented.buffers[segment];
+			start = segmented.segments[segment];
+		} else {
+			throw new IllegalArgumentException("Mappings and slices larger than a single buffer can't be accessed as ByteBuffer");
+		}
+		if(root == array) {
+			return buffer;
+		}
+		int from = (int) (array.address() - start);
+		ByteBuffer view = buffer.duplicate();
+		((Buffer) view).limit(from + (int) (array.size * array.struct.getSize()));
+		((Buffer) view).position(from);
+		return view.slice().order(ByteOrder.nativeOrder());
 	}
 
 }
@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link LongMapStorage} mapping tables from a file. A growing table is mapped from a sibling
+ * file with suffix .resize that replaces the map file once all entries have moved to it.
+ *
+ * @author Antti Laisi
+ */
+final class FileLongMapStorage implements LongMapStorage {
+
+	private final DirectBufferMmapAllocator allocator;
+	private final File file;
+	private final File resize;
+	private final NativeStruct struct;
+
+	private boolean mapped;
+
+	/**
+	 * @param allocator Allocator mapping the files
+	 * @param file Map file
+	 * @param struct Struct instance of the map values
+	 */
+	FileLongMapStorage(final DirectBufferMmapAllocator allocator, final File file, final NativeStruct struct) {
+		this.allocator = allocator;
+		this.file = file;
+		this.resize = new File(file.getPath() + ".resize");
+		this.struct = struct;
+	}
+
+	/*
+	 * A resize file left behind holds the entries that were moved before the map was unmapped,
+	 * the rest are still in the map file. A resize file without a header was allocated but never
+	 * initialized, so no entries moved to it.
+	 */
+	@Override
+	public HeapArray<?>[] existing() throws IOException {
+		if(file.length() == 0) {
+			resize.delete();
+			return new HeapArray<?>[0];
+		}
+		mapped = true;
+		if(!initialized(resize)) {
+			resize.delete();
+			return new HeapArray<?>[] { map(file) };
+		}
+		return new HeapArray<?>[] { map(file), map(resize) };
+	}
+
+	@Override
+	public HeapArray<?> allocate(final long length) throws IOException {
+		File target = mapped ? resize : file;
+		mapped = true;
+		resize.delete();
+		long nmemb = (length + struct.getSize() - 1) / struct.getSize();
+		return (HeapArray<?>) allocator.mmap(target, MapMode.READ_WRITE, nmemb, struct.clone());
+	}
+
+	/*
+	 * Tables are mapped from new or empty files, which read as zeros.
+	 */
+	@Override
+	public boolean zeroes(final long length) {
+		return true;
+	}
+
+	private static boolean initialized(final File target) throws IOException {
+		if(target.length() < 8) {
+			return false;
+		}
+		try(FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer bytes = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+			while(bytes.hasRemaining() && channel.read(bytes) >= 0) {
+				// read until the magic is full or the file ends
+			}
+			return !bytes.hasRemaining() && bytes.getLong(0) == OpenAddressingLongMap.MAGIC;
+		}
+	}
+
+	private HeapArray<?> map(final File target) throws IOException {
+		return (HeapArray<?>) allocator.mmap(target, MapMode.READ_WRITE, target.length() / struct.getSize(), struct.clone());
+	}
+
+	@Override
+	public void replaced() throws IOException {
+		Files.move(resize.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.Flusher;
+import com.github.nalloc.MmapAllocator;
+
+/**
+ * {@link Flusher} with a daemon thread. Requests widen the range of a pending batch, the thread
+ * takes the batch as a whole and flushes the merged range while the next batch collects.
+ *
+ * @author Antti Laisi
+ */
+final class GroupCommitFlusher implements Flusher, Runnable {
+
+	private final MmapAllocator allocator;
+	private final Array<?> structs;
+	private final Thread thread;
+
+	private Batch pending;
+	private boolean closed;
+
+	/**
+	 * @param allocator Allocator that mapped structs
+	 * @param structs Array mapped from a file
+	 */
+	GroupCommitFlusher(final MmapAllocator allocator, final Array<?> structs) {
+		this.allocator = allocator;
+		this.structs = structs;
+		this.thread = new Thread(this, "nalloc-flusher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public synchronized Future<Void> flush(final long fromIndex, final long toIndex) {
+		if(fromIndex < 0 || fromIndex > toIndex || toIndex > structs.size()) {
+			throw new IllegalArgumentException("Invalid range " + fromIndex + "-" + toIndex);
+		}
+		if(closed) {
+			throw new IllegalStateException("Flusher is closed");
+		}
+		if(pending == null) {
+			pending = new Batch();
+			notifyAll();
+		}
+		pending.from = Math.min(pending.from, fromIndex);
+		pending.to = Math.max(pending.to, toIndex);
+		return pending.future;
+	}
+
+	@Override
+	public void run() {
+		while(true) {
+			Batch batch;
+			synchronized(this) {
+				while(pending == null && !closed) {
+					try {
+						wait();
+					} catch(InterruptedException e) {
+						closed = true;
+					}
+				}
+				if(pending == null) {
+					return;
+				}
+				batch = pending;
+				pending = null;
+			}
+			batch.future.run();
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized(this) {
+			closed = true;
+			notifyAll();
+		}
+		try {
+			thread.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Merged range of requests flushed together.
+	 */
+	private final class Batch implements Callable<Void> {
+
+		final FutureTask<Void> future = new FutureTask<>(this);
+		long from = Long.MAX_VALUE;
+		long to = Long.MIN_VALUE;
+
+		@Override
+		public Void call() throws Exception {
+			allocator.force(structs, from, to);
+			return null;
+		}
+	}
+}
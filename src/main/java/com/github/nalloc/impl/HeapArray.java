@@ -16,10 +16,14 @@ package com.github.nalloc.impl;
 
 import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
 
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+
 import com.github.nalloc.Array;
 
 /**
- * {@link Array} containing fixed-sized structs.
+ * {@link Array} containing fixed-sized structs stored in rows. Columnar layouts are
+ * {@link ColumnarArray}s.
  *
  * @author Antti Laisi
  */
@@ -28,9 +32,11 @@ public class HeapArray<T> implements Array<T> {
 
 	protected final NativeStruct struct;
 	private final long msize;
+	private final boolean readOnly;
 
 	protected long size;
 	private long address;
+	private long locked;
 
 	/**
 	 * @param address Pointer address
@@ -42,6 +48,7 @@ public class HeapArray<T> implements Array<T> {
 		this.size = size;
 		this.struct = struct;
 		this.msize = struct.getSize();
+		this.readOnly = struct.isReadOnly();
 	}
 
 	@Override
@@ -53,15 +60,141 @@ public class HeapArray<T> implements Array<T> {
 
 	@Override
 	public T clear(final long index) {
-		UNSAFE.setMemory(address + index * msize, msize, (byte) 0);
+		if(readOnly) {
+			throw new ReadOnlyBufferException();
+		}
+		UNSAFE.setMemory(at(index), msize, (byte) 0);
 		return get(index);
 	}
 
+	@Override
+	public void clear(final long fromIndex, final long toIndex) {
+		checkWrite(fromIndex, toIndex);
+		for(long index = fromIndex; index < toIndex;) {
+			long n = Math.min(toIndex - index, run(index));
+			UNSAFE.setMemory(at(index), n * msize, (byte) 0);
+			index += n;
+		}
+	}
+
+	@Override
+	public void copy(final long srcIndex, final Array<T> dest, final long destIndex, final long length) {
+		HeapArray<T> to = (HeapArray<T>) dest;
+		if(to.msize != msize) {
+			throw new IllegalArgumentException("Struct sizes differ: " + msize + " and " + to.msize);
+		}
+		checkRange(srcIndex, srcIndex + length);
+		to.checkWrite(destIndex, destIndex + length);
+		// Unsafe.copyMemory is a conjoint copy, overlapping regions are copied like memmove()
+		if(run(srcIndex) >= length && to.run(destIndex) >= length) {
+			UNSAFE.copyMemory(at(srcIndex), to.at(destIndex), length * msize);
+		} else {
+			copyRuns(srcIndex, to, destIndex, length);
+		}
+	}
+
+	/*
+	 * Copies a range that spans segments of a segmented array run by run. Ranges in the same
+	 * memory are copied from the end when the destination is after the source, like memmove().
+	 */
+	private void copyRuns(final long srcIndex, final HeapArray<T> to, final long destIndex, final long length) {
+		if(root().address() == to.root().address() && to.rootIndex(destIndex) > rootIndex(srcIndex)) {
+			for(long left = length; left > 0;) {
+				long n = Math.min(left, Math.min(runBefore(srcIndex + left), to.runBefore(destIndex + left)));
+				left -= n;
+				UNSAFE.copyMemory(at(srcIndex + left), to.at(destIndex + left), n * msize);
+			}
+			return;
+		}
+		for(long done = 0; done < length;) {
+			long n = Math.min(length - done, Math.min(run(srcIndex + done), to.run(destIndex + done)));
+			UNSAFE.copyMemory(at(srcIndex + done), to.at(destIndex + done), n * msize);
+			done += n;
+		}
+	}
+
+	@Override
+	public void move(final long fromIndex, final long toIndex, final long length) {
+		copy(fromIndex, this, toIndex, length);
+	}
+
+	@Override
+	public void fill(final long fromIndex, final long toIndex, final T template) {
+		checkWrite(fromIndex, toIndex);
+		NativeStruct source = (NativeStruct) template;
+		if(source.getSize() != msize) {
+			throw new IllegalArgumentException("Struct sizes differ: " + msize + " and " + source.getSize());
+		}
+		if(fromIndex == toIndex) {
+			return;
+		}
+		for(long index = fromIndex; index < toIndex;) {
+			long n = Math.min(toIndex - index, run(index));
+			fill(source.address, at(index), msize, n * msize);
+			index += n;
+		}
+	}
+
+	/*
+	 * Copies the template once and doubles the filled region with every copy.
+	 */
+	static void fill(final long template, final long start, final long templateLength, final long length) {
+		UNSAFE.copyMemory(template, start, templateLength);
+		for(long filled = templateLength; filled < length; filled <<= 1) {
+			UNSAFE.copyMemory(start, start + filled, Math.min(filled, length - filled));
+		}
+	}
+
 	@Override
 	public long size() {
 		return size;
 	}
 
+	/**
+	 * @param index Index of a struct stored in a row
+	 * @return Address of the struct
+	 */
+	long at(final long index) {
+		return address + index * msize;
+	}
+
+	/**
+	 * @param index Index of a struct
+	 * @return Amount of structs from index on that are stored contiguously
+	 */
+	long run(final long index) {
+		return size - index;
+	}
+
+	/**
+	 * @param end Index after a struct
+	 * @return Amount of structs before end that are stored contiguously
+	 */
+	long runBefore(final long end) {
+		return end;
+	}
+
+	/**
+	 * @return Array that owns the memory of this array
+	 */
+	HeapArray<T> root() {
+		return this;
+	}
+
+	/**
+	 * @param index Index of a struct in this array
+	 * @return Index of the struct in {@link #root()}
+	 */
+	long rootIndex(final long index) {
+		return index;
+	}
+
+	@Override
+	public Array<T> slice(final long fromIndex, final long toIndex) {
+		checkRange(fromIndex, toIndex);
+		return new SliceArray<>(this, fromIndex, toIndex - fromIndex, struct.clone());
+	}
+
 	@Override
 	public T deref() {
 		return get(0);
@@ -79,9 +212,49 @@ public class HeapArray<T> implements Array<T> {
 
 	@Override
 	public void free() {
+		unlock();
 		UNSAFE.freeMemory(address);
 	}
 
+	/**
+	 * Locks the memory of this array in RAM until {@link #unlock()} or {@link #free()}.
+	 */
+	void lock() throws IOException {
+		if(locked == 0) {
+			long length = size * msize;
+			MemoryLock.lock(address, length);
+			locked = length;
+		}
+	}
+
+	/**
+	 * Unlocks memory locked with {@link #lock()}, does nothing if this array is not locked.
+	 */
+	void unlock() {
+		if(locked != 0) {
+			MemoryLock.unlock(address, locked);
+			locked = 0;
+		}
+	}
+
+	final void checkRange(final long fromIndex, final long toIndex) {
+		if(fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+			throw new IllegalArgumentException("Invalid range " + fromIndex + "-" + toIndex);
+		}
+	}
+
+	final void checkWrite(final long fromIndex, final long toIndex) {
+		if(readOnly) {
+			throw new ReadOnlyBufferException();
+		}
+		checkRange(fromIndex, toIndex);
+	}
+
+	@Override
+	public Array.Cursor<T> cursor() {
+		return new HeapArrayCursor<>(address, size, 0, size, struct.clone());
+	}
+
 	@Override
 	public String toString() {
 		return String.format("0x%X", address);
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import com.github.nalloc.Array;
+
+/**
+ * Splittable {@link Array.Cursor} over a range of a {@link HeapArray}. Each cursor positions
+ * its own struct instance.
+ *
+ * @author Antti Laisi
+ */
+final class HeapArrayCursor<T> implements Array.Cursor<T> {
+
+	private final NativeStruct struct;
+	private final long address;
+	private final long[] segments;
+	private final int shift;
+	private final long offset;
+	private final long mask;
+	private final long msize;
+	private final boolean columnar;
+	private final long end;
+	private long next;
+	private long index;
+
+	/**
+	 * @param address Address of the first struct of the array
+	 * @param rows Size of the array
+	 * @param fromIndex First struct of the range
+	 * @param toIndex Struct after the last struct of the range
+	 * @param struct Struct instance owned by the cursor
+	 */
+	HeapArrayCursor(final long address, final long rows, final long fromIndex, final long toIndex,
+			final NativeStruct struct) {
+		this(address, null, 0, 0, rows, fromIndex, toIndex, struct);
+	}
+
+	/**
+	 * @param segments Addresses of the segments of a {@link SegmentedArray}
+	 * @param shift Log2 of the amount of structs in a segment
+	 * @param offset Index in the segmented array of the first struct of the array, non-zero for slices
+	 * @param fromIndex First struct of the range
+	 * @param toIndex Struct after the last struct of the range
+	 * @param struct Struct instance owned by the cursor
+	 */
+	HeapArrayCursor(final long[] segments, final int shift, final long offset, final long fromIndex,
+			final long toIndex, final NativeStruct struct) {
+		this(segments[0], segments, shift, offset, 1, fromIndex, toIndex, struct);
+	}
+
+	private HeapArrayCursor(final long address, final long[] segments, final int shift, final long offset,
+			final long rows, final long fromIndex, final long toIndex, final NativeStruct struct) {
+		this.address = address;
+		this.segments = segments;
+		this.shift = shift;
+		this.offset = offset;
+		this.mask = (1L << shift) - 1;
+		this.next = fromIndex;
+		this.index = fromIndex - 1;
+		this.end = toIndex;
+		this.struct = struct;
+		this.msize = struct.getSize();
+		this.columnar = struct.getColumns() != null;
+		struct.address = address;
+		struct.rows = columnar ? rows : 1;
+	}
+
+	@Override
+	public boolean next() {
+		if(next == end) {
+			return false;
+		}
+		index = next++;
+		if(columnar) {
+			struct.row = index;
+		} else if(segments != null) {
+			long i = offset + index;
+			struct.address = segments[(int) (i >>> shift)] + (i & mask) * msize;
+		} else {
+			struct.address = address + index * msize;
+		}
+		return true;
+	}
+
+	@Override
+	public long index() {
+		return index;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get() {
+		return (T) struct;
+	}
+
+	@Override
+	public long remaining() {
+		return end - next;
+	}
+
+	@Override
+	public Array.Cursor<T> trySplit() {
+		long remaining = end - next;
+		if(remaining < 2) {
+			return null;
+		}
+		long mid = next + remaining / 2;
+		HeapArrayCursor<T> prefix = new HeapArrayCursor<>(address, segments, shift, offset, struct.rows, next, mid,
+				struct.clone());
+		next = mid;
+		return prefix;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.io.IOException;
+
+import com.github.nalloc.LongMap;
+import com.github.nalloc.NativeHeapAllocator;
+
+/**
+ * {@link LongMapStorage} allocating tables from a {@link NativeHeapAllocator}. Tables of kernel
+ * zeroed pages are allocated with calloc(), others uninitialized so that the map zeroes them a
+ * part at a time.
+ *
+ * @author Antti Laisi
+ */
+final class HeapLongMapStorage implements LongMapStorage {
+
+	private final NativeHeapAllocator allocator;
+	private final Class<?> structType;
+	private final long structSize;
+	private final long zeroPageThreshold;
+
+	/**
+	 * @param allocator Allocator of tables
+	 * @param structType Struct type registered to allocator
+	 * @param structSize Size of structType in bytes
+	 * @param zeroPageThreshold Minimum length of arrays that allocator calloc()s from kernel zeroed
+	 *            pages, Long.MAX_VALUE if it never does
+	 */
+	HeapLongMapStorage(final NativeHeapAllocator allocator, final Class<?> structType, final long structSize,
+			final long zeroPageThreshold) {
+		this.allocator = allocator;
+		this.structType = structType;
+		this.structSize = structSize;
+		this.zeroPageThreshold = zeroPageThreshold;
+	}
+
+	/**
+	 * Creates a map allocating its tables from allocator. Shared by the heap allocators.
+	 *
+	 * @param allocator Allocator of tables
+	 * @param capacity Amount of keys the map holds without growing
+	 * @param structType Struct type registered to allocator
+	 * @param struct Struct instance of values
+	 * @param zeroPageThreshold Minimum length of arrays that allocator calloc()s from kernel zeroed
+	 *            pages, Long.MAX_VALUE if it never does
+	 * @return New empty map
+	 */
+	static <T> LongMap<T> longMap(final NativeHeapAllocator allocator, final long capacity, final Class<T> structType,
+			final NativeStruct struct, final long zeroPageThreshold) {
+		try {
+			return new OpenAddressingLongMap<>(new HeapLongMapStorage(allocator, structType, struct.getSize(),
+					zeroPageThreshold), capacity, struct);
+		} catch(IOException e) {
+			throw new IllegalStateException(e); // heap storage does not do I/O
+		}
+	}
+
+	@Override
+	public HeapArray<?>[] existing() {
+		return new HeapArray<?>[0];
+	}
+
+	@Override
+	public HeapArray<?> allocate(final long length) {
+		long nmemb = (length + structSize - 1) / structSize;
+		if(zeroes(length)) {
+			return (HeapArray<?>) allocator.calloc(nmemb, structType);
+		}
+		if(allocator instanceof UnsafeArenaAllocator) {
+			return ((UnsafeArenaAllocator) allocator).malloc(nmemb, structType);
+		}
+		return ((UnsafeNativeHeapAllocator) allocator).malloc(nmemb, structType);
+	}
+
+	@Override
+	public boolean zeroes(final long length) {
+		return UnsafeNativeHeapAllocator.isZeroPage(length, zeroPageThreshold);
+	}
+
+	@Override
+	public void replaced() {
+	}
+
+}
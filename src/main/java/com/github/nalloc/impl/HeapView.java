@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import com.github.nalloc.View;
+
+/**
+ * {@link View} allocating structs from native heap.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+class HeapView<T> extends NativeView<T> {
+
+	private final long zeroPageThreshold;
+
+	/**
+	 * @param struct Struct instance used as flyweight
+	 * @param zeroPageThreshold Minimum length of arrays in bytes allocated from kernel zeroed pages
+	 */
+	HeapView(final NativeStruct struct, final long zeroPageThreshold) {
+		super(struct);
+		this.zeroPageThreshold = zeroPageThreshold;
+	}
+
+	@Override
+	public long malloc() {
+		return UNSAFE.allocateMemory(msize);
+	}
+
+	@Override
+	public long calloc(final long nmemb) {
+		if(nmemb < 1) {
+			throw new IllegalArgumentException("nmemb must be > 0");
+		}
+		return UnsafeNativeHeapAllocator.callocMemory(nmemb * msize, zeroPageThreshold);
+	}
+
+	@Override
+	public void free(final long address) {
+		UNSAFE.freeMemory(address);
+	}
+
+	@Override
+	public void free(final long address, final long nmemb) {
+		UnsafeNativeHeapAllocator.freeMemory(address, nmemb * msize, zeroPageThreshold);
+	}
+}
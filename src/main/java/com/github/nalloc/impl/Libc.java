@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sun.jna.Function;
+import com.sun.jna.LastErrorException;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+
+/**
+ * Calls to C library functions the JDK has no wrappers for. The calls are made through JNA
+ * (net.java.dev.jna:jna), an optional dependency of nalloc. Without JNA on the class path, or on
+ * platforms other than Linux, {@link #isAvailable()} returns false and callers fall back to the JDK.
+ * The flag values below are those of the generic Linux ABI, so architectures that define them
+ * differently, like ppc64, mips and sparc, are reported unavailable as well.
+ *
+ * JNA classes are referenced only from a nested class that is initialized when JNA is found.
+ *
+ * @author Antti Laisi
+ */
+final class Libc {
+
+	static final int MADV_RANDOM = 1;
+	static final int MADV_SEQUENTIAL = 2;
+	static final int MADV_WILLNEED = 3;
+	static final int MADV_DONTNEED = 4;
+
+	private static final int PROT_READ = 0x1;
+	private static final int PROT_WRITE = 0x2;
+	private static final int MAP_PRIVATE = 0x02;
+	private static final int MAP_ANONYMOUS = 0x20;
+	private static final int MAP_NORESERVE = 0x4000;
+	private static final int MREMAP_MAYMOVE = 1;
+
+	private static final List<String> ARCHITECTURES = Arrays.asList("amd64", "x86_64", "aarch64", "riscv64");
+
+	private static final Throwable UNAVAILABLE;
+
+	static {
+		Throwable unavailable = null;
+		try {
+			if(!System.getProperty("os.name").startsWith("Linux")) {
+				throw new UnsupportedOperationException("Only Linux is supported");
+			}
+			if(!ARCHITECTURES.contains(System.getProperty("os.arch"))) {
+				throw new UnsupportedOperationException("Unsupported architecture " + System.getProperty("os.arch"));
+			}
+			Class.forName(Jna.class.getName(), true, Libc.class.getClassLoader());
+		} catch(Exception | LinkageError e) {
+			unavailable = e;
+		}
+		UNAVAILABLE = unavailable;
+	}
+
+	private Libc() {
+	}
+
+	/**
+	 * @return true if the C library can be called
+	 */
+	static boolean isAvailable() {
+		return UNAVAILABLE == null;
+	}
+
+	/**
+	 * @return Reason why the C library can't be called, null if it can
+	 */
+	static Throwable unavailable() {
+		return UNAVAILABLE;
+	}
+
+	/**
+	 * @return 0 on success, errno on failure
+	 */
+	static int mlock(final long address, final long length) {
+		return Jna.mlock(address, length);
+	}
+
+	/**
+	 * @return 0 on success, errno on failure
+	 */
+	static int munlock(final long address, final long length) {
+		return Jna.munlock(address, length);
+	}
+
+	/**
+	 * @param address Start address of the region, must be a multiple of page size
+	 * @return 0 on success, errno on failure
+	 */
+	static int madvise(final long address, final long length, final int advice) {
+		return Jna.madvise(address, length, advice);
+	}
+
+	/**
+	 * Maps length bytes of private anonymous memory. Pages are zeroed by the kernel and committed
+	 * on first touch, no swap is reserved for them.
+	 *
+	 * @return Page aligned address of the mapping
+	 * @throws IOException if the kernel refuses the mapping
+	 */
+	static long mmapAnonymous(final long length) throws IOException {
+		long address = Jna.mmap(length, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE);
+		if(address < 0) {
+			throw new IOException("mmap of " + length + " bytes failed with errno " + -address);
+		}
+		return address;
+	}
+
+	/**
+	 * Resizes a mapping created with {@link #mmapAnonymous(long)} without copying its pages, the
+	 * mapping may move. Pages added to the mapping are zeroed like the pages of a new mapping.
+	 *
+	 * @return Page aligned address of the resized mapping
+	 * @throws IOException if the kernel refuses the mapping
+	 */
+	static long mremap(final long address, final long oldLength, final long newLength) throws IOException {
+		long remapped = Jna.mremap(address, oldLength, newLength, MREMAP_MAYMOVE);
+		if(remapped < 0) {
+			throw new IOException("mremap to " + newLength + " bytes failed with errno " + -remapped);
+		}
+		return remapped;
+	}
+
+	/**
+	 * Removes a mapping created with {@link #mmapAnonymous(long)}.
+	 */
+	static void munmap(final long address, final long length) {
+		int errno = Jna.munmap(address, length);
+		if(errno != 0) {
+			throw new IllegalStateException("munmap failed with errno " + errno);
+		}
+	}
+
+	/*
+	 * Loading this class fails with NoClassDefFoundError without JNA, Libc itself must not
+	 * mention JNA types in its fields or method signatures.
+	 */
+	private static final class Jna {
+
+		static final NativeLibrary C = NativeLibrary.getInstance("c");
+		static final Function MLOCK = C.getFunction("mlock", Function.THROW_LAST_ERROR);
+		static final Function MUNLOCK = C.getFunction("munlock", Function.THROW_LAST_ERROR);
+		static final Function MADVISE = C.getFunction("madvise", Function.THROW_LAST_ERROR);
+		static final Function MMAP = C.getFunction("mmap", Function.THROW_LAST_ERROR);
+		static final Function MUNMAP = C.getFunction("munmap", Function.THROW_LAST_ERROR);
+		static final Function MREMAP = C.getFunction("mremap", Function.THROW_LAST_ERROR);
+
+		static int mlock(final long address, final long length) {
+			return invoke(MLOCK, new Pointer(address), new NativeLong(length));
+		}
+
+		static int munlock(final long address, final long length) {
+			return invoke(MUNLOCK, new Pointer(address), new NativeLong(length));
+		}
+
+		static int madvise(final long address, final long length, final int advice) {
+			return invoke(MADVISE, new Pointer(address), new NativeLong(length), advice);
+		}
+
+		static int munmap(final long address, final long length) {
+			return invoke(MUNMAP, new Pointer(address), new NativeLong(length));
+		}
+
+		/*
+		 * Returns the address of the mapping or -errno.
+		 */
+		static long mmap(final long length, final int prot, final int flags) {
+			try {
+				Pointer address = MMAP.invokePointer(new Object[] { null, new NativeLong(length), prot, flags, -1,
+						new NativeLong(0) });
+				return Pointer.nativeValue(address);
+			} catch(LastErrorException e) {
+				return -e.getErrorCode();
+			}
+		}
+
+		/*
+		 * Returns the address of the resized mapping or -errno.
+		 */
+		static long mremap(final long address, final long oldLength, final long newLength, final int flags) {
+			try {
+				Pointer remapped = MREMAP.invokePointer(new Object[] { new Pointer(address), new NativeLong(oldLength),
+						new NativeLong(newLength), flags });
+				return Pointer.nativeValue(remapped);
+			} catch(LastErrorException e) {
+				return -e.getErrorCode();
+			}
+		}
+
+		private static int invoke(final Function function, final Object... args) {
+			try {
+				function.invokeInt(args);
+				return 0;
+			} catch(LastErrorException e) {
+				return e.getErrorCode();
+			}
+		}
+	}
+}
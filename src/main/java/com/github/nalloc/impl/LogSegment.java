@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+
+/**
+ * Segment file of a {@link MmapStructLog}:
+ *
+ * <pre>
+ * 0      magic, base sequence, capacity, struct size
+ * 64     amount of published structs
+ * 128    capacity * struct size bytes of structs
+ * </pre>
+ *
+ * Segments are written to a temporary file of their creator and linked to their name when the
+ * header is complete, so readers never see a partial header. Unlike rename, link never replaces
+ * a segment that another process created first.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+final class LogSegment {
+
+	static final long MAGIC = 0x4E5345474D454E54L;
+	static final String SUFFIX = ".seg";
+
+	private static final long PUBLISHED = 64;
+	private static final long STRUCTS = 128;
+
+	final long base;
+	final long capacity;
+	final long structs;
+	private final HeapArray<?> mapping;
+
+	private LogSegment(final HeapArray<?> mapping) {
+		this.mapping = mapping;
+		long address = mapping.address();
+		this.base = UNSAFE.getLong(address + 8);
+		this.capacity = UNSAFE.getLong(address + 16);
+		this.structs = address + STRUCTS;
+	}
+
+	/**
+	 * Creates a segment, or opens it if another process created it first.
+	 */
+	static LogSegment create(final DirectBufferMmapAllocator allocator, final File directory, final long base,
+			final long capacity, final NativeStruct struct) throws IOException {
+		File file = file(directory, base);
+		File tmp = File.createTempFile(file.getName() + ".", ".tmp", directory);
+		long nmemb = (STRUCTS + capacity * struct.getSize() + struct.getSize() - 1) / struct.getSize();
+		HeapArray<?> mapping;
+		try {
+			mapping = (HeapArray<?>) allocator.mmap(tmp, MapMode.READ_WRITE, nmemb, struct.clone());
+			long address = mapping.address();
+			UNSAFE.putLong(address + 8, base);
+			UNSAFE.putLong(address + 16, capacity);
+			UNSAFE.putLong(address + 24, struct.getSize());
+			UNSAFE.putLong(address, MAGIC);
+			try {
+				Files.createLink(file.toPath(), tmp.toPath());
+			} catch(FileAlreadyExistsException e) {
+				mapping.free();
+				return open(allocator, file, struct);
+			}
+		} finally {
+			tmp.delete();
+		}
+		return new LogSegment(mapping);
+	}
+
+	/**
+	 * @return Segment or null if file does not exist
+	 */
+	static LogSegment open(final DirectBufferMmapAllocator allocator, final File file, final NativeStruct struct)
+			throws IOException {
+		if(!file.exists()) {
+			return null;
+		}
+		HeapArray<?> mapping = (HeapArray<?>) allocator.mmap(file, MapMode.READ_WRITE,
+				file.length() / struct.getSize(), struct.clone());
+		long address = mapping.address();
+		if(UNSAFE.getLong(address) != MAGIC || UNSAFE.getLong(address + 24) != struct.getSize()) {
+			mapping.free();
+			throw new IllegalStateException("Not a segment of " + struct.getSize() + " byte structs: " + file);
+		}
+		return new LogSegment(mapping);
+	}
+
+	static File file(final File directory, final long base) {
+		return new File(directory, String.format("%020d", base) + SUFFIX);
+	}
+
+	/**
+	 * @return Base sequence of a segment file name or -1 if file is not a segment
+	 */
+	static long base(final File file) {
+		String name = file.getName();
+		if(!name.endsWith(SUFFIX)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+		} catch(NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	long published() {
+		return UNSAFE.getLongVolatile(null, mapping.address() + PUBLISHED);
+	}
+
+	void publish(final long count) {
+		UNSAFE.putOrderedLong(null, mapping.address() + PUBLISHED, count);
+	}
+
+	void free() {
+		mapping.free();
+	}
+}
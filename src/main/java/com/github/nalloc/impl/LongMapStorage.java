@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.io.IOException;
+
+/**
+ * Memory for the tables of {@link OpenAddressingLongMap}. A map holds at most two tables at a
+ * time, the current one and the one it is growing from.
+ *
+ * @author Antti Laisi
+ */
+interface LongMapStorage {
+
+	/**
+	 * @return Tables left by a previous map, empty if there are none. If the previous map was
+	 * growing the table it was growing from is first.
+	 */
+	HeapArray<?>[] existing() throws IOException;
+
+	/**
+	 * @param length Minimum length in bytes
+	 * @return Memory for a new table, zeroed if {@link #zeroes(long)} returns true for the length,
+	 * uninitialized otherwise
+	 */
+	HeapArray<?> allocate(final long length) throws IOException;
+
+	/**
+	 * @param length Length in bytes
+	 * @return true if memory of this length is zeroed without writing it, like new files and
+	 * kernel zeroed pages
+	 */
+	boolean zeroes(final long length);
+
+	/**
+	 * Called after the latest allocated table has replaced the previous one and the previous
+	 * one has been freed.
+	 */
+	void replaced() throws IOException;
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.github.nalloc.Array;
+
+/**
+ * {@link Array} containing fixed-sized structs in a single memory mapping of a file. Unlike
+ * {@link MmapArray} the mapping is not limited to 2GB.
+ *
+ * @author Antti Laisi
+ */
+final class MappedArray<T> extends HeapArray<T> {
+
+	final File file;
+	final MapMode mode;
+	final long length;
+	final RandomAccessFile sync;
+
+	/**
+	 * @param file Mapped file
+	 * @param mode Map mode
+	 * @param address Mapping address
+	 * @param size Size of array
+	 * @param length Mapping length in bytes
+	 * @param struct Struct instance
+	 * @param sync Mapped file kept open to flush the mapping, null for read-only and private mappings
+	 */
+	MappedArray(final File file, final MapMode mode, final long address, final long size, final long length,
+			final NativeStruct struct, final RandomAccessFile sync) {
+		super(address, size, struct);
+		this.file = file;
+		this.mode = mode;
+		this.length = length;
+		this.sync = sync;
+	}
+
+	@Override
+	public void free() {
+		unlock();
+		MappedMemory.unmap(address(), length);
+		MappedMemory.close(sync);
+	}
+
+	@Override
+	public Array<T> clone() {
+		return new MappedArray<>(file, mode, address(), size, length, struct.clone(), sync);
+	}
+}
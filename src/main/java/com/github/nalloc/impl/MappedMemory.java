@@ -0,0 +1,431 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Utility methods for mapping files without the 2GB limit of {@link FileChannel#map}. Calls
+ * the native mmap/munmap wrappers of sun.nio.ch.FileChannelImpl directly, on JDK 9 and later
+ * this requires --add-opens java.base/sun.nio.ch=ALL-UNNAMED.
+ *
+ * Ranges of mappings are flushed with the msync wrapper of java.nio, which on JDK 9 and later
+ * requires --add-opens java.base/java.nio=ALL-UNNAMED. Without it the whole file is synced.
+ * Advice is given with madvise through JNA, or with the madvise wrappers of java.nio when JNA
+ * is not available.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+final class MappedMemory {
+
+	private static final int MAP_RO = 0;
+	private static final int MAP_RW = 1;
+	private static final int MAP_PV = 2;
+
+	private static final Method MAP0;
+	private static final Method UNMAP0;
+	private static final Throwable UNAVAILABLE;
+	private static final Method FORCE0;
+	private static final Method LOAD0;
+	private static final Method UNLOAD0;
+	private static final ByteBuffer NIO_TARGET = ByteBuffer.allocateDirect(1);
+
+	static {
+		Method map0 = null;
+		Method unmap0 = null;
+		Throwable unavailable = null;
+		try {
+			Class<?> channel = Class.forName("sun.nio.ch.FileChannelImpl");
+			try {
+				map0 = channel.getDeclaredMethod("map0", int.class, long.class, long.class);
+			} catch(NoSuchMethodException e) {
+				// JDK 14+
+				map0 = channel.getDeclaredMethod("map0", int.class, long.class, long.class, boolean.class);
+			}
+			unmap0 = channel.getDeclaredMethod("unmap0", long.class, long.class);
+			map0.setAccessible(true);
+			unmap0.setAccessible(true);
+		} catch(Exception | LinkageError e) {
+			unavailable = e;
+		}
+		MAP0 = unavailable == null ? map0 : null;
+		UNMAP0 = unavailable == null ? unmap0 : null;
+		UNAVAILABLE = unavailable;
+
+		FORCE0 = nioMethod("force0", FileDescriptor.class, long.class, long.class);
+		LOAD0 = nioMethod("load0", long.class, long.class);
+		UNLOAD0 = nioMethod("unload0", long.class, long.class);
+	}
+
+	/*
+	 * Native helpers of MappedByteBuffer moved to MappedMemoryUtils in JDK 14.
+	 */
+	private static Method nioMethod(final String name, final Class<?>... parameterTypes) {
+		try {
+			Method method;
+			try {
+				method = Class.forName("java.nio.MappedMemoryUtils").getDeclaredMethod(name, parameterTypes);
+			} catch(ClassNotFoundException e) {
+				method = MappedByteBuffer.class.getDeclaredMethod(name, parameterTypes);
+			}
+			method.setAccessible(true);
+			return method;
+		} catch(Exception | LinkageError e) {
+			return null;
+		}
+	}
+
+	private MappedMemory() {
+	}
+
+	/**
+	 * @return true if files can be mapped with this class
+	 */
+	static boolean isAvailable() {
+		return UNAVAILABLE == null;
+	}
+
+	/**
+	 * @return true if kernel zeroed pages can be mapped with {@link #mapZeroed(long)}, the result
+	 * does not change while the JVM runs
+	 */
+	static boolean isZeroedAvailable() {
+		return Libc.isAvailable();
+	}
+
+	/**
+	 * Maps a region of a file. The file is extended if it is shorter than position + length.
+	 *
+	 * @param channel Channel of the file to map
+	 * @param mode Map mode
+	 * @param position Position in file, must be a multiple of page size
+	 * @param length Length of mapping in bytes
+	 * @return Address of the mapping
+	 */
+	static long map(final FileChannel channel, final MapMode mode, final long position, final long length)
+			throws IOException {
+		if(!isAvailable()) {
+			throw new UnsupportedOperationException("Mapping is not supported by this JVM", UNAVAILABLE);
+		}
+		if(mode != MapMode.READ_ONLY && channel.size() < position + length) {
+			extend(channel, position + length);
+		}
+		int prot = mode == MapMode.READ_ONLY ? MAP_RO : mode == MapMode.READ_WRITE ? MAP_RW : MAP_PV;
+		try {
+			Object address = MAP0.getParameterTypes().length == 3
+					? MAP0.invoke(channel, prot, position, length)
+					: MAP0.invoke(channel, prot, position, length, false);
+			return (Long) address;
+		} catch(InvocationTargetException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} catch(IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Maps length bytes of private anonymous memory that is zeroed by the kernel and committed on
+	 * first touch. The mapping must be removed with {@link #unmapZeroed(long, long)}.
+	 *
+	 * @param length Length of mapping in bytes
+	 * @return Page aligned address of the mapping
+	 */
+	static long mapZeroed(final long length) throws IOException {
+		return Libc.mmapAnonymous(length);
+	}
+
+	/**
+	 * Resizes a mapping created with {@link #mapZeroed(long)} in O(1) without copying or
+	 * committing its pages. Pages added to the mapping are zeroed on first touch.
+	 *
+	 * @param address Address of the mapping
+	 * @param oldLength Length of the mapping in bytes
+	 * @param newLength New length of the mapping in bytes
+	 * @return Page aligned address of the resized mapping, which may have moved
+	 */
+	static long remapZeroed(final long address, final long oldLength, final long newLength) throws IOException {
+		return Libc.mremap(address, oldLength, newLength);
+	}
+
+	/**
+	 * Removes a mapping created with {@link #mapZeroed(long)}.
+	 *
+	 * @param address Address of the mapping
+	 * @param length Length of mapping in bytes
+	 */
+	static void unmapZeroed(final long address, final long length) {
+		Libc.munmap(address, length);
+	}
+
+	/**
+	 * Removes a mapping created by this class.
+	 *
+	 * @param address Address of the mapping
+	 * @param length Length of mapping in bytes
+	 */
+	static void unmap(final long address, final long length) {
+		try {
+			UNMAP0.invoke(null, address, length);
+		} catch(IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes modified pages of a mapped region to the file, the region is extended to page
+	 * boundaries. Falls back to syncing the whole file when msync is not accessible.
+	 *
+	 * @param sync File the region was mapped from, kept open since mapping
+	 * @param address Start address of the region
+	 * @param length Length of the region in bytes
+	 */
+	static void force(final RandomAccessFile sync, final long address, final long length) throws IOException {
+		long start = address & -UNSAFE.pageSize();
+		if(FORCE0 == null) {
+			sync.getChannel().force(false);
+			return;
+		}
+		invokeNio(FORCE0, sync.getFD(), start, length + address - start);
+	}
+
+	/**
+	 * Closes the file a writable mapping was flushed with, the mapping stays valid.
+	 *
+	 * @param sync Open file, null for read-only and private mappings
+	 */
+	static void close(final RandomAccessFile sync) {
+		if(sync != null) {
+			try {
+				sync.close();
+			} catch(IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Advises the kernel that a mapped region will be needed soon, madvise(MADV_WILLNEED). Calls
+	 * madvise through JNA when it is available, otherwise the JDK wrapper. Does nothing if neither
+	 * is accessible.
+	 *
+	 * @param address Start address of the region
+	 * @param length Length of the region in bytes
+	 */
+	static void willNeed(final long address, final long length) {
+		if(Libc.isAvailable()) {
+			madvise(address, length, Libc.MADV_WILLNEED);
+		} else {
+			advise(LOAD0, address, length);
+		}
+	}
+
+	/**
+	 * Advises the kernel that a shared mapping is not needed, madvise(MADV_DONTNEED). Only pages
+	 * completely inside the region are released. Calls madvise through JNA when it is available,
+	 * otherwise the JDK wrapper. Does nothing if neither is accessible (before JDK 14 without JNA).
+	 *
+	 * @param address Start address of the region
+	 * @param length Length of the region in bytes
+	 */
+	static void dontNeed(final long address, final long length) {
+		long page = UNSAFE.pageSize();
+		long start = (address + page - 1) & -page;
+		long end = (address + length) & -page;
+		if(end <= start) {
+			return;
+		}
+		if(Libc.isAvailable()) {
+			madvise(start, end - start, Libc.MADV_DONTNEED);
+		} else {
+			advise(UNLOAD0, start, end - start);
+		}
+	}
+
+	/**
+	 * Advises the kernel that a mapped region will be read sequentially, madvise(MADV_SEQUENTIAL).
+	 * The JDK has no wrapper for this advice, it is ignored without JNA.
+	 *
+	 * @param address Start address of the region
+	 * @param length Length of the region in bytes
+	 */
+	static void sequential(final long address, final long length) {
+		if(Libc.isAvailable()) {
+			madvise(address, length, Libc.MADV_SEQUENTIAL);
+		}
+	}
+
+	/**
+	 * Advises the kernel that a mapped region will be read in random order, madvise(MADV_RANDOM).
+	 * The JDK has no wrapper for this advice, it is ignored without JNA.
+	 *
+	 * @param address Start address of the region
+	 * @param length Length of the region in bytes
+	 */
+	static void random(final long address, final long length) {
+		if(Libc.isAvailable()) {
+			madvise(address, length, Libc.MADV_RANDOM);
+		}
+	}
+
+	/**
+	 * Faults in the pages of a region with parallel threads by touching a byte of every page.
+	 * Writable pages are touched with a compare-and-set of the int they already have, which
+	 * commits anonymous pages without changing their content. The region must start at an
+	 * address of a mapping aligned to 4 bytes.
+	 *
+	 * @param address Start address of the region
+	 * @param length Length of the region in bytes
+	 * @param write true to commit pages for writing
+	 * @param threads Amount of threads
+	 */
+	static void touch(final long address, final long length, final boolean write, final int threads) {
+		touch(new long[] { address }, new long[] { length }, write, threads);
+	}
+
+	/**
+	 * Faults in the pages of regions like {@link #touch(long, long, boolean, int)}. The pages of
+	 * all regions are split once between the threads. Returns only after every thread has
+	 * finished, the regions may be unmapped right after, an interrupt is restored on return.
+	 *
+	 * @param addresses Start addresses of the regions
+	 * @param lengths Lengths of the regions in bytes
+	 * @param write true to commit pages for writing
+	 * @param threads Amount of threads
+	 */
+	static void touch(final long[] addresses, final long[] lengths, final boolean write, final int threads) {
+		final long page = UNSAFE.pageSize();
+		// index of the first page of each region in all pages, the last element is the total
+		final long[] starts = new long[addresses.length + 1];
+		for(int r = 0; r < addresses.length; r++) {
+			long first = addresses[r] & -page;
+			long end = addresses[r] + lengths[r];
+			starts[r + 1] = starts[r] + (lengths[r] == 0 ? 0 : (end - first + page - 1) / page);
+		}
+		final long pages = starts[addresses.length];
+		if(pages == 0) {
+			return;
+		}
+		Thread[] workers = new Thread[(int) Math.min(threads, pages)];
+		for(int i = 0; i < workers.length; i++) {
+			final long from = pages * i / workers.length;
+			final long to = pages * (i + 1) / workers.length;
+			workers[i] = new Thread("nalloc-touch-" + i) {
+				@Override
+				public void run() {
+					int r = 0;
+					for(long p = from; p < to; p++) {
+						while(p >= starts[r + 1]) {
+							r++;
+						}
+						long address = addresses[r];
+						long end = address + lengths[r];
+						long first = address & -page;
+						touch(Math.max(address, first + (p - starts[r]) * page), end, write && lengths[r] >= 4);
+					}
+				}
+			};
+			workers[i].start();
+		}
+		boolean interrupted = false;
+		for(Thread worker : workers) {
+			// returning before a worker finishes would let it touch memory freed by the caller
+			while(true) {
+				try {
+					worker.join();
+					break;
+				} catch(InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void touch(final long address, final long end, final boolean cas) {
+		if(!cas) {
+			UNSAFE.getByteVolatile(null, address);
+			return;
+		}
+		// ints before the region belong to the same mapping and keep their value
+		long aligned = Math.min(address, end - 4) & -4;
+		int value = UNSAFE.getIntVolatile(null, aligned);
+		UNSAFE.compareAndSwapInt(null, aligned, value, value);
+	}
+
+	private static void madvise(final long address, final long length, final int advice) {
+		long start = address & -UNSAFE.pageSize();
+		int errno = Libc.madvise(start, length + address - start, advice);
+		if(errno != 0) {
+			throw new IllegalStateException("madvise failed with errno " + errno);
+		}
+	}
+
+	private static void advise(final Method method, final long address, final long length) {
+		if(method == null) {
+			return;
+		}
+		long start = address & -UNSAFE.pageSize();
+		try {
+			invokeNio(method, start, length + address - start);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void invokeNio(final Method method, final Object... args) throws IOException {
+		try {
+			// the instance of the JDK 13 and earlier methods is not used, any direct buffer will do
+			method.invoke(Modifier.isStatic(method.getModifiers()) ? null : NIO_TARGET, args);
+		} catch(InvocationTargetException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} catch(IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Extends a file to size by writing a single byte at the end. File systems that support
+	 * sparse files don't allocate blocks for the skipped region.
+	 *
+	 * @param channel Channel of the file
+	 * @param size New file size in bytes
+	 */
+	static void extend(final FileChannel channel, final long size) throws IOException {
+		if(channel.size() < size) {
+			channel.write(ByteBuffer.allocate(1), size - 1);
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Utility methods for locking memory in RAM with mlock/munlock. The JDK has no wrapper for
+ * mlock, the calls are made through JNA with {@link Libc}.
+ *
+ * The kernel locks whole pages and does not count locks, so one munlock would unlock pages
+ * that the region shares with other locked regions. Locked pages are counted in ranges and a
+ * page is unlocked only when no locked region covers it.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+final class MemoryLock {
+
+	private static final int EPERM = 1;
+	private static final int EAGAIN = 11;
+	private static final int ENOMEM = 12;
+
+	private static final AtomicLong LOCKED = new AtomicLong();
+
+	/*
+	 * Disjoint page ranges start -> {end, count} of pages locked by count regions.
+	 */
+	private static final TreeMap<Long, long[]> PAGES = new TreeMap<>();
+
+	private MemoryLock() {
+	}
+
+	/**
+	 * @return true if memory can be locked with this class
+	 */
+	static boolean isAvailable() {
+		return Libc.isAvailable();
+	}
+
+	/**
+	 * Locks the pages of a region in RAM.
+	 *
+	 * @param address Start address of the region
+	 * @param length Length of the region in bytes
+	 * @throws IOException if the kernel refuses the lock, the region stays usable without the lock
+	 */
+	static void lock(final long address, final long length) throws IOException {
+		if(!isAvailable()) {
+			throw new UnsupportedOperationException("Locking memory requires JNA (net.java.dev.jna:jna) on the class path",
+					Libc.unavailable());
+		}
+		long start = address & -UNSAFE.pageSize();
+		long end = (address + length + UNSAFE.pageSize() - 1) & -UNSAFE.pageSize();
+		synchronized(PAGES) {
+			int errno = Libc.mlock(start, end - start);
+			if(errno == ENOMEM) {
+				throw new IOException("mlock of " + length + " bytes exceeds RLIMIT_MEMLOCK, see ulimit -l");
+			}
+			if(errno == EPERM) {
+				throw new IOException("mlock of " + length + " bytes is not permitted for this process");
+			}
+			if(errno == EAGAIN) {
+				throw new IOException("mlock of " + length + " bytes failed, some pages could not be locked");
+			}
+			if(errno != 0) {
+				throw new IOException("mlock of " + length + " bytes failed with errno " + errno);
+			}
+			count(start, end, 1);
+		}
+		LOCKED.addAndGet(length);
+	}
+
+	/**
+	 * Unlocks the pages of a region locked with {@link #lock(long, long)}. Pages shared with other
+	 * locked regions stay locked.
+	 *
+	 * @param address Start address of the region
+	 * @param length Length of the region in bytes
+	 */
+	static void unlock(final long address, final long length) {
+		long start = address & -UNSAFE.pageSize();
+		long end = (address + length + UNSAFE.pageSize() - 1) & -UNSAFE.pageSize();
+		synchronized(PAGES) {
+			count(start, end, -1);
+			// pages of the region that are no longer counted are unlocked
+			long from = start;
+			for(Map.Entry<Long, long[]> range : PAGES.subMap(start, end).entrySet()) {
+				if(range.getKey() > from) {
+					Libc.munlock(from, range.getKey() - from);
+				}
+				from = range.getValue()[0];
+			}
+			if(end > from) {
+				Libc.munlock(from, end - from);
+			}
+		}
+		LOCKED.addAndGet(-length);
+	}
+
+	/**
+	 * @return Bytes currently locked with this class
+	 */
+	static long locked() {
+		return LOCKED.get();
+	}
+
+	/**
+	 * @param address Address in a page
+	 * @return true if the page is locked by a region locked with this class
+	 */
+	static boolean isLocked(final long address) {
+		synchronized(PAGES) {
+			Map.Entry<Long, long[]> range = PAGES.floorEntry(address);
+			return range != null && range.getValue()[0] > address;
+		}
+	}
+
+	/*
+	 * Adds delta to the lock counts of pages from start to end, ranges are split at start and end.
+	 */
+	private static void count(final long start, final long end, final long delta) {
+		split(start);
+		split(end);
+		long from = start;
+		TreeMap<Long, long[]> added = new TreeMap<>();
+		Iterator<Map.Entry<Long, long[]>> ranges = PAGES.subMap(start, end).entrySet().iterator();
+		while(ranges.hasNext()) {
+			Map.Entry<Long, long[]> range = ranges.next();
+			if(range.getKey() > from && delta > 0) {
+				added.put(from, new long[] { range.getKey(), delta });
+			}
+			range.getValue()[1] += delta;
+			from = range.getValue()[0];
+			if(range.getValue()[1] == 0) {
+				ranges.remove();
+			}
+		}
+		if(end > from && delta > 0) {
+			added.put(from, new long[] { end, delta });
+		}
+		PAGES.putAll(added);
+	}
+
+	private static void split(final long at) {
+		Map.Entry<Long, long[]> range = PAGES.lowerEntry(at);
+		if(range != null && range.getValue()[0] > at) {
+			PAGES.put(at, new long[] { range.getValue()[0], range.getValue()[1] });
+			range.getValue()[0] = at;
+		}
+	}
+}
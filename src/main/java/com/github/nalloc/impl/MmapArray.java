@@ -14,9 +14,10 @@
 
 package com.github.nalloc.impl;
 
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-
-import sun.nio.ch.DirectBuffer;
+import java.nio.channels.FileChannel.MapMode;
 
 import com.github.nalloc.Array;
 
@@ -25,23 +26,43 @@ import com.github.nalloc.Array;
  *
  * @author Antti Laisi
  */
-@SuppressWarnings("restriction")
 final class MmapArray<T> extends HeapArray<T> {
 
 	final ByteBuffer buffer;
+	final File file;
+	final MapMode mode;
+	final RandomAccessFile sync;
 
 	MmapArray(final ByteBuffer buffer, final long size, final NativeStruct struct) {
-		super(((DirectBuffer) buffer).address(), size, struct);
+		this(buffer, size, struct, null, null, null);
+	}
+
+	/**
+	 * @param buffer Mapped buffer
+	 * @param size Size of array
+	 * @param struct Struct instance
+	 * @param file Mapped file, null if not mapped from a file
+	 * @param mode Map mode, null if not mapped from a file
+	 * @param sync Mapped file kept open to flush the mapping, null for read-only and private mappings
+	 */
+	MmapArray(final ByteBuffer buffer, final long size, final NativeStruct struct, final File file, final MapMode mode,
+			final RandomAccessFile sync) {
+		super(PointerArithmetics.INSTANCE.address(buffer), size, struct);
 		this.buffer = buffer;
+		this.file = file;
+		this.mode = mode;
+		this.sync = sync;
 	}
 
 	@Override
 	public void free() {
-		((DirectBuffer) buffer).cleaner().clean();
+		unlock();
+		PointerArithmetics.INSTANCE.free(buffer);
+		MappedMemory.close(sync);
 	}
 
 	@Override
 	public Array<T> clone() {
-		return new MmapArray<>(buffer, size, struct.clone());
+		return new MmapArray<>(buffer, size, struct.clone(), file, mode, sync);
 	}
 }
@@ -0,0 +1,432 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.Index;
+
+/**
+ * {@link Index} implemented as a B+tree of pages in a memory mapped file. Page 0 is the header,
+ * other pages are nodes:
+ *
+ * <pre>
+ * header  magic, page size, key offset, key length, root page, page count, entry count, height
+ * leaf    count, next leaf page, count * (key, array index)
+ * inner   count, unused, (INNER_MAX + 1) * child page, count * (key, array index)
+ * </pre>
+ *
+ * Entries are ordered by key and then by array index, so equal keys are allowed and an inner
+ * key is the smallest entry of the subtree on its right. The file grows by doubling the mapping.
+ * Indexes of read-only arrays are mapped read-only from an existing file and can't be modified.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+public final class MmapBTreeIndex<T> implements Index<T> {
+
+	static final long MAGIC = 0x4E42545245454958L;
+
+	static final int PAGE_SIZE = 4096;
+	static final int LEAF_MAX = (PAGE_SIZE - 16) / 16;
+	static final int INNER_MAX = (PAGE_SIZE - 16 - 8) / 24;
+
+	private static final long INITIAL_PAGES = 16;
+	private static final long ENTRIES = 16;
+	private static final long INNER_KEYS = 16 + (INNER_MAX + 1) * 8;
+
+	private static final long H_PAGE_SIZE = 8;
+	private static final long H_KEY_OFFSET = 16;
+	private static final long H_KEY_LENGTH = 24;
+	private static final long H_ROOT = 32;
+	private static final long H_PAGES = 40;
+	private static final long H_SIZE = 48;
+	private static final long H_HEIGHT = 56;
+
+	private final DirectBufferMmapAllocator allocator;
+	private final File file;
+	private final NativeStruct unit;
+	private final long keyOffset;
+	private final int keyLength;
+	private final boolean readOnly;
+
+	private HeapArray<T> records;
+	private HeapArray<?> mapping;
+	private long base;
+	private long mappedPages;
+
+	private long[] pathPages = new long[8];
+	private int[] pathSlots = new int[8];
+
+	/**
+	 * @param allocator Allocator mapping the index file
+	 * @param file Index file
+	 * @param records Indexed array
+	 * @param keyOffset Offset of the key field in the struct
+	 * @param keyLength Length of the key field, 4 or 8 bytes
+	 * @param readOnly Whether the index file is mapped read-only
+	 */
+	MmapBTreeIndex(final DirectBufferMmapAllocator allocator, final File file, final HeapArray<T> records,
+			final long keyOffset, final int keyLength, final boolean readOnly) throws IOException {
+		this.allocator = allocator;
+		this.file = file;
+		this.unit = records.struct.clone();
+		this.keyOffset = keyOffset;
+		this.keyLength = keyLength;
+		this.readOnly = readOnly;
+		this.records = records;
+		if(file.length() == 0 && readOnly) {
+			throw new IllegalStateException("Index file " + file + " is empty, indexes of read-only arrays can't be built");
+		}
+		if(file.length() == 0) {
+			map(INITIAL_PAGES * PAGE_SIZE);
+			UNSAFE.putLong(base + H_PAGE_SIZE, PAGE_SIZE);
+			UNSAFE.putLong(base + H_KEY_OFFSET, keyOffset);
+			UNSAFE.putLong(base + H_KEY_LENGTH, keyLength);
+			UNSAFE.putLong(base + H_ROOT, 1);
+			UNSAFE.putLong(base + H_PAGES, 2);
+			UNSAFE.putLong(base + H_HEIGHT, 1);
+			UNSAFE.putLong(base, MAGIC);
+		} else {
+			map(file.length());
+			if(UNSAFE.getLong(base) != MAGIC || UNSAFE.getLong(base + H_PAGE_SIZE) != PAGE_SIZE) {
+				mapping.free();
+				throw new IllegalStateException("Not an index file");
+			}
+			if(UNSAFE.getLong(base + H_KEY_OFFSET) != keyOffset || UNSAFE.getLong(base + H_KEY_LENGTH) != keyLength) {
+				mapping.free();
+				throw new IllegalStateException("Index file is keyed by another field");
+			}
+		}
+	}
+
+	@Override
+	public void add(final long index) {
+		if(readOnly) {
+			throw new ReadOnlyBufferException();
+		}
+		insert(key(index), index);
+	}
+
+	@Override
+	public boolean remove(final long index) {
+		if(readOnly) {
+			throw new ReadOnlyBufferException();
+		}
+		long key = key(index);
+		long leaf = descend(key, index);
+		int count = count(leaf);
+		int slot = lowerBound(leaf, count, key, index);
+		if(slot == count || compare(leafKey(leaf, slot), leafIndex(leaf, slot), key, index) != 0) {
+			return false;
+		}
+		long entry = page(leaf) + ENTRIES + slot * 16L;
+		UNSAFE.copyMemory(entry + 16, entry, (count - slot - 1) * 16L);
+		count(leaf, count - 1);
+		UNSAFE.putLong(base + H_SIZE, size() - 1);
+		return true;
+	}
+
+	@Override
+	public Cursor<T> range(final long from, final long to) {
+		long leaf = descend(from, Long.MIN_VALUE);
+		return new BTreeCursor(leaf, lowerBound(leaf, count(leaf), from, Long.MIN_VALUE) - 1, to);
+	}
+
+	@Override
+	public long size() {
+		return UNSAFE.getLong(base + H_SIZE);
+	}
+
+	@Override
+	public void records(final Array<T> records) {
+		this.records = (HeapArray<T>) records.clone();
+	}
+
+	@Override
+	public void close() {
+		mapping.free();
+	}
+
+	private long key(final long index) {
+		NativeStruct struct = (NativeStruct) records.get(index);
+		return keyLength == 4 ? UNSAFE.getInt(struct.address + keyOffset) : UNSAFE.getLong(struct.address + keyOffset);
+	}
+
+	private void insert(final long key, final long index) {
+		long height = UNSAFE.getLong(base + H_HEIGHT);
+		if(pathPages.length < height) {
+			pathPages = Arrays.copyOf(pathPages, (int) height * 2);
+			pathSlots = Arrays.copyOf(pathSlots, (int) height * 2);
+		}
+		long leaf = descend(key, index);
+		int count = count(leaf);
+		int slot = lowerBound(leaf, count, key, index);
+		if(slot < count && compare(leafKey(leaf, slot), leafIndex(leaf, slot), key, index) == 0) {
+			return;
+		}
+		UNSAFE.putLong(base + H_SIZE, size() + 1);
+		if(count < LEAF_MAX) {
+			insertLeaf(leaf, count, slot, key, index);
+			return;
+		}
+
+		long right = allocatePage();
+		int half = count / 2;
+		UNSAFE.copyMemory(page(leaf) + ENTRIES + half * 16L, page(right) + ENTRIES, (count - half) * 16L);
+		count(right, count - half);
+		count(leaf, half);
+		UNSAFE.putLong(page(right) + 8, UNSAFE.getLong(page(leaf) + 8));
+		UNSAFE.putLong(page(leaf) + 8, right);
+		if(slot > half) {
+			insertLeaf(right, count - half, slot - half, key, index);
+		} else {
+			insertLeaf(leaf, half, slot, key, index);
+		}
+		split(height - 2, leafKey(right, 0), leafIndex(right, 0), right);
+	}
+
+	/*
+	 * Inserts a separator and the page right of it to the parent at depth, splitting parents
+	 * up to the root as long as they are full.
+	 */
+	private void split(final long depth, final long splitKey, final long splitIndex, final long splitPage) {
+		long key = splitKey;
+		long index = splitIndex;
+		long child = splitPage;
+		for(long d = depth; d >= 0; d--) {
+			long parent = pathPages[(int) d];
+			int slot = pathSlots[(int) d];
+			int count = count(parent);
+			if(count < INNER_MAX) {
+				insertInner(parent, count, slot, key, index, child);
+				return;
+			}
+			long right = allocatePage();
+			int mid = count / 2;
+			long promotedKey = innerKey(parent, mid);
+			long promotedIndex = innerIndex(parent, mid);
+			UNSAFE.copyMemory(page(parent) + INNER_KEYS + (mid + 1) * 16L, page(right) + INNER_KEYS, (count - mid - 1) * 16L);
+			UNSAFE.copyMemory(page(parent) + ENTRIES + (mid + 1) * 8L, page(right) + ENTRIES, (count - mid) * 8L);
+			count(right, count - mid - 1);
+			count(parent, mid);
+			if(slot <= mid) {
+				insertInner(parent, mid, slot, key, index, child);
+			} else {
+				insertInner(right, count - mid - 1, slot - mid - 1, key, index, child);
+			}
+			key = promotedKey;
+			index = promotedIndex;
+			child = right;
+		}
+		long root = allocatePage();
+		UNSAFE.putLong(page(root) + ENTRIES, UNSAFE.getLong(base + H_ROOT));
+		UNSAFE.putLong(page(root) + ENTRIES + 8, child);
+		UNSAFE.putLong(page(root) + INNER_KEYS, key);
+		UNSAFE.putLong(page(root) + INNER_KEYS + 8, index);
+		count(root, 1);
+		UNSAFE.putLong(base + H_ROOT, root);
+		UNSAFE.putLong(base + H_HEIGHT, UNSAFE.getLong(base + H_HEIGHT) + 1);
+	}
+
+	private void insertLeaf(final long leaf, final int count, final int slot, final long key, final long index) {
+		long entry = page(leaf) + ENTRIES + slot * 16L;
+		UNSAFE.copyMemory(entry, entry + 16, (count - slot) * 16L);
+		UNSAFE.putLong(entry, key);
+		UNSAFE.putLong(entry + 8, index);
+		count(leaf, count + 1);
+	}
+
+	private void insertInner(final long inner, final int count, final int slot, final long key, final long index,
+			final long child) {
+		long entry = page(inner) + INNER_KEYS + slot * 16L;
+		UNSAFE.copyMemory(entry, entry + 16, (count - slot) * 16L);
+		UNSAFE.putLong(entry, key);
+		UNSAFE.putLong(entry + 8, index);
+		long children = page(inner) + ENTRIES + (slot + 1) * 8L;
+		UNSAFE.copyMemory(children, children + 8, (count - slot) * 8L);
+		UNSAFE.putLong(children, child);
+		count(inner, count + 1);
+	}
+
+	/*
+	 * Walks from the root to the leaf of an entry and records the path for splits.
+	 */
+	private long descend(final long key, final long index) {
+		long page = UNSAFE.getLong(base + H_ROOT);
+		long height = UNSAFE.getLong(base + H_HEIGHT);
+		for(int d = 0; d < height - 1; d++) {
+			int slot = upperBound(page, count(page), key, index);
+			if(d < pathPages.length) {
+				pathPages[d] = page;
+				pathSlots[d] = slot;
+			}
+			page = UNSAFE.getLong(page(page) + ENTRIES + slot * 8L);
+		}
+		return page;
+	}
+
+	private int lowerBound(final long leaf, final int count, final long key, final long index) {
+		int low = 0;
+		int high = count;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(compare(leafKey(leaf, mid), leafIndex(leaf, mid), key, index) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private int upperBound(final long inner, final int count, final long key, final long index) {
+		int low = 0;
+		int high = count;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(compare(innerKey(inner, mid), innerIndex(inner, mid), key, index) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static int compare(final long key1, final long index1, final long key2, final long index2) {
+		int c = Long.compare(key1, key2);
+		return c != 0 ? c : Long.compare(index1, index2);
+	}
+
+	private long allocatePage() {
+		long pages = UNSAFE.getLong(base + H_PAGES);
+		if(pages == mappedPages) {
+			try {
+				map(mappedPages * 2 * PAGE_SIZE);
+			} catch(IOException e) {
+				OutOfMemoryError error = new OutOfMemoryError("Unable to grow index file " + file);
+				error.initCause(e);
+				throw error;
+			}
+		}
+		UNSAFE.putLong(base + H_PAGES, pages + 1);
+		return pages;
+	}
+
+	/*
+	 * Writable mappings round the file up to whole structs, read-only ones map the whole structs
+	 * of the file, which are the same.
+	 */
+	private void map(final long length) throws IOException {
+		long nmemb = readOnly ? length / unit.getSize() : (length + unit.getSize() - 1) / unit.getSize();
+		HeapArray<?> remapped = (HeapArray<?>) allocator.mmap(file, readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE,
+				nmemb, unit.clone());
+		if(mapping != null) {
+			mapping.free();
+		}
+		mapping = remapped;
+		base = remapped.address();
+		mappedPages = nmemb * unit.getSize() / PAGE_SIZE;
+	}
+
+	private long page(final long page) {
+		return base + page * PAGE_SIZE;
+	}
+
+	private int count(final long page) {
+		return UNSAFE.getInt(page(page));
+	}
+
+	private void count(final long page, final int count) {
+		UNSAFE.putInt(page(page), count);
+	}
+
+	private long leafKey(final long leaf, final int slot) {
+		return UNSAFE.getLong(page(leaf) + ENTRIES + slot * 16L);
+	}
+
+	private long leafIndex(final long leaf, final int slot) {
+		return UNSAFE.getLong(page(leaf) + ENTRIES + slot * 16L + 8);
+	}
+
+	private long innerKey(final long inner, final int slot) {
+		return UNSAFE.getLong(page(inner) + INNER_KEYS + slot * 16L);
+	}
+
+	private long innerIndex(final long inner, final int slot) {
+		return UNSAFE.getLong(page(inner) + INNER_KEYS + slot * 16L + 8);
+	}
+
+	/**
+	 * Walks the linked leaves from the first entry of a range.
+	 */
+	private final class BTreeCursor implements Cursor<T> {
+
+		private final long to;
+		private long leaf;
+		private int slot;
+		private boolean done;
+
+		BTreeCursor(final long leaf, final int slot, final long to) {
+			this.leaf = leaf;
+			this.slot = slot;
+			this.to = to;
+		}
+
+		@Override
+		public boolean next() {
+			if(done) {
+				return false;
+			}
+			slot++;
+			while(slot >= count(leaf)) {
+				leaf = UNSAFE.getLong(page(leaf) + 8);
+				slot = 0;
+				if(leaf == 0) {
+					done = true;
+					return false;
+				}
+			}
+			if(leafKey(leaf, slot) > to) {
+				done = true;
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public long key() {
+			return leafKey(leaf, slot);
+		}
+
+		@Override
+		public long index() {
+			return leafIndex(leaf, slot);
+		}
+
+		@Override
+		public T get() {
+			return records.get(index());
+		}
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.github.nalloc.RingBuffer;
+
+/**
+ * {@link RingBuffer} in a memory mapped file. The file starts with a header where the producer
+ * and consumer sequences are on cache lines of their own, followed by a publish stamp for
+ * every slot and the entries:
+ *
+ * <pre>
+ * 0      magic, capacity, entry size
+ * 128    next sequence to claim
+ * 256    next sequence to read
+ * 384    capacity * 8 bytes of stamps, a published slot holds its sequence + 1
+ * ...    capacity * entry size bytes of entries, aligned to a cache line
+ * </pre>
+ *
+ * Stamps let producers publish out of order, the consumer only reads slots whose stamp
+ * matches the sequence it waits for.
+ *
+ * The first process to map a new file writes the header. If it dies before finishing, the
+ * header is initialized again by a process that has waited for it for a second.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+public final class MmapRingBuffer<T> implements RingBuffer<T> {
+
+	static final long MAGIC = 0x4E52494E47425546L;
+	static final long INITIALIZING = 1;
+	static final long INIT_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+	private static final int HEADER_LENGTH = 24;
+
+	private static final int CACHE_LINE = 64;
+	private static final long CLAIM_OFFSET = 2 * CACHE_LINE;
+	private static final long READ_OFFSET = 4 * CACHE_LINE;
+	private static final long STAMPS_OFFSET = 6 * CACHE_LINE;
+
+	private static final int SPINS = 100;
+
+	private final HeapArray<?> mapping;
+	private final long capacity;
+	private final long mask;
+	private final boolean multiProducer;
+	private final WaitStrategy waitStrategy;
+	private final long header;
+	private final long entries;
+	private final long entrySize;
+	private final NativeStruct writer;
+	private final NativeStruct reader;
+
+	private long cachedRead;
+
+	/**
+	 * @param mapping Mapping of the whole ring buffer file
+	 * @param capacity Amount of entries, a power of two
+	 * @param struct Entry struct instance
+	 * @param multiProducer Whether producers claim sequences concurrently
+	 * @param waitStrategy How to wait for room and entries
+	 */
+	MmapRingBuffer(final HeapArray<?> mapping, final long capacity, final NativeStruct struct,
+			final boolean multiProducer, final WaitStrategy waitStrategy) {
+		this.mapping = mapping;
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.multiProducer = multiProducer;
+		this.waitStrategy = waitStrategy;
+		this.header = mapping.address();
+		this.entries = header + length(capacity, 0);
+		this.entrySize = struct.getSize();
+		this.writer = struct;
+		this.reader = struct.clone();
+		init();
+		this.cachedRead = UNSAFE.getLongVolatile(null, header + READ_OFFSET);
+	}
+
+	/**
+	 * @param capacity Amount of entries
+	 * @param entrySize Size of an entry in bytes
+	 * @return Size of a ring buffer file in bytes
+	 */
+	static long length(final long capacity, final long entrySize) {
+		long stamps = STAMPS_OFFSET + capacity * 8;
+		return (stamps + CACHE_LINE - 1) / CACHE_LINE * CACHE_LINE + capacity * entrySize;
+	}
+
+	/**
+	 * Checks the header of an existing ring buffer file before it is mapped, so that a file of
+	 * another ring buffer is not extended. Does nothing if the file does not exist or its header is
+	 * not written yet.
+	 *
+	 * @param file Ring buffer file
+	 * @param capacity Amount of entries
+	 * @param entrySize Size of an entry in bytes
+	 * @throws IllegalStateException if the file is not a ring buffer of the given capacity and entry size
+	 */
+	static void checkHeader(final File file, final long capacity, final long entrySize) throws IOException {
+		if(!file.exists()) {
+			return;
+		}
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() == 0) {
+				return;
+			}
+			ByteBuffer bytes = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.nativeOrder());
+			while(bytes.hasRemaining() && channel.read(bytes) >= 0) {
+				// read until the header is full or the file ends
+			}
+			long magic = bytes.position() < 8 ? -1 : bytes.getLong(0);
+			if(magic == 0 || magic == INITIALIZING) {
+				return;
+			}
+			if(magic != MAGIC || bytes.hasRemaining()) {
+				throw new IllegalStateException("Not a ring buffer file");
+			}
+			checkHeader(bytes.getLong(8), bytes.getLong(16), capacity, entrySize);
+		}
+	}
+
+	private static void checkHeader(final long fileCapacity, final long fileEntrySize, final long capacity,
+			final long entrySize) {
+		if(fileCapacity != capacity || fileEntrySize != entrySize) {
+			throw new IllegalStateException("Ring buffer file has capacity " + fileCapacity + " and entry size "
+					+ fileEntrySize);
+		}
+	}
+
+	/*
+	 * The process that wins the race on magic writes the header, others wait for it to finish.
+	 * A header left initializing for INIT_TIMEOUT belongs to a process that died, waiters reset
+	 * it and race again.
+	 */
+	private void init() {
+		for(;;) {
+			if(UNSAFE.compareAndSwapLong(null, header, 0, INITIALIZING)) {
+				UNSAFE.putLong(header + 8, capacity);
+				UNSAFE.putLong(header + 16, writer.getSize());
+				UNSAFE.putLongVolatile(null, header, MAGIC);
+			}
+			long start = System.nanoTime();
+			for(int counter = 0; UNSAFE.getLongVolatile(null, header) == INITIALIZING
+					&& System.nanoTime() - start < INIT_TIMEOUT; ) {
+				counter = idle(counter);
+			}
+			if(UNSAFE.getLongVolatile(null, header) != INITIALIZING) {
+				break;
+			}
+			UNSAFE.compareAndSwapLong(null, header, INITIALIZING, 0);
+		}
+		if(UNSAFE.getLongVolatile(null, header) != MAGIC) {
+			throw new IllegalStateException("Not a ring buffer file");
+		}
+		checkHeader(UNSAFE.getLong(header + 8), UNSAFE.getLong(header + 16), capacity, writer.getSize());
+	}
+
+	@Override
+	public long capacity() {
+		return capacity;
+	}
+
+	@Override
+	public long claim(final int n) {
+		checkBatch(n);
+		long sequence;
+		for(int counter = 0; (sequence = tryClaim(n)) < 0; ) {
+			counter = idle(counter);
+		}
+		return sequence;
+	}
+
+	@Override
+	public long tryClaim(final int n) {
+		checkBatch(n);
+		long address = header + CLAIM_OFFSET;
+		long next;
+		do {
+			next = UNSAFE.getLongVolatile(null, address);
+			if(next + n - capacity > cachedRead) {
+				cachedRead = UNSAFE.getLongVolatile(null, header + READ_OFFSET);
+				if(next + n - capacity > cachedRead) {
+					return -1;
+				}
+			}
+			if(!multiProducer) {
+				UNSAFE.putOrderedLong(null, address, next + n);
+				return next;
+			}
+		} while(!UNSAFE.compareAndSwapLong(null, address, next, next + n));
+		return next;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T write(final long sequence) {
+		writer.address = entries + (sequence & mask) * entrySize;
+		return (T) writer;
+	}
+
+	@Override
+	public void publish(final long sequence, final int n) {
+		for(long s = sequence; s < sequence + n; s++) {
+			UNSAFE.putOrderedLong(null, stamp(s), s + 1);
+		}
+	}
+
+	@Override
+	public long readSequence() {
+		return UNSAFE.getLongVolatile(null, header + READ_OFFSET);
+	}
+
+	@Override
+	public long waitFor(final long sequence) {
+		for(int counter = 0; UNSAFE.getLongVolatile(null, stamp(sequence)) != sequence + 1; ) {
+			counter = idle(counter);
+		}
+		long last = sequence;
+		long limit = sequence + capacity - 1;
+		while(last < limit && UNSAFE.getLongVolatile(null, stamp(last + 1)) == last + 2) {
+			last++;
+		}
+		return last;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T read(final long sequence) {
+		reader.address = entries + (sequence & mask) * entrySize;
+		return (T) reader;
+	}
+
+	@Override
+	public void release(final long sequence) {
+		UNSAFE.putOrderedLong(null, header + READ_OFFSET, sequence + 1);
+	}
+
+	@Override
+	public RingBuffer<T> clone() {
+		return new MmapRingBuffer<>(mapping, capacity, writer.clone(), multiProducer, waitStrategy);
+	}
+
+	@Override
+	public void close() {
+		mapping.free();
+	}
+
+	private long stamp(final long sequence) {
+		return header + STAMPS_OFFSET + ((sequence & mask) << 3);
+	}
+
+	private void checkBatch(final int n) {
+		if(n < 1 || n > capacity) {
+			throw new IllegalArgumentException("Batch size must be between 1 and " + capacity);
+		}
+	}
+
+	private int idle(final int counter) {
+		switch(waitStrategy) {
+		case YIELD:
+			if(counter > SPINS) {
+				Thread.yield();
+			}
+			break;
+		case PARK:
+			if(counter > 2 * SPINS) {
+				// other processes can't unpark, sleep for a short while instead
+				LockSupport.parkNanos(1000L);
+			} else if(counter > SPINS) {
+				Thread.yield();
+			}
+			break;
+		default:
+			break;
+		}
+		return counter + 1;
+	}
+}
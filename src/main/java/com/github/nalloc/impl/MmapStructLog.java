@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.github.nalloc.StructLog;
+
+/**
+ * {@link StructLog} writing structs to {@link LogSegment}s. The segment being written stays
+ * mapped, appending bumps a cursor in it and publishing is an ordered store of the cursor to
+ * the segment header. Structs appended but not published are lost if the writer stops.
+ *
+ * @author Antti Laisi
+ */
+public final class MmapStructLog<T> implements StructLog<T> {
+
+	private final DirectBufferMmapAllocator allocator;
+	private final File directory;
+	private final long segmentSize;
+	private final NativeStruct writer;
+	private final long structSize;
+
+	private LogSegment segment;
+	private long count;
+
+	/**
+	 * @param allocator Allocator mapping the segments
+	 * @param directory Directory of segment files
+	 * @param segmentSize Amount of structs in new segments
+	 * @param struct Struct instance
+	 */
+	MmapStructLog(final DirectBufferMmapAllocator allocator, final File directory, final long segmentSize,
+			final NativeStruct struct) throws IOException {
+		this.allocator = allocator;
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.writer = struct;
+		this.structSize = struct.getSize();
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create directory " + directory);
+		}
+		long[] bases = bases(directory);
+		segment = bases.length == 0
+				? LogSegment.create(allocator, directory, 0, segmentSize, struct)
+				: LogSegment.open(allocator, LogSegment.file(directory, bases[bases.length - 1]), struct);
+		count = segment.published();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T append() {
+		if(count == segment.capacity) {
+			roll();
+		}
+		writer.address = segment.structs + count++ * structSize;
+		return (T) writer;
+	}
+
+	@Override
+	public void publish() {
+		segment.publish(count);
+	}
+
+	@Override
+	public long writeSequence() {
+		return segment.base + count;
+	}
+
+	@Override
+	public long firstSequence() {
+		long[] bases = bases(directory);
+		return bases.length == 0 ? segment.base : bases[0];
+	}
+
+	@Override
+	public int deleteBefore(final long sequence) {
+		long[] bases = bases(directory);
+		int deleted = 0;
+		for(int i = 0; i < bases.length - 1 && bases[i + 1] <= sequence && bases[i] != segment.base; i++) {
+			if(LogSegment.file(directory, bases[i]).delete()) {
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+
+	@Override
+	public Reader<T> reader(final long sequence) throws IOException {
+		long[] bases = bases(directory);
+		int i = bases.length - 1;
+		while(i >= 0 && bases[i] > sequence) {
+			i--;
+		}
+		if(i < 0) {
+			throw new IllegalArgumentException("Sequence " + sequence + " is not in the log");
+		}
+		LogSegment first = LogSegment.open(allocator, LogSegment.file(directory, bases[i]), writer);
+		if(first == null || sequence - first.base > first.capacity) {
+			if(first != null) {
+				first.free();
+			}
+			throw new IllegalArgumentException("Sequence " + sequence + " is not in the log");
+		}
+		return new SegmentReader(first, sequence - first.base, writer.clone());
+	}
+
+	@Override
+	public void close() {
+		publish();
+		segment.free();
+	}
+
+	/*
+	 * Creating the next segment is the only system call of the writer.
+	 */
+	private void roll() {
+		segment.publish(count);
+		LogSegment next;
+		try {
+			next = LogSegment.create(allocator, directory, segment.base + segment.capacity, segmentSize, writer);
+		} catch(IOException e) {
+			OutOfMemoryError error = new OutOfMemoryError("Unable to create log segment in " + directory);
+			error.initCause(e);
+			throw error;
+		}
+		segment.free();
+		segment = next;
+		count = next.published();
+	}
+
+	private static long[] bases(final File directory) {
+		File[] files = directory.listFiles();
+		long[] bases = new long[files == null ? 0 : files.length];
+		int n = 0;
+		for(int i = 0; i < bases.length; i++) {
+			long base = LogSegment.base(files[i]);
+			if(base >= 0) {
+				bases[n++] = base;
+			}
+		}
+		bases = Arrays.copyOf(bases, n);
+		Arrays.sort(bases);
+		return bases;
+	}
+
+	/**
+	 * Reads published structs of a segment and moves to the next segment once it exists.
+	 */
+	private final class SegmentReader implements Reader<T> {
+
+		private final NativeStruct struct;
+		private LogSegment segment;
+		private long position;
+
+		SegmentReader(final LogSegment segment, final long position, final NativeStruct struct) {
+			this.segment = segment;
+			this.position = position;
+			this.struct = struct;
+		}
+
+		@Override
+		public boolean next() {
+			if(position == segment.capacity) {
+				LogSegment next;
+				try {
+					next = LogSegment.open(allocator, LogSegment.file(directory, segment.base + segment.capacity), struct);
+				} catch(IOException e) {
+					throw new IllegalStateException("Unable to map log segment", e);
+				}
+				if(next == null) {
+					return false;
+				}
+				segment.free();
+				segment = next;
+				position = 0;
+			}
+			if(position < segment.published()) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get() {
+			struct.address = segment.structs + (position - 1) * structSize;
+			return (T) struct;
+		}
+
+		@Override
+		public long sequence() {
+			return segment.base + position - 1;
+		}
+
+		@Override
+		public void close() {
+			segment.free();
+		}
+	}
+}
@@ -38,11 +38,46 @@ public abstract class NativeStruct {
 
 	protected long address;
 
+	/**
+	 * Index of the struct in a columnar array.
+	 */
+	protected long row;
+
+	/**
+	 * Amount of structs in the columnar array of the struct, 1 outside columnar arrays.
+	 */
+	protected long rows = 1;
+
 	/**
 	 * @return Length of struct in bytes
 	 */
 	protected abstract long getSize();
 
+	/**
+	 * @param name Field name
+	 * @return Offset of the field from the start of a struct stored in a row, -1 if there is no such field
+	 */
+	protected abstract long getOffset(String name);
+
+	/**
+	 * @return Alignment of the struct in bytes, 1 if the struct is packed
+	 */
+	protected abstract long getAlignment();
+
+	/**
+	 * @return true if setters of the struct throw ReadOnlyBufferException
+	 */
+	protected boolean isReadOnly() {
+		return false;
+	}
+
+	/**
+	 * @return Byte lengths of fields if the struct is stored in columns, null if it is stored in rows
+	 */
+	protected long[] getColumns() {
+		return null;
+	}
+
 	/**
 	 * Sets memory address of the struct.
 	 *
@@ -64,6 +99,8 @@ public abstract class NativeStruct {
 	protected NativeStruct clone() {
 		NativeStruct clone = NativeStruct.create(getClass());
 		clone.address = this.address;
+		clone.row = this.row;
+		clone.rows = this.rows;
 		for(Field field : getClass().getDeclaredFields()) {
 			field.setAccessible(true);
 			try {
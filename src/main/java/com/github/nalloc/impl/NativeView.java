@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import com.github.nalloc.View;
+
+/**
+ * Base class for {@link View}s. Positions a single struct instance at raw addresses.
+ *
+ * @author Antti Laisi
+ */
+abstract class NativeView<T> implements View<T> {
+
+	protected final NativeStruct struct;
+	protected final long msize;
+
+	/**
+	 * @param struct Struct instance used as flyweight
+	 */
+	NativeView(final NativeStruct struct) {
+		this.struct = struct;
+		this.msize = struct.getSize();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public final T at(final long address) {
+		struct.address = address;
+		return (T) struct;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public final T at(final long address, final long index) {
+		struct.address = address + index * msize;
+		return (T) struct;
+	}
+
+	@Override
+	public void free(final long address) {
+		free(address, 1);
+	}
+
+	@Override
+	public final long sizeOf() {
+		return msize;
+	}
+
+	@Override
+	public String toString() {
+		return struct.toString();
+	}
+}
@@ -0,0 +1,399 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.io.IOException;
+
+import com.github.nalloc.LongMap;
+
+/**
+ * {@link LongMap} with linear probing. A table starts with a header followed by capacity + 1
+ * slots of a long key and the struct:
+ *
+ * <pre>
+ * 0      magic, capacity, struct size, amount of keys, whether key 0 is present
+ * 64     slots, an empty slot has key 0 and a zeroed struct
+ * ...    slot of key 0
+ * </pre>
+ *
+ * For structs aligned to more than 8 bytes the key and the slot are padded to the alignment, and
+ * the header too when the alignment is larger than 64 bytes.
+ *
+ * Removing shifts the following entries of the probe sequence back, so tables have no
+ * tombstones. When the table is 3/4 full a table of double capacity replaces it. Entries are
+ * then moved from the start of the old table a few at a time on every put and remove, lookups
+ * check both tables until the old one is empty.
+ *
+ * Storage that does not return zeroed memory, like malloc() below the zero page threshold, would
+ * make the put that grows the table zero all of it. The grown table is instead allocated when
+ * the table is 5/8 full and zeroed a few slots at a time on every put and remove, so that it is
+ * ready before the table is 3/4 full.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+public final class OpenAddressingLongMap<T> implements LongMap<T> {
+
+	static final long MAGIC = 0x4E4C4F4E474D4150L;
+
+	private static final long HEADER = 64;
+	private static final long MIN_CAPACITY = 8;
+	private static final long MIGRATE_STEPS = 16;
+	private static final long ZERO_SLOTS = 32;
+
+	private final LongMapStorage storage;
+	private final NativeStruct value;
+	private final long valueSize;
+	private final long keyLength;
+	private final long slotSize;
+	private final long header;
+
+	private Table table;
+	private Table old;
+	private long cursor;
+	private HeapArray<?> next;
+	private long zeroed;
+
+	/**
+	 * @param storage Memory for tables
+	 * @param capacity Amount of keys the map holds without growing
+	 * @param value Struct instance of values
+	 */
+	OpenAddressingLongMap(final LongMapStorage storage, final long capacity, final NativeStruct value)
+			throws IOException {
+		this.storage = storage;
+		this.value = value;
+		this.valueSize = value.getSize();
+		// tables are allocated for the value struct, so padding to its alignment aligns every value
+		long alignment = Math.max(8, value.getAlignment());
+		this.keyLength = alignment;
+		this.slotSize = alignment + ((valueSize + alignment - 1) & -alignment);
+		this.header = Math.max(HEADER, alignment);
+		HeapArray<?>[] existing = storage.existing();
+		if(existing.length == 0) {
+			table = create(tableCapacity(capacity));
+		} else {
+			table = open(existing[existing.length - 1]);
+			if(existing.length == 2) {
+				old = open(existing[0]);
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(final long key) {
+		long slot = find(table, key);
+		if(slot == 0 && old != null) {
+			slot = find(old, key);
+		}
+		if(slot == 0) {
+			return null;
+		}
+		value.address = slot + keyLength;
+		return (T) value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T put(final long key) {
+		migrate(MIGRATE_STEPS);
+		zero(ZERO_SLOTS * slotSize);
+		long slot = find(table, key);
+		if(slot == 0 && old != null) {
+			slot = find(old, key);
+		}
+		if(slot == 0) {
+			if((table.size() + 1) * 4 > table.capacity * 3) {
+				grow();
+			} else if((table.size() + 1) * 8 > table.capacity * 5) {
+				prepare();
+			}
+			slot = insert(table, key);
+		}
+		value.address = slot + keyLength;
+		return (T) value;
+	}
+
+	@Override
+	public boolean remove(final long key) {
+		migrate(MIGRATE_STEPS);
+		zero(ZERO_SLOTS * slotSize);
+		return remove(table, key) || (old != null && remove(old, key));
+	}
+
+	@Override
+	public long size() {
+		return table.size() + (old == null ? 0 : old.size());
+	}
+
+	/**
+	 * Finishes growing before freeing, so a file backed map is left in a single file.
+	 */
+	@Override
+	public void free() {
+		migrate(Long.MAX_VALUE);
+		table.region.free();
+		if(next != null) {
+			next.free();
+			next = null;
+		}
+	}
+
+	@Override
+	public void close() {
+		free();
+	}
+
+	private long find(final Table t, final long key) {
+		if(key == 0) {
+			return t.hasZeroKey() ? t.slot(t.capacity) : 0;
+		}
+		for(long i = hash(key) & t.mask; ; i = (i + 1) & t.mask) {
+			long k = UNSAFE.getLong(t.slot(i));
+			if(k == key) {
+				return t.slot(i);
+			}
+			if(k == 0) {
+				return 0;
+			}
+		}
+	}
+
+	private long insert(final Table t, final long key) {
+		t.size(t.size() + 1);
+		if(key == 0) {
+			t.hasZeroKey(true);
+			return t.slot(t.capacity);
+		}
+		long i = hash(key) & t.mask;
+		while(UNSAFE.getLong(t.slot(i)) != 0) {
+			i = (i + 1) & t.mask;
+		}
+		UNSAFE.putLong(t.slot(i), key);
+		return t.slot(i);
+	}
+
+	private boolean remove(final Table t, final long key) {
+		long slot = find(t, key);
+		if(slot == 0) {
+			return false;
+		}
+		if(key == 0) {
+			t.hasZeroKey(false);
+			UNSAFE.setMemory(slot, slotSize, (byte) 0);
+			t.size(t.size() - 1);
+		} else {
+			delete(t, (slot - t.slot(0)) / slotSize);
+		}
+		return true;
+	}
+
+	/*
+	 * Entries after the hole move back unless the hole is before their home slot.
+	 */
+	private void delete(final Table t, final long index) {
+		long hole = index;
+		for(long i = (hole + 1) & t.mask; ; i = (i + 1) & t.mask) {
+			long key = UNSAFE.getLong(t.slot(i));
+			if(key == 0) {
+				break;
+			}
+			long home = hash(key) & t.mask;
+			boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+			if(!stays) {
+				UNSAFE.copyMemory(t.slot(i), t.slot(hole), slotSize);
+				hole = i;
+			}
+		}
+		UNSAFE.setMemory(t.slot(hole), slotSize, (byte) 0);
+		t.size(t.size() - 1);
+	}
+
+	private void grow() {
+		migrate(Long.MAX_VALUE);
+		long capacity = table.capacity << 1;
+		Table grown;
+		if(next != null) {
+			zero(Long.MAX_VALUE);
+			grown = init(next, capacity);
+			next = null;
+		} else {
+			grown = create(capacity);
+		}
+		old = table;
+		cursor = 0;
+		table = grown;
+	}
+
+	/*
+	 * Allocates the grown table ahead of time when storage does not zero it. File backed storage
+	 * zeroes, so it never holds a third table.
+	 */
+	private void prepare() {
+		long length = length(table.capacity << 1);
+		if(next != null || old != null || storage.zeroes(length)) {
+			return;
+		}
+		next = allocate(table.capacity << 1);
+		zeroed = 0;
+	}
+
+	private void zero(final long bytes) {
+		if(next == null) {
+			return;
+		}
+		long n = Math.min(bytes, length(table.capacity << 1) - zeroed);
+		UNSAFE.setMemory(next.address() + zeroed, n, (byte) 0);
+		zeroed += n;
+	}
+
+	/*
+	 * Slots before the cursor stay empty: nothing is inserted to the old table and deleting
+	 * only moves entries back within a probe sequence, which ends at an empty slot.
+	 */
+	private void migrate(final long steps) {
+		for(long n = 0; old != null && n < steps; n++) {
+			if(cursor == old.capacity) {
+				if(old.hasZeroKey()) {
+					move(0, old.slot(old.capacity));
+				}
+				old.region.free();
+				old = null;
+				try {
+					storage.replaced();
+				} catch(IOException e) {
+					throw new IllegalStateException("Unable to replace grown table", e);
+				}
+				return;
+			}
+			long key = UNSAFE.getLong(old.slot(cursor));
+			if(key == 0) {
+				cursor++;
+			} else {
+				move(key, old.slot(cursor));
+				delete(old, cursor);
+			}
+		}
+	}
+
+	private void move(final long key, final long from) {
+		// a map unmapped while growing may have the key in both tables, the grown table wins
+		if(find(table, key) == 0) {
+			UNSAFE.copyMemory(from + keyLength, insert(table, key) + keyLength, slotSize - keyLength);
+		}
+	}
+
+	private Table create(final long capacity) {
+		HeapArray<?> region = allocate(capacity);
+		if(!storage.zeroes(length(capacity))) {
+			UNSAFE.setMemory(region.address(), length(capacity), (byte) 0);
+		}
+		return init(region, capacity);
+	}
+
+	private HeapArray<?> allocate(final long capacity) {
+		try {
+			return storage.allocate(length(capacity));
+		} catch(IOException e) {
+			OutOfMemoryError error = new OutOfMemoryError("Unable to allocate table of " + capacity + " slots");
+			error.initCause(e);
+			throw error;
+		}
+	}
+
+	/*
+	 * Writes the header of a zeroed table.
+	 */
+	private Table init(final HeapArray<?> region, final long capacity) {
+		long address = region.address();
+		UNSAFE.putLong(address + 8, capacity);
+		UNSAFE.putLong(address + 16, valueSize);
+		UNSAFE.putLong(address, MAGIC);
+		return new Table(region, capacity, header, slotSize);
+	}
+
+	private Table open(final HeapArray<?> region) {
+		long address = region.address();
+		if(UNSAFE.getLong(address) != MAGIC) {
+			throw new IllegalStateException("Not a map file");
+		}
+		if(UNSAFE.getLong(address + 16) != valueSize) {
+			throw new IllegalStateException("Map file has struct size " + UNSAFE.getLong(address + 16));
+		}
+		return new Table(region, UNSAFE.getLong(address + 8), header, slotSize);
+	}
+
+	private long length(final long capacity) {
+		return header + (capacity + 1) * slotSize;
+	}
+
+	private static long tableCapacity(final long capacity) {
+		long min = Math.max(MIN_CAPACITY, capacity + capacity / 3 + 1);
+		return Long.highestOneBit(min - 1) << 1;
+	}
+
+	private static long hash(final long key) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Table header accessors.
+	 */
+	private static final class Table {
+
+		final HeapArray<?> region;
+		final long capacity;
+		final long mask;
+		final long slots;
+		final long slotSize;
+
+		Table(final HeapArray<?> region, final long capacity, final long header, final long slotSize) {
+			this.region = region;
+			this.capacity = capacity;
+			this.mask = capacity - 1;
+			this.slots = region.address() + header;
+			this.slotSize = slotSize;
+		}
+
+		long slot(final long index) {
+			return slots + index * slotSize;
+		}
+
+		long size() {
+			return UNSAFE.getLong(region.address() + 24);
+		}
+
+		void size(final long size) {
+			UNSAFE.putLong(region.address() + 24, size);
+		}
+
+		boolean hasZeroKey() {
+			return UNSAFE.getByte(region.address() + 32) != 0;
+		}
+
+		void hasZeroKey(final boolean present) {
+			UNSAFE.putByte(region.address() + 32, (byte) (present ? 1 : 0));
+		}
+	}
+}
@@ -6,6 +6,9 @@ import static sun.misc.Unsafe.ARRAY_INT_BASE_OFFSET;
 import static sun.misc.Unsafe.ARRAY_LONG_BASE_OFFSET;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
 import sun.misc.Unsafe;
 
@@ -18,16 +21,26 @@ public enum PointerArithmetics {
 	INSTANCE;
 
 	static final Unsafe UNSAFE;
-	private static final long STRING_VALUE_OFFSET;
+	private static final long BUFFER_ADDRESS_OFFSET;
+	private static final Method INVOKE_CLEANER;
+	private static final Method CLEANER;
 
 	static {
 		try {
 			Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
 			theUnsafe.setAccessible(true);
 			UNSAFE = (Unsafe) theUnsafe.get(null);
-			STRING_VALUE_OFFSET = UNSAFE.objectFieldOffset(String.class.getDeclaredField("value"))
-					+ ARRAY_CHAR_BASE_OFFSET
-					+ 12; // TODO: is this constant?
+			BUFFER_ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+			Method invokeCleaner = null;
+			Method cleaner = null;
+			try {
+				// JDK 9+
+				invokeCleaner = Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch(NoSuchMethodException e) {
+				cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			}
+			INVOKE_CLEANER = invokeCleaner;
+			CLEANER = cleaner;
 		} catch(Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -98,7 +111,83 @@ public enum PointerArithmetics {
 		UNSAFE.copyMemory(longs, ARRAY_LONG_BASE_OFFSET, null, address, len << 3);
 	}
 	public final void setString(final long address, final String string, final long len) {
-		UNSAFE.copyMemory(string, STRING_VALUE_OFFSET, null, address, len << 1);
+		int i = 0;
+		for(; i < len && i < string.length(); i++) {
+			UNSAFE.putChar(address + (i << 1), string.charAt(i));
+		}
+		for(; i < len; i++) {
+			UNSAFE.putChar(address + (i << 1), (char) 0);
+		}
+	}
+
+	// direct buffers
+
+	/**
+	 * @param buffer Direct buffer
+	 * @return Address of the first byte of buffer
+	 */
+	final long address(final ByteBuffer buffer) {
+		return UNSAFE.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+	}
+
+	/**
+	 * Releases the memory of a direct buffer or unmaps a mapped buffer. The buffer must not
+	 * be a slice or a duplicate and it must not be used after calling this method.
+	 *
+	 * @param buffer Direct buffer
+	 */
+	final void free(final ByteBuffer buffer) {
+		try {
+			if(INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			} else {
+				Object cleaner = CLEANER.invoke(buffer);
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch(ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	// atomic
+
+	public final int getIntVolatile(final long address) {
+		return UNSAFE.getIntVolatile(null, address);
+	}
+	public final long getLongVolatile(final long address) {
+		return UNSAFE.getLongVolatile(null, address);
+	}
+	public final void setIntVolatile(final long address, final int value) {
+		UNSAFE.putIntVolatile(null, address, value);
+	}
+	public final void setLongVolatile(final long address, final long value) {
+		UNSAFE.putLongVolatile(null, address, value);
+	}
+	public final void setIntOrdered(final long address, final int value) {
+		UNSAFE.putOrderedInt(null, address, value);
+	}
+	public final void setLongOrdered(final long address, final long value) {
+		UNSAFE.putOrderedLong(null, address, value);
+	}
+	public final boolean compareAndSetInt(final long address, final int expect, final int update) {
+		return UNSAFE.compareAndSwapInt(null, address, expect, update);
+	}
+	public final boolean compareAndSetLong(final long address, final long expect, final long update) {
+		return UNSAFE.compareAndSwapLong(null, address, expect, update);
+	}
+	public final int getAndAddInt(final long address, final int delta) {
+		int value;
+		do {
+			value = UNSAFE.getIntVolatile(null, address);
+		} while(!UNSAFE.compareAndSwapInt(null, address, value, value + delta));
+		return value;
+	}
+	public final long getAndAddLong(final long address, final long delta) {
+		long value;
+		do {
+			value = UNSAFE.getLongVolatile(null, address);
+		} while(!UNSAFE.compareAndSwapLong(null, address, value, value + delta));
+		return value;
 	}
 
 	// C
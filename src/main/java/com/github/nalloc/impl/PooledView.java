@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import com.github.nalloc.View;
+
+/**
+ * {@link View} allocating single structs from a {@link StructPool}. Arrays of more than
+ * one struct are allocated from native heap.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+class PooledView<T> extends HeapView<T> {
+
+	private final StructPool pool;
+
+	PooledView(final NativeStruct struct, final long zeroPageThreshold, final StructPool pool) {
+		super(struct, zeroPageThreshold);
+		this.pool = pool;
+	}
+
+	/**
+	 * @return Pool for the calling thread
+	 */
+	StructPool pool() {
+		return pool;
+	}
+
+	@Override
+	public long malloc() {
+		return pool().allocate();
+	}
+
+	@Override
+	public long calloc(final long nmemb) {
+		if(nmemb != 1) {
+			return super.calloc(nmemb);
+		}
+		long address = pool().allocate();
+		UNSAFE.setMemory(address, msize, (byte) 0);
+		return address;
+	}
+
+	@Override
+	public void free(final long address) {
+		pool().free(address);
+	}
+
+	@Override
+	public void free(final long address, final long nmemb) {
+		if(nmemb != 1) {
+			super.free(address, nmemb);
+			return;
+		}
+		pool().free(address);
+	}
+}
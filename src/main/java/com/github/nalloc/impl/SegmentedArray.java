@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.github.nalloc.Array;
+
+/**
+ * {@link Array} containing fixed-sized structs in consecutive memory mapped buffers of a file.
+ * Each buffer holds 2^shift structs, the last one possibly less, so struct i is in buffer
+ * i >>> shift. Used for files larger than a single buffer when a single native mapping is not
+ * available.
+ *
+ * Structs don't cross buffers, but a range of structs and a slice can. Only slices within a
+ * buffer can be accessed as a ByteBuffer.
+ *
+ * @author Antti Laisi
+ */
+final class SegmentedArray<T> extends HeapArray<T> {
+
+	final File file;
+	final MapMode mode;
+	final ByteBuffer[] buffers;
+	final long[] segments;
+	final int shift;
+	final RandomAccessFile sync;
+	private final long mask;
+	private final long msize;
+	private boolean locked;
+
+	/**
+	 * @param file Mapped file
+	 * @param mode Map mode
+	 * @param buffers Mapped buffers in file order
+	 * @param shift Log2 of the amount of structs in a buffer
+	 * @param size Size of array
+	 * @param struct Struct instance
+	 * @param sync Mapped file kept open to flush the mapping, null for read-only and private mappings
+	 */
+	SegmentedArray(final File file, final MapMode mode, final ByteBuffer[] buffers, final int shift, final long size,
+			final NativeStruct struct, final RandomAccessFile sync) {
+		super(PointerArithmetics.INSTANCE.address(buffers[0]), size, struct);
+		this.file = file;
+		this.mode = mode;
+		this.buffers = buffers;
+		this.shift = shift;
+		this.sync = sync;
+		this.mask = (1L << shift) - 1;
+		this.msize = struct.getSize();
+		this.segments = new long[buffers.length];
+		for(int i = 0; i < buffers.length; i++) {
+			segments[i] = PointerArithmetics.INSTANCE.address(buffers[i]);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(final long index) {
+		struct.address = segments[(int) (index >>> shift)] + (index & mask) * msize;
+		return (T) struct;
+	}
+
+	@Override
+	long at(final long index) {
+		if(index == size && index > 0) {
+			// end of the last struct, which may be the end of a segment
+			return at(index - 1) + msize;
+		}
+		return segments[(int) (index >>> shift)] + (index & mask) * msize;
+	}
+
+	@Override
+	long run(final long index) {
+		return Math.min(size, ((index >>> shift) + 1) << shift) - index;
+	}
+
+	@Override
+	long runBefore(final long end) {
+		return end - (((end - 1) >>> shift) << shift);
+	}
+
+	@Override
+	public Array.Cursor<T> cursor() {
+		return new HeapArrayCursor<>(segments, shift, 0, 0, size, struct.clone());
+	}
+
+	@Override
+	void lock() throws IOException {
+		if(!locked) {
+			for(int i = 0; i < segments.length; i++) {
+				try {
+					MemoryLock.lock(segments[i], buffers[i].capacity());
+				} catch(IOException | RuntimeException e) {
+					unlock(i);
+					throw e;
+				}
+			}
+			locked = true;
+		}
+	}
+
+	@Override
+	void unlock() {
+		if(locked) {
+			unlock(segments.length);
+			locked = false;
+		}
+	}
+
+	private void unlock(final int count) {
+		for(int i = 0; i < count; i++) {
+			MemoryLock.unlock(segments[i], buffers[i].capacity());
+		}
+	}
+
+	@Override
+	public void free() {
+		unlock();
+		for(ByteBuffer buffer : buffers) {
+			PointerArithmetics.INSTANCE.free(buffer);
+		}
+		MappedMemory.close(sync);
+	}
+
+	@Override
+	public Array<T> clone() {
+		return new SegmentedArray<>(file, mode, buffers, shift, size, struct.clone(), sync);
+	}
+}
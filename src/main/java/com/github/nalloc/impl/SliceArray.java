@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.io.IOException;
+
+import com.github.nalloc.Array;
+
+/**
+ * {@link Array} over a range of another array. The slice shares memory with the sliced array,
+ * freeing a slice does not release memory. A slice of a {@link SegmentedArray} may cross
+ * segments, its structs are then addressed through the sliced array.
+ *
+ * @author Antti Laisi
+ */
+final class SliceArray<T> extends HeapArray<T> {
+
+	final HeapArray<T> root;
+	final long fromIndex;
+	private final boolean contiguous;
+	private boolean locked;
+
+	/**
+	 * @param parent Sliced array
+	 * @param fromIndex First struct of the slice in parent
+	 * @param size Size of slice
+	 * @param struct Struct instance
+	 */
+	SliceArray(final HeapArray<T> parent, final long fromIndex, final long size, final NativeStruct struct) {
+		super(parent.at(fromIndex), size, struct);
+		if(parent instanceof SliceArray) {
+			this.root = ((SliceArray<T>) parent).root;
+			this.fromIndex = ((SliceArray<T>) parent).fromIndex + fromIndex;
+		} else {
+			this.root = parent;
+			this.fromIndex = fromIndex;
+		}
+		this.contiguous = run(0) >= size;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(final long index) {
+		if(contiguous) {
+			return super.get(index);
+		}
+		struct.address = root.at(fromIndex + index);
+		return (T) struct;
+	}
+
+	@Override
+	long at(final long index) {
+		return root.at(fromIndex + index);
+	}
+
+	@Override
+	long run(final long index) {
+		return Math.min(size - index, root.run(fromIndex + index));
+	}
+
+	@Override
+	long runBefore(final long end) {
+		return Math.min(end, root.runBefore(fromIndex + end));
+	}
+
+	@Override
+	HeapArray<T> root() {
+		return root;
+	}
+
+	@Override
+	long rootIndex(final long index) {
+		return fromIndex + index;
+	}
+
+	@Override
+	public Array.Cursor<T> cursor() {
+		if(contiguous) {
+			return super.cursor();
+		}
+		SegmentedArray<T> segmented = (SegmentedArray<T>) root;
+		return new HeapArrayCursor<>(segmented.segments, segmented.shift, fromIndex, 0, size, struct.clone());
+	}
+
+	/*
+	 * A slice across segments locks the part of every segment it spans.
+	 */
+	@Override
+	void lock() throws IOException {
+		if(contiguous) {
+			super.lock();
+			return;
+		}
+		if(!locked) {
+			long index = 0;
+			try {
+				for(; index < size; index += run(index)) {
+					MemoryLock.lock(at(index), run(index) * struct.getSize());
+				}
+			} catch(IOException | RuntimeException e) {
+				unlock(index);
+				throw e;
+			}
+			locked = true;
+		}
+	}
+
+	@Override
+	void unlock() {
+		if(contiguous) {
+			super.unlock();
+		} else if(locked) {
+			unlock(size);
+			locked = false;
+		}
+	}
+
+	private void unlock(final long end) {
+		for(long index = 0; index < end; index += run(index)) {
+			MemoryLock.unlock(at(index), run(index) * struct.getSize());
+		}
+	}
+
+	@Override
+	public void free() {
+		/* memory is released by the sliced array */
+		unlock();
+	}
+
+	@Override
+	public Array<T> clone() {
+		return new SliceArray<>(root, fromIndex, size, struct.clone());
+	}
+}
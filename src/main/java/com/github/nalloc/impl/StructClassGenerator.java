@@ -25,6 +25,7 @@ import javassist.NotFoundException;
 import com.github.nalloc.Array;
 import com.github.nalloc.Struct;
 import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Layout;
 import com.github.nalloc.Struct.Type;
 
 /**
@@ -34,6 +35,8 @@ import com.github.nalloc.Struct.Type;
  */
 final class StructClassGenerator {
 
+	private static final String READ_ONLY = "throw new java.nio.ReadOnlyBufferException();";
+
 	private final ClassPool classes;
 
 	/**
@@ -53,9 +56,24 @@ final class StructClassGenerator {
 	 * @param definitionClass Interface class annotated with &#064;Struct
 	 * @return Implementing class
 	 */
-	@SuppressWarnings("unchecked")
 	final Class<? extends NativeStruct> generate(final Class<?> definitionClass) {
-		String className = definitionClass.getName() + "$GenStruct" + hashCode();
+		return generate(definitionClass, false);
+	}
+
+	/**
+	 * Generates a class implementing a struct interface for read-only memory. Setters of the
+	 * generated class throw {@link java.nio.ReadOnlyBufferException} without touching memory.
+	 *
+	 * @param definitionClass Interface class annotated with &#064;Struct
+	 * @return Implementing class
+	 */
+	final Class<? extends NativeStruct> generateReadOnly(final Class<?> definitionClass) {
+		return generate(definitionClass, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class<? extends NativeStruct> generate(final Class<?> definitionClass, final boolean readOnly) {
+		String className = definitionClass.getName() + (readOnly ? "$GenReadOnlyStruct" : "$GenStruct") + hashCode();
 
 		try {
 			return (Class<? extends NativeStruct>) Class.forName(className, false, definitionClass.getClassLoader());
@@ -69,15 +87,49 @@ final class StructClassGenerator {
 		}
 
 		try {
-			return generate(className, definitionClass, struct);
+			return generate(className, definitionClass, struct, readOnly);
 		} catch (NotFoundException | CannotCompileException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Finds a field of a struct interface.
+	 *
+	 * @param definitionClass Interface class annotated with &#064;Struct
+	 * @param name Field name
+	 * @return Field definition
+	 */
+	static Field field(final Class<?> definitionClass, final String name) {
+		for(Field field : definitionClass.getAnnotation(Struct.class).value()) {
+			if(field.name().equals(name)) {
+				return field;
+			}
+		}
+		throw new IllegalArgumentException("No field " + name + " in " + definitionClass.getName());
+	}
+
+	/**
+	 * Calculates the offset of a field from the start of a struct.
+	 *
+	 * @param definitionClass Interface class annotated with &#064;Struct
+	 * @param name Field name
+	 * @return Offset of the field in bytes
+	 */
+	final long offset(final Class<?> definitionClass, final String name) {
+		Struct struct = definitionClass.getAnnotation(Struct.class);
+		long[] offsets = offsets(struct);
+		for(int i = 0; i < struct.value().length; i++) {
+			if(struct.value()[i].name().equals(name)) {
+				return offsets[i];
+			}
+		}
+		throw new IllegalArgumentException("No field " + name + " in " + definitionClass.getName());
+	}
+
 	@SuppressWarnings("unchecked")
-	private Class<? extends NativeStruct> generate(final String className, final Class<?> definitionClass, final Struct struct)
-			throws NotFoundException, CannotCompileException {
+	private Class<? extends NativeStruct> generate(final String className, final Class<?> definitionClass, final Struct struct,
+			final boolean readOnly) throws NotFoundException, CannotCompileException {
 
 		CtClass definition = classes.get(definitionClass.getName());
 		definition.freeze();
@@ -88,15 +140,23 @@ final class StructClassGenerator {
 		CtClass generated = classes.makeClass(className, nativeStruct);
 		generated.addInterface(definition);
 
-		long offset = 0;
-		for(Field field : struct.value()) {
-			generateFieldAccessors(generated, struct, field, offset, definition);
-			offset += byteLength(struct, field);
+		long[] offsets = offsets(struct);
+		for(int i = 0; i < struct.value().length; i++) {
+			generateFieldAccessors(generated, struct, struct.value()[i], offsets[i], definition, readOnly);
 		}
 
-		generateGetSize(generated, struct, offset);
+		generateGetSize(generated, struct, offsets);
+		generateGetOffset(generated, struct, offsets);
+		generateGetAlignment(generated, struct);
+		if(struct.layout() == Layout.COLUMNAR) {
+			generateGetColumns(generated, struct);
+		}
+		if(readOnly) {
+			generated.addMethod(CtNewMethod.make("protected final boolean isReadOnly(){ return true; }", generated));
+		}
 
-		return generated.toClass(definitionClass.getClassLoader(), definitionClass.getProtectionDomain());
+		// defined next to the interface, uses MethodHandles.Lookup on JDK 9+ instead of ClassLoader.defineClass
+		return (Class<? extends NativeStruct>) generated.toClass(definitionClass);
 	}
 
 	/*
@@ -108,27 +168,108 @@ final class StructClassGenerator {
 	 *     }
 	 *   }
 	 */
-	private void generateGetSize(final CtClass generated, final Struct struct, final long finalOffset)
+	private void generateGetSize(final CtClass generated, final Struct struct, final long[] offsets)
 			throws CannotCompileException {
 
-		long size = finalOffset;
-		if(struct.pad() != 1 && finalOffset % struct.pad() != 0) {
-			size += struct.pad() - finalOffset % struct.pad();
+		generated.addMethod(CtNewMethod.make(String.format(
+				"public final long getSize(){ return %dL; }", size(struct, offsets)),
+				generated));
+	}
+
+	private long size(final Struct struct, final long[] offsets) {
+		long size = align(offsets[offsets.length - 1], alignment(struct));
+		if(struct.pad() != 1 && size % struct.pad() != 0) {
+			size += struct.pad() - size % struct.pad();
 		}
+		return size;
+	}
+
+	/*
+	 * Creates getOffset(String) method that returns row offsets of fields by name.
+	 *
+	 *   public class Example$GenStruct {
+	 *     public final long getOffset(String name) {
+	 *       if("id".equals(name)) return 0L;
+	 *       if("count".equals(name)) return 8L;
+	 *       return -1L;
+	 *     }
+	 *   }
+	 */
+	private void generateGetOffset(final CtClass generated, final Struct struct, final long[] offsets)
+			throws CannotCompileException {
+
+		StringBuilder conditions = new StringBuilder();
+		for(int i = 0; i < struct.value().length; i++) {
+			conditions.append(String.format("if(\"%s\".equals($1)) return %dL; ", struct.value()[i].name(), offsets[i]));
+		}
+		generated.addMethod(CtNewMethod.make(String.format(
+				"public final long getOffset(String name){ %sreturn -1L; }", conditions),
+				generated));
+	}
+
+	/*
+	 * Creates getAlignment() method that returns the alignment of struct.
+	 *
+	 *   public class Example$GenStruct {
+	 *     public final long getAlignment() {
+	 *       return 8L;
+	 *     }
+	 *   }
+	 */
+	private void generateGetAlignment(final CtClass generated, final Struct struct) throws CannotCompileException {
 		generated.addMethod(CtNewMethod.make(String.format(
-				"public final long getSize(){ return %dL; }", size),
+				"public final long getAlignment(){ return %dL; }", alignment(struct)),
 				generated));
 	}
 
+	/*
+	 * Creates getColumns() method that returns byte lengths of the fields of a columnar struct.
+	 *
+	 *   public class Example$GenStruct {
+	 *     private static final long[] _columns = new long[]{ 8L, 4L };
+	 *     protected final long[] getColumns() {
+	 *       return _columns;
+	 *     }
+	 *   }
+	 */
+	private void generateGetColumns(final CtClass generated, final Struct struct) throws CannotCompileException {
+		StringBuilder columns = new StringBuilder();
+		for(Field field : struct.value()) {
+			columns.append(columns.length() == 0 ? "" : ", ").append(byteLength(struct, field)).append('L');
+		}
+		generated.addField(CtField.make(String.format(
+				"private static final long[] _columns = new long[]{ %s };", columns), generated));
+		generated.addMethod(CtNewMethod.make(
+				"protected final long[] getColumns(){ return _columns; }", generated));
+	}
+
+	/*
+	 * Address expression of a field. Fields of a columnar struct are stored in columns of
+	 * struct.rows fields, the columnar address of a struct outside arrays is equal to the row address.
+	 *
+	 *   super.address + 123L
+	 *   super.address + super.rows * 123L + super.row * 8L
+	 */
+	private String address(final Struct struct, final Field field, final long offset) {
+		if(struct.layout() == Layout.COLUMNAR) {
+			return String.format("super.address + super.rows * %dL + super.row * %dL", offset, byteLength(struct, field));
+		}
+		return String.format("super.address + %dL", offset);
+	}
+
 	private void generateFieldAccessors(final CtClass generated, final Struct struct, final Field field, final long offset,
-			final CtClass definition) throws CannotCompileException, NotFoundException {
+			final CtClass definition, final boolean readOnly) throws CannotCompileException, NotFoundException {
 
+		String at = address(struct, field, offset);
+		if(field.type() == Type.STRUCT) {
+			checkNestedAtomicFields(struct, field, offset);
+		}
 		if(field.type() == Type.STRUCT && field.len() == 1) {
-			generateStructAccessor(generated, struct, field, offset);
+			generateStructAccessor(generated, struct, field, at, readOnly);
 		} else if(field.type() == Type.STRUCT) {
-			generateStructArrayAccessor(generated, struct, field, offset);
+			generateStructArrayAccessor(generated, struct, field, at, readOnly);
 		} else {
-			generateSimpleFieldAccessor(generated, struct, field, offset, definition);
+			generateSimpleFieldAccessor(generated, struct, field, offset, at, definition, readOnly);
 		}
 	}
 
@@ -143,17 +284,17 @@ final class StructClassGenerator {
 	 *     }
 	 *   }
 	 */
-	private void generateStructAccessor(final CtClass generated, final Struct struct, final Field field, final long offset)
-			throws CannotCompileException, NotFoundException {
+	private void generateStructAccessor(final CtClass generated, final Struct struct, final Field field, final String at,
+			final boolean readOnly) throws CannotCompileException, NotFoundException {
 
-		Class<?> nestedStruct = generate(field.struct());
+		Class<?> nestedStruct = generate(field.struct(), readOnly);
 
 		generated.addField(new CtField(classes.get(nestedStruct.getName()), "_" + field.name(), generated),
 				"new " + nestedStruct.getName() + "();");
 
 		generated.addMethod(CtNewMethod.make(String.format(
-				"public final %s %s(){ _%s.setAddress(super.address + %dL); return _%s; }",
-				field.struct().getName(), field.name(), field.name(), offset, field.name()
+				"public final %s %s(){ _%s.setAddress(%s); return _%s; }",
+				field.struct().getName(), field.name(), field.name(), at, field.name()
 			), generated));
 	}
 
@@ -168,18 +309,18 @@ final class StructClassGenerator {
 	 *     }
 	 *   }
 	 */
-	private void generateStructArrayAccessor(final CtClass generated, final Struct struct, final Field field, final long offset)
-			throws CannotCompileException, NotFoundException {
+	private void generateStructArrayAccessor(final CtClass generated, final Struct struct, final Field field, final String at,
+			final boolean readOnly) throws CannotCompileException, NotFoundException {
 
-		Class<?> nestedStruct = generate(field.struct());
+		Class<?> nestedStruct = generate(field.struct(), readOnly);
 
 		generated.addField(new CtField(classes.get(HeapArray.class.getName()), "_" + field.name(), generated),
 				String.format("new %s(0L, %dL, %s.create(%s.class))",
 						HeapArray.class.getName(), field.len(), NativeStruct.class.getName(), nestedStruct.getName()));
 
 		generated.addMethod(CtNewMethod.make(String.format(
-				"public final %s %s(){ _%s.address(super.address + %dL); return _%s; }",
-				Array.class.getName(), field.name(), field.name(), offset, field.name()),
+				"public final %s %s(){ _%s.address(%s); return _%s; }",
+				Array.class.getName(), field.name(), field.name(), at, field.name()),
 			generated));
 	}
 
@@ -194,142 +335,210 @@ final class StructClassGenerator {
 	 *       return POINTERS.setByte(super.address + 123L, value);
 	 *     }
 	 *   }
+	 *
+	 * Setters of read-only structs throw ReadOnlyBufferException.
 	 */
 	private void generateSimpleFieldAccessor(final CtClass generated, final Struct struct, final Field field, final long offset,
-			final CtClass definition) throws CannotCompileException, NotFoundException {
+			final String at, final CtClass definition, final boolean readOnly) throws CannotCompileException, NotFoundException {
 
 		String fieldClass = typeToClassName(field, definition);
 
 		generated.addMethod(CtNewMethod.make(String.format(
 				"public final %s %s(){ %s }",
-				fieldClass, field.name(), implementGet(struct, field, offset)
+				fieldClass, field.name(), implementGet(struct, field, at)
 			), generated));
 
 		generated.addMethod(CtNewMethod.make(String.format(
 				"public final void %s(%s o){ %s }",
-				field.name(), fieldClass, implementSet(struct, field, offset)
+				field.name(), fieldClass, readOnly ? READ_ONLY : implementSet(struct, field, at)
 			), generated));
 
+		if(field.atomic()) {
+			generateAtomicFieldAccessors(generated, struct, field, offset, at, readOnly);
+		}
 	}
 
-	private String implementGet(final Struct struct, final Field field, final long offset) {
+	/*
+	 * Creates atomic accessors for an INT or LONG field.
+	 *
+	 *   public class Example$GenStruct {
+	 *     public final long counterVolatile() {
+	 *       return POINTERS.getLongVolatile(super.address + 8L);
+	 *     }
+	 *     public final void counterVolatile(long value) {
+	 *       POINTERS.setLongVolatile(super.address + 8L, value);
+	 *     }
+	 *     public final void counterOrdered(long value) {
+	 *       POINTERS.setLongOrdered(super.address + 8L, value);
+	 *     }
+	 *     public final boolean counterCompareAndSet(long expect, long update) {
+	 *       return POINTERS.compareAndSetLong(super.address + 8L, expect, update);
+	 *     }
+	 *     public final long counterGetAndAdd(long delta) {
+	 *       return POINTERS.getAndAddLong(super.address + 8L, delta);
+	 *     }
+	 *   }
+	 */
+	private void generateAtomicFieldAccessors(final CtClass generated, final Struct struct, final Field field,
+			final long offset, final String at, final boolean readOnly) throws CannotCompileException {
+
+		if((field.type() != Type.INT && field.type() != Type.LONG) || field.len() != 1) {
+			throw new IllegalArgumentException("Only single INT and LONG fields can be atomic: " + field.name());
+		}
+		long length = typeByteLength(struct, field);
+		if(offset % length != 0) {
+			throw new IllegalArgumentException("Atomic field is not aligned to its size: " + field.name());
+		}
+		// in rows the field of struct i is at i * size + offset, columns are aligned by the offset
+		if(struct.layout() != Layout.COLUMNAR && size(struct, offsets(struct)) % length != 0) {
+			throw new IllegalArgumentException("Atomic field is not aligned to its size in arrays, struct size is not a multiple of "
+					+ length + ": " + field.name());
+		}
+		String type = field.type() == Type.INT ? "int" : "long";
+		String suffix = field.type() == Type.INT ? "Int" : "Long";
+
+		generated.addMethod(CtNewMethod.make(String.format(
+				"public final %s %sVolatile(){ return POINTERS.get%sVolatile(%s); }",
+				type, field.name(), suffix, at
+			), generated));
+		generated.addMethod(CtNewMethod.make(String.format(
+				"public final void %sVolatile(%s o){ %s }",
+				field.name(), type, readOnly ? READ_ONLY : String.format("POINTERS.set%sVolatile(%s, $1);", suffix, at)
+			), generated));
+		generated.addMethod(CtNewMethod.make(String.format(
+				"public final void %sOrdered(%s o){ %s }",
+				field.name(), type, readOnly ? READ_ONLY : String.format("POINTERS.set%sOrdered(%s, $1);", suffix, at)
+			), generated));
+		generated.addMethod(CtNewMethod.make(String.format(
+				"public final boolean %sCompareAndSet(%s e, %s u){ %s }",
+				field.name(), type, type, readOnly ? READ_ONLY
+						: String.format("return POINTERS.compareAndSet%s(%s, $1, $2);", suffix, at)
+			), generated));
+		generated.addMethod(CtNewMethod.make(String.format(
+				"public final %s %sGetAndAdd(%s d){ %s }",
+				type, field.name(), type, readOnly ? READ_ONLY
+						: String.format("return POINTERS.getAndAdd%s(%s, $1);", suffix, at)
+			), generated));
+	}
+
+	private String implementGet(final Struct struct, final Field field, final String at) {
 		if(field.type() == Type.BYTE) {
-			return implementGetByte(field, offset);
+			return implementGetByte(field, at);
 		}
 		if(field.type() == Type.CHAR) {
-			return implementGetChar(struct, field, offset);
+			return implementGetChar(struct, field, at);
 		}
 		if(field.type() == Type.INT) {
-			return implementGetInt(field, offset);
+			return implementGetInt(field, at);
 		}
 		if(field.type() == Type.LONG) {
-			return implementGetLong(field, offset);
+			return implementGetLong(field, at);
 		}
 		if(field.type() == Type.STRING) {
-			return implementGetString(struct, field, offset);
+			return implementGetString(struct, field, at);
 		}
 		throw new IllegalStateException();
 	}
 
-	private String implementGetByte(final Field field, final long offset) {
+	private String implementGetByte(final Field field, final String at) {
 		if(field.len() == 1) {
-			return String.format("return POINTERS.getByte(super.address + %dL);", offset);
+			return String.format("return POINTERS.getByte(%s);", at);
 		}
-		return String.format("return POINTERS.getBytes(super.address + %dL, %dL);", offset, field.len());
+		return String.format("return POINTERS.getBytes(%s, %dL);", at, field.len());
 	}
 
-	private String implementGetChar(final Struct struct, final Field field, final long offset) {
+	private String implementGetChar(final Struct struct, final Field field, final String at) {
 		if(struct.c() && field.len() == 1) {
-			return String.format("return POINTERS.getAnsiCChar(super.address + %dL);", offset);
+			return String.format("return POINTERS.getAnsiCChar(%s);", at);
 		}
 		if(struct.c()) {
-			return String.format("return POINTERS.getAnsiCChars(super.address + %dL, %dL);", offset, field.len());
+			return String.format("return POINTERS.getAnsiCChars(%s, %dL);", at, field.len());
 		}
 		if(field.len() == 1) {
-			return String.format("return POINTERS.getChar(super.address + %dL);", offset);
+			return String.format("return POINTERS.getChar(%s);", at);
 		}
-		return String.format("return POINTERS.getChars(super.address + %dL, %dL);", offset, field.len());
+		return String.format("return POINTERS.getChars(%s, %dL);", at, field.len());
 	}
 
-	private String implementGetInt(final Field field, final long offset) {
+	private String implementGetInt(final Field field, final String at) {
 		if(field.len() == 1) {
-			return String.format("return POINTERS.getInt(super.address + %dL);", offset);
+			return String.format("return POINTERS.getInt(%s);", at);
 		}
-		return String.format("return POINTERS.getInts(super.address + %dL, %dL);", offset, field.len());
+		return String.format("return POINTERS.getInts(%s, %dL);", at, field.len());
 	}
 
-	private String implementGetLong(final Field field, final long offset) {
+	private String implementGetLong(final Field field, final String at) {
 		if(field.len() == 1) {
-			return String.format("return POINTERS.getLong(super.address + %dL);", offset);
+			return String.format("return POINTERS.getLong(%s);", at);
 		}
-		return String.format("return POINTERS.getLongs(super.address + %dL, %dL);", offset, field.len());
+		return String.format("return POINTERS.getLongs(%s, %dL);", at, field.len());
 	}
 
-	private String implementGetString(final Struct struct, final Field field, final long offset) {
+	private String implementGetString(final Struct struct, final Field field, final String at) {
 		if(struct.c()) {
-			return String.format("return POINTERS.getAnsiCString(super.address + %dL, %dL);", offset, field.len());
+			return String.format("return POINTERS.getAnsiCString(%s, %dL);", at, field.len());
 		}
-		return String.format("return POINTERS.getString(super.address + %dL, %dL);", offset, field.len());
+		return String.format("return POINTERS.getString(%s, %dL);", at, field.len());
 	}
 
-	private String implementSet(final Struct struct, final Field field, final long offset) {
+	private String implementSet(final Struct struct, final Field field, final String at) {
 		if(field.type() == Type.BYTE) {
-			return implementSetByte(field, offset);
+			return implementSetByte(field, at);
 		}
 		if(field.type() == Type.CHAR) {
-			return implementSetChar(struct, field, offset);
+			return implementSetChar(struct, field, at);
 		}
 		if(field.type() == Type.INT) {
-			return implementSetInt(field, offset);
+			return implementSetInt(field, at);
 		}
 		if(field.type() == Type.LONG) {
-			return implementSetLong(field, offset);
+			return implementSetLong(field, at);
 		}
 		if(field.type() == Type.STRING) {
-			return implementSetString(struct, field, offset);
+			return implementSetString(struct, field, at);
 		}
 		throw new IllegalStateException();
 	}
 
-	private String implementSetByte(final Field field, final long offset) {
+	private String implementSetByte(final Field field, final String at) {
 		if(field.len() == 1) {
-			return String.format("return POINTERS.setByte(super.address + %dL, $1);", offset);
+			return String.format("return POINTERS.setByte(%s, $1);", at);
 		}
-		return String.format("return POINTERS.setBytes(super.address + %dL, $1, %dL);", offset, field.len());
+		return String.format("return POINTERS.setBytes(%s, $1, %dL);", at, field.len());
 	}
 
-	private String implementSetChar(final Struct struct, final Field field, final long offset) {
+	private String implementSetChar(final Struct struct, final Field field, final String at) {
 		if(struct.c() && field.len() == 1) {
-			return String.format("return POINTERS.setAnsiCChar(super.address + %dL, $1);", offset);
+			return String.format("return POINTERS.setAnsiCChar(%s, $1);", at);
 		}
 		if(struct.c()) {
-			return String.format("return POINTERS.setAnsiCChars(super.address + %dL, $1, %dL);", offset, field.len());
+			return String.format("return POINTERS.setAnsiCChars(%s, $1, %dL);", at, field.len());
 		}
 		if(field.len() == 1) {
-			return String.format("return POINTERS.setChar(super.address + %dL, $1);", offset);
+			return String.format("return POINTERS.setChar(%s, $1);", at);
 		}
-		return String.format("return POINTERS.setChars(super.address + %dL, $1, %dL);", offset, field.len());
+		return String.format("return POINTERS.setChars(%s, $1, %dL);", at, field.len());
 	}
 
-	private String implementSetInt(final Field field, final long offset) {
+	private String implementSetInt(final Field field, final String at) {
 		if(field.len() == 1) {
-			return String.format("return POINTERS.setInt(super.address + %dL, $1);", offset);
+			return String.format("return POINTERS.setInt(%s, $1);", at);
 		}
-		return String.format("return POINTERS.setInts(super.address + %dL, $1, %dL);", offset, field.len());
+		return String.format("return POINTERS.setInts(%s, $1, %dL);", at, field.len());
 	}
 
-	private String implementSetLong(final Field field, final long offset) {
+	private String implementSetLong(final Field field, final String at) {
 		if(field.len() == 1) {
-			return String.format("return POINTERS.setLong(super.address + %dL, $1);", offset);
+			return String.format("return POINTERS.setLong(%s, $1);", at);
 		}
-		return String.format("return POINTERS.setLongs(super.address + %dL, $1, %dL);", offset, field.len());
+		return String.format("return POINTERS.setLongs(%s, $1, %dL);", at, field.len());
 	}
 
-	private String implementSetString(final Struct struct, final Field field, final long offset) {
+	private String implementSetString(final Struct struct, final Field field, final String at) {
 		if(struct.c()) {
-			return String.format("return POINTERS.setAnsiCString(super.address + %dL, $1, %dL);", offset, field.len());
+			return String.format("return POINTERS.setAnsiCString(%s, $1, %dL);", at, field.len());
 		}
-		return String.format("return POINTERS.setString(super.address + %dL, $1, %dL);", offset, field.len());
+		return String.format("return POINTERS.setString(%s, $1, %dL);", at, field.len());
 	}
 
 	private String typeToClassName(final Field field, final CtClass definition) {
@@ -352,6 +561,41 @@ final class StructClassGenerator {
 		throw new IllegalStateException();
 	}
 
+	/*
+	 * Atomic fields of a nested struct are aligned to their size only if the nested struct is
+	 * at a multiple of it in every struct of an array, like atomic fields of the struct itself.
+	 */
+	private void checkNestedAtomicFields(final Struct struct, final Field field, final long offset) {
+		long length = atomicLength(field.struct());
+		if(length == 0) {
+			return;
+		}
+		if(offset % length != 0) {
+			throw new IllegalArgumentException("Nested struct with atomic fields is not aligned to " + length + " bytes: "
+					+ field.name());
+		}
+		if(struct.layout() != Layout.COLUMNAR && size(struct, offsets(struct)) % length != 0) {
+			throw new IllegalArgumentException("Nested struct with atomic fields is not aligned to " + length
+					+ " bytes in arrays, struct size is not a multiple of it: " + field.name());
+		}
+	}
+
+	/*
+	 * Size of the largest atomic field of a struct and its nested structs, 0 if there are none.
+	 */
+	private long atomicLength(final Class<?> definitionClass) {
+		Struct struct = definitionClass.getAnnotation(Struct.class);
+		long length = 0;
+		for(Field field : struct.value()) {
+			if(field.atomic()) {
+				length = Math.max(length, typeByteLength(struct, field));
+			} else if(field.type() == Type.STRUCT) {
+				length = Math.max(length, atomicLength(field.struct()));
+			}
+		}
+		return length;
+	}
+
 	private long typeByteLength(final Struct struct, final Field field) {
 		switch (field.type()) {
 		case BYTE:
@@ -374,4 +618,56 @@ final class StructClassGenerator {
 		return field.len() * typeByteLength(struct, field);
 	}
 
+	/*
+	 * Row offsets of fields followed by the end offset of the last field.
+	 */
+	private long[] offsets(final Struct struct) {
+		if(struct.layout() == Layout.COLUMNAR && alignment(struct) != 1) {
+			throw new IllegalArgumentException("Columnar structs can't be aligned");
+		}
+		Field[] fields = struct.value();
+		long[] offsets = new long[fields.length + 1];
+		long offset = 0;
+		for(int i = 0; i < fields.length; i++) {
+			offset = align(offset, alignment(struct, fields[i]));
+			offsets[i] = offset;
+			offset += byteLength(struct, fields[i]);
+		}
+		offsets[fields.length] = offset;
+		return offsets;
+	}
+
+	private long alignment(final Struct struct) {
+		checkAlignment(struct.align(), "Struct");
+		long alignment = Math.max(1, struct.align());
+		for(Field field : struct.value()) {
+			alignment = Math.max(alignment, alignment(struct, field));
+		}
+		return alignment;
+	}
+
+	private long alignment(final Struct struct, final Field field) {
+		checkAlignment(field.align(), field.name());
+		if(field.align() != 0) {
+			return field.align();
+		}
+		if(struct.align() == 0) {
+			return 1;
+		}
+		if(field.type() == Type.STRUCT) {
+			return NativeStruct.create(generate(field.struct())).getAlignment();
+		}
+		return typeByteLength(struct, field);
+	}
+
+	private static void checkAlignment(final int alignment, final String name) {
+		if(alignment < 0 || (alignment & (alignment - 1)) != 0) {
+			throw new IllegalArgumentException(name + " alignment is not a power of two: " + alignment);
+		}
+	}
+
+	private static long align(final long offset, final long alignment) {
+		return (offset + alignment - 1) / alignment * alignment;
+	}
+
 }
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+/**
+ * Fixed-size slot pool for a single struct type. Slots are carved from slabs of native heap
+ * and freed slots are kept in a singly linked free list that is stored in the freed memory
+ * itself: the first 8 bytes of a free slot hold the address of the next free slot.
+ * Slabs are never returned to the native heap.
+ *
+ * Pools are not thread safe.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+class StructPool {
+
+	final long slotSize;
+	private final long slabSize;
+
+	private long head;
+	private long cursor;
+	private long limit;
+
+	/**
+	 * @param structSize Size of a struct in bytes
+	 * @param slabSize Size of a single slab in bytes
+	 */
+	StructPool(final long structSize, final long slabSize) {
+		this.slotSize = Math.max(8, (structSize + 7) & -8L);
+		this.slabSize = Math.max(slotSize, slabSize - slabSize % slotSize);
+	}
+
+	/**
+	 * @return Address of an uninitialized slot
+	 */
+	long allocate() {
+		long address = head;
+		if(address == 0 && (address = reclaim()) == 0) {
+			if(cursor == limit) {
+				cursor = UNSAFE.allocateMemory(slabSize);
+				limit = cursor + slabSize;
+			}
+			address = cursor;
+			cursor += slotSize;
+			return address;
+		}
+		head = UNSAFE.getLong(address);
+		return address;
+	}
+
+	/**
+	 * Called when the free list is empty, before a new slot is carved from a slab.
+	 *
+	 * @return Head of a list of free slots linked like the free list, 0 if none
+	 */
+	long reclaim() {
+		return 0;
+	}
+
+	/**
+	 * Returns a slot to the free list.
+	 *
+	 * @param address Slot address returned by {@link #allocate()}
+	 */
+	void free(final long address) {
+		UNSAFE.putLong(address, head);
+		head = address;
+	}
+}
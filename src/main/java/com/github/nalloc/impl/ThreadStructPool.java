@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link StructPool} owned by a single thread. The owner allocates and frees without
+ * synchronization. Slots freed by other threads are pushed to a lock-free stack that is
+ * linked through the freed memory, the owner takes the whole stack at once when its own
+ * free list runs empty. The pool of a terminated owner can be adopted by another thread.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+final class ThreadStructPool extends StructPool {
+
+	private volatile Thread owner;
+	private final AtomicLong remote = new AtomicLong();
+
+	/**
+	 * @param structSize Size of a struct in bytes
+	 * @param slabSize Size of a single slab in bytes
+	 * @param owner Thread allowed to allocate from this pool
+	 */
+	ThreadStructPool(final long structSize, final long slabSize, final Thread owner) {
+		super(structSize, slabSize);
+		this.owner = owner;
+	}
+
+	@Override
+	void free(final long address) {
+		if(Thread.currentThread() == owner) {
+			super.free(address);
+			return;
+		}
+		long head;
+		do {
+			head = remote.get();
+			UNSAFE.putLong(address, head);
+		} while(!remote.compareAndSet(head, address));
+	}
+
+	/**
+	 * Makes the calling thread the owner if the owner has terminated. Callers synchronize, so
+	 * that a pool is adopted by a single thread.
+	 *
+	 * @return true if the pool was adopted
+	 */
+	boolean adopt() {
+		if(owner.isAlive()) {
+			return false;
+		}
+		owner = Thread.currentThread();
+		return true;
+	}
+
+	@Override
+	long reclaim() {
+		return remote.get() == 0 ? 0 : remote.getAndSet(0);
+	}
+}
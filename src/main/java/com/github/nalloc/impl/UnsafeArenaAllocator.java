@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.nalloc.ArenaAllocator;
+import com.github.nalloc.Array;
+import com.github.nalloc.LongMap;
+import com.github.nalloc.Pointer;
+import com.github.nalloc.View;
+
+/**
+ * {@link ArenaAllocator} implementation using sun.misc.Unsafe. Structs are carved from chunks
+ * with a bump pointer, every allocation is aligned to 8 bytes or to the alignment of the struct if larger.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+public class UnsafeArenaAllocator implements ArenaAllocator {
+
+	private static final long ALIGNMENT = 8;
+
+	private final Map<Class<?>, Class<? extends NativeStruct>> implementations = new HashMap<>();
+	private final long chunkSize;
+
+	private long[] chunks = new long[8];
+	private long[] chunkSizes = new long[8];
+	private int chunkCount;
+	private int chunk = -1;
+
+	private long cursor;
+	private long limit;
+
+	public UnsafeArenaAllocator(final long chunkSize, final Class<?>... structTypes) {
+		if(chunkSize < ALIGNMENT) {
+			throw new IllegalArgumentException("chunkSize must be >= " + ALIGNMENT);
+		}
+		this.chunkSize = align(chunkSize);
+		StructClassGenerator generator = new StructClassGenerator(structTypes);
+		for(Class<?> struct : structTypes) {
+			implementations.put(struct, generator.generate(struct));
+		}
+	}
+
+	@Override
+	public <T> Pointer<T> malloc(final Class<T> structType) {
+		NativeStruct struct = NativeStruct.create(implementations.get(structType));
+		struct.address = bump(struct.getSize(), struct.getAlignment());
+		return new ArenaPointer<T>(struct);
+	}
+
+	@Override
+	public <T> Array<T> calloc(final long nmemb, final Class<T> structType) {
+		if(nmemb < 1) {
+			throw new IllegalArgumentException("nmemb must be > 0");
+		}
+		HeapArray<T> array = malloc(nmemb, structType);
+		UNSAFE.setMemory(array.address(), nmemb * array.struct.getSize(), (byte) 0);
+		return array;
+	}
+
+	/**
+	 * Allocates an array without zeroing it, for callers that initialize the memory themselves.
+	 */
+	<T> HeapArray<T> malloc(final long nmemb, final Class<T> structType) {
+		if(nmemb < 1) {
+			throw new IllegalArgumentException("nmemb must be > 0");
+		}
+		NativeStruct struct = NativeStruct.create(implementations.get(structType));
+		long address = bump(nmemb * struct.getSize(), struct.getAlignment());
+		return ColumnarArray.layout(new ArenaArray<T>(address, nmemb, struct));
+	}
+
+	/**
+	 * Grows the array in place if it was the latest allocation and the chunk has room,
+	 * otherwise the content is copied to a new region. The old region is released on reset.
+	 */
+	@Override
+	public <T> Array<T> realloc(final Array<T> pointer, final long nmemb) {
+		NativeStruct struct = (NativeStruct) pointer.deref();
+		HeapArray<T> array = ColumnarArray.memory((HeapArray<T>) pointer);
+		long oldLength = align(array.size * struct.getSize());
+		long newLength = align(nmemb * struct.getSize());
+		if(nmemb < array.size) {
+			ColumnarArray.relayout(array.address(), struct.getColumns(), array.size, nmemb);
+		}
+		if(array.address() + oldLength == cursor && array.address() + newLength <= limit) {
+			cursor = array.address() + newLength;
+		} else if(newLength > oldLength) {
+			long address = bump(newLength, struct.getAlignment());
+			UNSAFE.copyMemory(array.address(), address, oldLength);
+			array.address(address);
+		}
+		if(nmemb > array.size) {
+			ColumnarArray.relayout(array.address(), struct.getColumns(), array.size, nmemb);
+		}
+		array.size = nmemb;
+		ColumnarArray.reallocated((HeapArray<T>) pointer);
+		struct.address = array.address();
+		return pointer;
+	}
+
+	@Override
+	public <T> View<T> view(final Class<T> structType) {
+		return new NativeView<T>(NativeStruct.create(implementations.get(structType))) {
+			@Override
+			public long malloc() {
+				return bump(msize);
+			}
+			@Override
+			public long calloc(final long nmemb) {
+				if(nmemb < 1) {
+					throw new IllegalArgumentException("nmemb must be > 0");
+				}
+				long address = bump(nmemb * msize);
+				UNSAFE.setMemory(address, nmemb * msize, (byte) 0);
+				return address;
+			}
+			@Override
+			public void free(final long address, final long nmemb) {
+				/* released by the arena */
+			}
+		};
+	}
+
+	@Override
+	public void lock(final Array<?> structs) {
+		throw new UnsupportedOperationException("Arena chunks are shared by many arrays and can't be locked per array");
+	}
+
+	@Override
+	public long locked() {
+		return MemoryLock.locked();
+	}
+
+	@Override
+	public <T> LongMap<T> longMap(final long capacity, final Class<T> structType) {
+		// arena chunks are reused after reset and never zeroed by the kernel
+		return HeapLongMapStorage.longMap(this, capacity, structType, NativeStruct.create(implementations.get(structType)),
+				Long.MAX_VALUE);
+	}
+
+	@Override
+	public void reset() {
+		int retained = 0;
+		for(int i = 0; i < chunkCount; i++) {
+			if(chunkSizes[i] == chunkSize) {
+				chunks[retained] = chunks[i];
+				chunkSizes[retained++] = chunkSize;
+			} else {
+				UNSAFE.freeMemory(chunks[i]);
+			}
+		}
+		chunkCount = retained;
+		chunk = -1;
+		cursor = limit = 0;
+	}
+
+	@Override
+	public void close() {
+		for(int i = 0; i < chunkCount; i++) {
+			UNSAFE.freeMemory(chunks[i]);
+		}
+		chunkCount = 0;
+		chunk = -1;
+		cursor = limit = 0;
+	}
+
+	/*
+	 * Reserves room for aligning the address when alignment is larger than the arena alignment.
+	 */
+	private long bump(final long size, final long alignment) {
+		if(alignment <= ALIGNMENT) {
+			return bump(size);
+		}
+		long address = bump(size + alignment - ALIGNMENT);
+		return (address + alignment - 1) & -alignment;
+	}
+
+	private long bump(final long size) {
+		long length = align(size);
+		if(length > chunkSize) {
+			// dedicated chunk is inserted before the current one, bumping continues where it was
+			long address = addChunk(length, chunk < 0 ? 0 : chunk);
+			chunk++;
+			return address;
+		}
+		if(cursor + length > limit) {
+			nextChunk();
+		}
+		long address = cursor;
+		cursor += length;
+		return address;
+	}
+
+	private void nextChunk() {
+		chunk++;
+		if(chunk == chunkCount) {
+			addChunk(chunkSize, chunk);
+		}
+		cursor = chunks[chunk];
+		limit = cursor + chunkSizes[chunk];
+	}
+
+	private long addChunk(final long size, final int index) {
+		if(chunkCount == chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunkCount << 1);
+			chunkSizes = Arrays.copyOf(chunkSizes, chunkCount << 1);
+		}
+		System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+		System.arraycopy(chunkSizes, index, chunkSizes, index + 1, chunkCount - index);
+		chunks[index] = UNSAFE.allocateMemory(size);
+		chunkSizes[index] = size;
+		chunkCount++;
+		return chunks[index];
+	}
+
+	private static long align(final long size) {
+		return (size + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
+
+import com.github.nalloc.FieldScan;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Type;
+
+/**
+ * {@link FieldScan} reading a field with {@link sun.misc.Unsafe}. The field of struct i is at
+ * start + i * stride, where stride is the struct size in rows and the field size in columns.
+ *
+ * Consecutive values, columns and rows of a single field, are scanned in chunks with int loop
+ * counters, C2 unrolls and vectorizes int counted loops better than loops over long addresses.
+ * Other rows are scanned with the same loop as accessor calls, stepping the address by the
+ * struct size, as the chunked loop over strided values was slower for them. Row layouts of
+ * segmented mappings are scanned segment by segment. The jdk.incubator.vector API is not used,
+ * the library targets Java 7.
+ *
+ * @author Antti Laisi
+ */
+@SuppressWarnings("restriction")
+public class UnsafeFieldScan implements FieldScan {
+
+	private static final long CHUNK = 1 << 20;
+
+	private final HeapArray<?> array;
+	private final long offset;
+	private final long width;
+	private final long msize;
+	private final boolean columnar;
+	private final boolean packed;
+
+	public UnsafeFieldScan(final HeapArray<?> array, final String field) {
+		Class<?> definition = definition(array.struct.getClass());
+		if(definition == null) {
+			throw new IllegalArgumentException(array.struct.getClass().getName() + " implements no @Struct interface");
+		}
+		Field scanned = StructClassGenerator.field(definition, field);
+		if((scanned.type() != Type.INT && scanned.type() != Type.LONG) || scanned.len() != 1) {
+			throw new IllegalArgumentException("Only single INT and LONG fields can be scanned: " + field);
+		}
+		this.array = array;
+		this.offset = array.struct.getOffset(field);
+		this.width = scanned.type() == Type.INT ? 4 : 8;
+		this.msize = array.struct.getSize();
+		this.columnar = array.struct.getColumns() != null;
+		this.packed = columnar || msize == width;
+	}
+
+	@Override
+	public long sum(final long fromIndex, final long toIndex) {
+		checkRange(fromIndex, toIndex);
+		long sum = 0;
+		for(long index = fromIndex; index < toIndex;) {
+			long n = run(index, toIndex);
+			sum += sumRun(start(index), n);
+			index += n;
+		}
+		return sum;
+	}
+
+	@Override
+	public long min(final long fromIndex, final long toIndex) {
+		checkRange(fromIndex, toIndex);
+		long min = Long.MAX_VALUE;
+		for(long index = fromIndex; index < toIndex;) {
+			long n = run(index, toIndex);
+			min = Math.min(min, minRun(start(index), n));
+			index += n;
+		}
+		return min;
+	}
+
+	@Override
+	public long max(final long fromIndex, final long toIndex) {
+		checkRange(fromIndex, toIndex);
+		long max = Long.MIN_VALUE;
+		for(long index = fromIndex; index < toIndex;) {
+			long n = run(index, toIndex);
+			max = Math.max(max, maxRun(start(index), n));
+			index += n;
+		}
+		return max;
+	}
+
+	@Override
+	public long count(final long fromIndex, final long toIndex, final long low, final long high) {
+		checkRange(fromIndex, toIndex);
+		long count = 0;
+		for(long index = fromIndex; index < toIndex;) {
+			long n = run(index, toIndex);
+			count += countRun(start(index), n, low, high);
+			index += n;
+		}
+		return count;
+	}
+
+	private long sumRun(long address, final long length) {
+		long sum = 0;
+		if(!packed) {
+			long end = address + length * msize;
+			if(width == 8) {
+				for(; address < end; address += msize) {
+					sum += UNSAFE.getLong(address);
+				}
+			} else {
+				for(; address < end; address += msize) {
+					sum += UNSAFE.getInt(address);
+				}
+			}
+			return sum;
+		}
+		for(long n = length; n > 0; n -= CHUNK) {
+			int chunk = (int) Math.min(n, CHUNK);
+			if(width == 8) {
+				for(int i = 0; i < chunk; i++) {
+					sum += UNSAFE.getLong(address + ((long) i << 3));
+				}
+			} else {
+				for(int i = 0; i < chunk; i++) {
+					sum += UNSAFE.getInt(address + ((long) i << 2));
+				}
+			}
+			address += chunk * width;
+		}
+		return sum;
+	}
+
+	private long minRun(long address, final long length) {
+		long min = Long.MAX_VALUE;
+		if(!packed) {
+			long end = address + length * msize;
+			if(width == 8) {
+				for(; address < end; address += msize) {
+					min = Math.min(min, UNSAFE.getLong(address));
+				}
+			} else {
+				for(; address < end; address += msize) {
+					min = Math.min(min, UNSAFE.getInt(address));
+				}
+			}
+			return min;
+		}
+		for(long n = length; n > 0; n -= CHUNK) {
+			int chunk = (int) Math.min(n, CHUNK);
+			if(width == 8) {
+				for(int i = 0; i < chunk; i++) {
+					min = Math.min(min, UNSAFE.getLong(address + ((long) i << 3)));
+				}
+			} else {
+				for(int i = 0; i < chunk; i++) {
+					min = Math.min(min, UNSAFE.getInt(address + ((long) i << 2)));
+				}
+			}
+			address += chunk * width;
+		}
+		return min;
+	}
+
+	private long maxRun(long address, final long length) {
+		long max = Long.MIN_VALUE;
+		if(!packed) {
+			long end = address + length * msize;
+			if(width == 8) {
+				for(; address < end; address += msize) {
+					max = Math.max(max, UNSAFE.getLong(address));
+				}
+			} else {
+				for(; address < end; address += msize) {
+					max = Math.max(max, UNSAFE.getInt(address));
+				}
+			}
+			return max;
+		}
+		for(long n = length; n > 0; n -= CHUNK) {
+			int chunk = (int) Math.min(n, CHUNK);
+			if(width == 8) {
+				for(int i = 0; i < chunk; i++) {
+					max = Math.max(max, UNSAFE.getLong(address + ((long) i << 3)));
+				}
+			} else {
+				for(int i = 0; i < chunk; i++) {
+					max = Math.max(max, UNSAFE.getInt(address + ((long) i << 2)));
+				}
+			}
+			address += chunk * width;
+		}
+		return max;
+	}
+
+	private long countRun(long address, final long length, final long low, final long high) {
+		long count = 0;
+		if(!packed) {
+			long end = address + length * msize;
+			if(width == 8) {
+				for(; address < end; address += msize) {
+					long value = UNSAFE.getLong(address);
+					count += value >= low && value <= high ? 1 : 0;
+				}
+			} else {
+				for(; address < end; address += msize) {
+					long value = UNSAFE.getInt(address);
+					count += value >= low && value <= high ? 1 : 0;
+				}
+			}
+			return count;
+		}
+		for(long n = length; n > 0; n -= CHUNK) {
+			int chunk = (int) Math.min(n, CHUNK);
+			if(width == 8) {
+				for(int i = 0; i < chunk; i++) {
+					long value = UNSAFE.getLong(address + ((long) i << 3));
+					count += value >= low && value <= high ? 1 : 0;
+				}
+			} else {
+				for(int i = 0; i < chunk; i++) {
+					long value = UNSAFE.getInt(address + ((long) i << 2));
+					count += value >= low && value <= high ? 1 : 0;
+				}
+			}
+			address += chunk * width;
+		}
+		return count;
+	}
+
+	/*
+	 * The @Struct interface may be implemented by a superclass or extended by another interface.
+	 */
+	private static Class<?> definition(final Class<?> type) {
+		if(type == null) {
+			return null;
+		}
+		if(type.isInterface() && type.isAnnotationPresent(Struct.class)) {
+			return type;
+		}
+		for(Class<?> implemented : type.getInterfaces()) {
+			Class<?> definition = definition(implemented);
+			if(definition != null) {
+				return definition;
+			}
+		}
+		return definition(type.getSuperclass());
+	}
+
+	/*
+	 * Structs of a row layout are contiguous only within a segment of a segmented mapping.
+	 */
+	private long run(final long index, final long toIndex) {
+		return columnar ? toIndex - index : Math.min(toIndex - index, array.run(index));
+	}
+
+	private long start(final long index) {
+		if(columnar) {
+			return array.address() + array.size * offset + index * width;
+		}
+		return array.at(index) + offset;
+	}
+
+	private void checkRange(final long fromIndex, final long toIndex) {
+		if(fromIndex < 0 || fromIndex > toIndex || toIndex > array.size) {
+			throw new IllegalArgumentException("Invalid range " + fromIndex + "-" + toIndex);
+		}
+	}
+}
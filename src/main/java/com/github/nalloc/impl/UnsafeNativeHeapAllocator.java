@@ -16,24 +16,46 @@ package com.github.nalloc.impl;
 
 import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.github.nalloc.Array;
+import com.github.nalloc.LongMap;
 import com.github.nalloc.NativeHeapAllocator;
 import com.github.nalloc.Pointer;
+import com.github.nalloc.View;
 
 /**
  * {@link NativeHeapAllocator} implementation using sun.misc.Unsafe.
  *
+ * Arrays of at least zeroPageThreshold bytes are allocated from private anonymous mappings
+ * of pages that the kernel zeroes on first touch, so calloc() does not write the memory from
+ * Java. Zeroed mappings are used only when JNA is available. Arrays of structs aligned to more
+ * than 16 bytes are always allocated from zeroed mappings when available, so that they start at
+ * a page boundary. Otherwise their allocation is padded and aligned like in an arena.
+ *
  * @author Antti Laisi
  */
 @SuppressWarnings("restriction")
 public class UnsafeNativeHeapAllocator implements NativeHeapAllocator {
 
-	private final Map<Class<?>, Class<? extends NativeStruct>> implementations = new HashMap<>();
+	/**
+	 * Default minimum length of arrays in bytes allocated from kernel zeroed pages.
+	 */
+	public static final long DEFAULT_ZERO_PAGE_THRESHOLD = 64L << 20;
+
+	private static final long MALLOC_ALIGNMENT = 16;
+
+	protected final Map<Class<?>, Class<? extends NativeStruct>> implementations = new HashMap<>();
+	protected final long zeroPageThreshold;
 
 	public UnsafeNativeHeapAllocator(final Class<?>... structTypes) {
+		this(DEFAULT_ZERO_PAGE_THRESHOLD, structTypes);
+	}
+
+	public UnsafeNativeHeapAllocator(final long zeroPageThreshold, final Class<?>... structTypes) {
+		this.zeroPageThreshold = zeroPageThreshold;
 		StructClassGenerator generator = new StructClassGenerator(structTypes);
 		for(Class<?> struct : structTypes) {
 			implementations.put(struct, generator.generate(struct));
@@ -53,19 +75,153 @@ public class UnsafeNativeHeapAllocator implements NativeHeapAllocator {
 			throw new IllegalArgumentException("nmemb must be > 0");
 		}
 		NativeStruct struct = NativeStruct.create(implementations.get(structType));
-		long address = UNSAFE.allocateMemory(nmemb * struct.getSize());
-		UNSAFE.setMemory(address, nmemb * struct.getSize(), (byte) 0);
-		return new HeapArray<T>(address, nmemb, struct);
+		long length = nmemb * struct.getSize();
+		// malloc aligns to 16 bytes, page aligned zeroed mappings are used for larger alignments
+		long threshold = struct.getAlignment() > MALLOC_ALIGNMENT ? 0 : zeroPageThreshold;
+		if(isZeroPage(length, threshold)) {
+			return ColumnarArray.layout(new ZeroPageArray<T>(mapZeroed(length), nmemb, length, struct));
+		}
+		if(struct.getAlignment() > MALLOC_ALIGNMENT) {
+			return callocAligned(nmemb, struct);
+		}
+		return ColumnarArray.layout(new HeapArray<T>(callocMemory(length, threshold), nmemb, struct));
+	}
+
+	/**
+	 * Allocates an array without zeroing it, for callers that initialize the memory themselves.
+	 * The memory is always from the C heap, never from kernel zeroed pages.
+	 */
+	<T> HeapArray<T> malloc(final long nmemb, final Class<T> structType) {
+		if(nmemb < 1) {
+			throw new IllegalArgumentException("nmemb must be > 0");
+		}
+		NativeStruct struct = NativeStruct.create(implementations.get(structType));
+		if(struct.getAlignment() > MALLOC_ALIGNMENT) {
+			return ColumnarArray.layout(UnsafeNativeHeapAllocator.<T> mallocAligned(nmemb, struct));
+		}
+		return ColumnarArray.layout(new HeapArray<T>(UNSAFE.allocateMemory(nmemb * struct.getSize()), nmemb, struct));
 	}
 
 	@Override
 	public <T> Array<T> realloc(final Array<T> pointer, final long nmemb) {
 		NativeStruct struct = (NativeStruct) pointer.deref();
-		HeapArray<T> array = (HeapArray<T>) pointer;
-		array.address(UNSAFE.reallocateMemory(struct.address, nmemb * struct.getSize()));
+		HeapArray<T> array = ColumnarArray.memory((HeapArray<T>) pointer);
+		array.unlock();
+		if(nmemb < array.size) {
+			ColumnarArray.relayout(array.address(), struct.getColumns(), array.size, nmemb);
+		}
+		if(array instanceof ZeroPageArray) {
+			// zeroed pages exist only with JNA, so they can always be moved without copying
+			ZeroPageArray<T> mapped = (ZeroPageArray<T>) array;
+			long length = nmemb * struct.getSize();
+			try {
+				mapped.address(MappedMemory.remapZeroed(mapped.address(), mapped.length, length));
+			} catch(IOException e) {
+				OutOfMemoryError error = new OutOfMemoryError("Unable to remap " + length + " zeroed bytes");
+				error.initCause(e);
+				throw error;
+			}
+			mapped.length = length;
+		} else if(array instanceof AlignedArray) {
+			// realloc may move the memory to a different offset from the alignment
+			AlignedArray<T> aligned = (AlignedArray<T>) array;
+			long length = nmemb * struct.getSize();
+			long base = UNSAFE.allocateMemory(length + struct.getAlignment() - MALLOC_ALIGNMENT);
+			long address = align(base, struct.getAlignment());
+			UNSAFE.copyMemory(aligned.address(), address, Math.min(length, aligned.size * struct.getSize()));
+			UNSAFE.freeMemory(aligned.base);
+			aligned.base = base;
+			aligned.address(address);
+		} else {
+			array.address(UNSAFE.reallocateMemory(array.address(), nmemb * struct.getSize()));
+		}
+		if(nmemb > array.size) {
+			ColumnarArray.relayout(array.address(), struct.getColumns(), array.size, nmemb);
+		}
 		array.size = nmemb;
+		ColumnarArray.reallocated((HeapArray<T>) pointer);
 		struct.address = array.address();
 		return pointer;
 	}
 
+	@Override
+	public <T> View<T> view(final Class<T> structType) {
+		return new HeapView<T>(NativeStruct.create(implementations.get(structType)), zeroPageThreshold);
+	}
+
+	@Override
+	public <T> LongMap<T> longMap(final long capacity, final Class<T> structType) {
+		return HeapLongMapStorage.longMap(this, capacity, structType, NativeStruct.create(implementations.get(structType)),
+				zeroPageThreshold);
+	}
+
+	@Override
+	public void lock(final Array<?> structs) throws IOException {
+		((HeapArray<?>) structs).lock();
+	}
+
+	@Override
+	public long locked() {
+		return MemoryLock.locked();
+	}
+
+	/**
+	 * @return true if length bytes are allocated from kernel zeroed pages. The result depends only
+	 * on the arguments, so {@link #freeMemory(long, long, long)} frees with the allocating function.
+	 */
+	static boolean isZeroPage(final long length, final long zeroPageThreshold) {
+		return length >= zeroPageThreshold && MappedMemory.isZeroedAvailable();
+	}
+
+	/**
+	 * Allocates length bytes of zeroed memory. Memory must be freed with {@link #freeMemory(long, long, long)}.
+	 */
+	static long callocMemory(final long length, final long zeroPageThreshold) {
+		if(isZeroPage(length, zeroPageThreshold)) {
+			return mapZeroed(length);
+		}
+		long address = UNSAFE.allocateMemory(length);
+		UNSAFE.setMemory(address, length, (byte) 0);
+		return address;
+	}
+
+	/**
+	 * Frees memory allocated with {@link #callocMemory(long, long)}.
+	 */
+	static void freeMemory(final long address, final long length, final long zeroPageThreshold) {
+		if(isZeroPage(length, zeroPageThreshold)) {
+			MappedMemory.unmapZeroed(address, length);
+		} else {
+			UNSAFE.freeMemory(address);
+		}
+	}
+
+	/**
+	 * Allocates a zeroed array of structs aligned to more than 16 bytes from the C heap.
+	 */
+	static <T> AlignedArray<T> callocAligned(final long nmemb, final NativeStruct struct) {
+		AlignedArray<T> array = mallocAligned(nmemb, struct);
+		UNSAFE.setMemory(array.address(), nmemb * struct.getSize(), (byte) 0);
+		return array;
+	}
+
+	private static <T> AlignedArray<T> mallocAligned(final long nmemb, final NativeStruct struct) {
+		long base = UNSAFE.allocateMemory(nmemb * struct.getSize() + struct.getAlignment() - MALLOC_ALIGNMENT);
+		return new AlignedArray<T>(base, align(base, struct.getAlignment()), nmemb, struct);
+	}
+
+	private static long align(final long address, final long alignment) {
+		return (address + alignment - 1) & -alignment;
+	}
+
+	private static long mapZeroed(final long length) {
+		try {
+			return MappedMemory.mapZeroed(length);
+		} catch(IOException e) {
+			OutOfMemoryError error = new OutOfMemoryError("Unable to map " + length + " zeroed bytes");
+			error.initCause(e);
+			throw error;
+		}
+	}
+
 }
@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Pointer;
+import com.github.nalloc.View;
+
+/**
+ * {@link NativeHeapAllocator} implementation that serves malloc() from per struct type pools.
+ * Freed structs are reused by subsequent malloc() calls of the same type without calling
+ * the native heap. Arrays are allocated from the native heap.
+ *
+ * Pooled allocators are not thread safe.
+ *
+ * @author Antti Laisi
+ */
+public class UnsafePooledAllocator extends UnsafeNativeHeapAllocator {
+
+	private final Map<Class<?>, StructPool> pools = new HashMap<>();
+
+	public UnsafePooledAllocator(final long slabSize, final Class<?>... structTypes) {
+		super(structTypes);
+		for(Class<?> struct : structTypes) {
+			pools.put(struct, new StructPool(NativeStruct.create(implementations.get(struct)).getSize(), slabSize));
+		}
+	}
+
+	@Override
+	public <T> Pointer<T> malloc(final Class<T> structType) {
+		StructPool pool = pools.get(structType);
+		NativeStruct struct = NativeStruct.create(implementations.get(structType));
+		struct.address = pool.allocate();
+		return new PooledPointer<T>(struct, pool);
+	}
+
+	@Override
+	public <T> View<T> view(final Class<T> structType) {
+		return new PooledView<T>(NativeStruct.create(implementations.get(structType)), zeroPageThreshold, pools.get(structType));
+	}
+
+}
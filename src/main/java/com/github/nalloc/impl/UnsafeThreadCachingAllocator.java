@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Pointer;
+import com.github.nalloc.View;
+
+/**
+ * Thread safe {@link NativeHeapAllocator} implementation that gives every thread its own
+ * pool of preallocated slots per struct type. Malloc and free on the allocating thread never
+ * synchronize, structs freed by another thread are handed back to the allocating thread
+ * through a lock-free stack. Arrays are allocated from the native heap.
+ *
+ * Slabs are never returned to the native heap. When a thread terminates its pools, with the
+ * structs freed to them, are adopted by the next threads that allocate the struct types.
+ * Structs freed through a {@link View} are returned to the pool of the freeing thread.
+ *
+ * @author Antti Laisi
+ */
+public class UnsafeThreadCachingAllocator extends UnsafeNativeHeapAllocator {
+
+	private final Map<Class<?>, Integer> indexes = new HashMap<>();
+	private final long[] sizes;
+	private final long slabSize;
+	private final ThreadLocal<ThreadStructPool[]> pools;
+	private final List<List<ThreadStructPool>> created = new ArrayList<>();
+
+	public UnsafeThreadCachingAllocator(final long slabSize, final Class<?>... structTypes) {
+		super(structTypes);
+		this.slabSize = slabSize;
+		sizes = new long[structTypes.length];
+		for(int i = 0; i < structTypes.length; i++) {
+			indexes.put(structTypes[i], i);
+			sizes[i] = NativeStruct.create(implementations.get(structTypes[i])).getSize();
+			created.add(new ArrayList<ThreadStructPool>());
+		}
+		pools = new ThreadLocal<ThreadStructPool[]>() {
+			@Override
+			protected ThreadStructPool[] initialValue() {
+				return new ThreadStructPool[sizes.length];
+			}
+		};
+	}
+
+	@Override
+	public <T> Pointer<T> malloc(final Class<T> structType) {
+		ThreadStructPool pool = pool(indexes.get(structType));
+		NativeStruct struct = NativeStruct.create(implementations.get(structType));
+		struct.address = pool.allocate();
+		return new PooledPointer<T>(struct, pool);
+	}
+
+	@Override
+	public <T> View<T> view(final Class<T> structType) {
+		final int index = indexes.get(structType);
+		return new PooledView<T>(NativeStruct.create(implementations.get(structType)), zeroPageThreshold, null) {
+			@Override
+			StructPool pool() {
+				return UnsafeThreadCachingAllocator.this.pool(index);
+			}
+		};
+	}
+
+	private ThreadStructPool pool(final int index) {
+		ThreadStructPool[] local = pools.get();
+		ThreadStructPool pool = local[index];
+		if(pool == null) {
+			pool = local[index] = adoptOrCreate(index);
+		}
+		return pool;
+	}
+
+	/*
+	 * Runs once per thread and struct type, pools are only kept per live thread.
+	 */
+	private ThreadStructPool adoptOrCreate(final int index) {
+		synchronized(created) {
+			List<ThreadStructPool> list = created.get(index);
+			for(ThreadStructPool pool : list) {
+				if(pool.adopt()) {
+					return pool;
+				}
+			}
+			ThreadStructPool pool = new ThreadStructPool(sizes[index], slabSize, Thread.currentThread());
+			list.add(pool);
+			return pool;
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import com.github.nalloc.Array;
+
+/**
+ * {@link Array} in a private anonymous mapping of kernel zeroed pages. Pages are committed
+ * on first touch and returned to the kernel when the array is freed.
+ *
+ * @author Antti Laisi
+ */
+final class ZeroPageArray<T> extends HeapArray<T> {
+
+	long length;
+
+	/**
+	 * @param address Mapping address
+	 * @param size Size of array
+	 * @param length Mapping length in bytes
+	 * @param struct Struct instance
+	 */
+	ZeroPageArray(final long address, final long size, final long length, final NativeStruct struct) {
+		super(address, size, struct);
+		this.length = length;
+	}
+
+	@Override
+	public void free() {
+		unlock();
+		MappedMemory.unmapZeroed(address(), length);
+	}
+
+	@Override
+	public Array<T> clone() {
+		return new ZeroPageArray<>(address(), size, length, struct.clone());
+	}
+}
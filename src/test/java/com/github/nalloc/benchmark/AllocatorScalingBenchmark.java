@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Pointer;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Type;
+
+/**
+ * JMH benchmark for malloc/free throughput of native heap allocators. Running main() from
+ * the test classpath measures 1, 2, 4, ... threads up to the count given as argument.
+ *
+ * @author Antti Laisi
+ */
+@State(Scope.Benchmark)
+public class AllocatorScalingBenchmark {
+
+	@Param({"libc", "threadCaching"})
+	String allocator;
+
+	NativeHeapAllocator heap;
+
+	@Setup
+	public void setup() {
+		heap = "libc".equals(allocator)
+				? NativeHeapAllocator.Factory.create(Order.class)
+				: NativeHeapAllocator.Factory.createThreadCaching(1 << 20, Order.class);
+	}
+
+	@Benchmark
+	public long mallocFree() {
+		Pointer<Order> ptr = heap.malloc(Order.class);
+		ptr.deref().id(1);
+		long address = ptr.address();
+		ptr.free();
+		return address;
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		for(int threads = 1; threads <= maxThreads; threads <<= 1) {
+			new Runner(new OptionsBuilder()
+					.include(AllocatorScalingBenchmark.class.getSimpleName())
+					.threads(threads)
+					.forks(1)
+					.build()).run();
+		}
+	}
+
+	@Struct({
+		@Field(name="id", type=Type.LONG),
+		@Field(name="price", type=Type.LONG),
+		@Field(name="quantity", type=Type.INT) })
+	public static interface Order {
+		long id();
+		void id(final long id);
+		long price();
+		void price(final long price);
+		int quantity();
+		void quantity(final int quantity);
+	}
+}
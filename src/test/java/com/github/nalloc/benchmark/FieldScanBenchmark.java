@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.FieldScan;
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Layout;
+import com.github.nalloc.Struct.Type;
+
+/**
+ * JMH benchmark for summing a LONG field of 10 million 64 byte structs. Compares a loop of
+ * accessor calls to {@link FieldScan} over arrays stored in rows and in columns.
+ *
+ * @author Antti Laisi
+ */
+@State(Scope.Thread)
+public class FieldScanBenchmark {
+
+	static final long SIZE = 10000000;
+
+	@Param({"ROW", "COLUMNAR"})
+	Layout layout;
+
+	Array<Quote> rows;
+	Array<ColumnarQuote> columns;
+	FieldScan scan;
+
+	@Setup
+	public void setup() {
+		NativeHeapAllocator allocator = NativeHeapAllocator.Factory.create(Quote.class, ColumnarQuote.class);
+		if(layout == Layout.ROW) {
+			rows = allocator.calloc(SIZE, Quote.class);
+			for(long i = 0; i < SIZE; i++) {
+				rows.get(i).price(i);
+			}
+			scan = FieldScan.Factory.create(rows, "price");
+		} else {
+			columns = allocator.calloc(SIZE, ColumnarQuote.class);
+			for(long i = 0; i < SIZE; i++) {
+				columns.get(i).price(i);
+			}
+			scan = FieldScan.Factory.create(columns, "price");
+		}
+	}
+
+	@TearDown
+	public void teardown() {
+		if(rows != null) {
+			rows.free();
+		}
+		if(columns != null) {
+			columns.free();
+		}
+	}
+
+	@Benchmark
+	public long accessorLoop() {
+		long sum = 0;
+		if(rows != null) {
+			for(long i = 0; i < SIZE; i++) {
+				sum += rows.get(i).price();
+			}
+		} else {
+			for(long i = 0; i < SIZE; i++) {
+				sum += columns.get(i).price();
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long fieldScan() {
+		return scan.sum(0, SIZE);
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(FieldScanBenchmark.class.getSimpleName())
+				.forks(1)
+				.build()).run();
+	}
+
+	@Struct({
+		@Field(name="price", type=Type.LONG),
+		@Field(name="symbol", type=Type.STRING, len=28) })
+	public static interface Quote {
+		long price();
+		void price(final long price);
+	}
+
+	@Struct(layout=Layout.COLUMNAR, value={
+		@Field(name="price", type=Type.LONG),
+		@Field(name="symbol", type=Type.STRING, len=28) })
+	public static interface ColumnarQuote {
+		long price();
+		void price(final long price);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Type;
+import com.github.nalloc.impl.DirectBufferMmapAllocator;
+
+/**
+ * JMH benchmark for random reads from mapped files. The same 1.5GB file is mapped with a single
+ * direct buffer and in three segments of 512MB, which is how files larger than 2GB are mapped
+ * when a single native mapping is not available. Both read from the same indexes spread over
+ * the whole file.
+ *
+ * @author Antti Laisi
+ */
+@State(Scope.Thread)
+public class MmapRandomAccessBenchmark {
+
+	static final long SIZE = (3L << 29) / 8;
+
+	@Param({"buffer", "segmented"})
+	String mapping;
+
+	File file;
+	Array<Entry> array;
+	long[] indexes = new long[1 << 16];
+	int next;
+
+	@Setup
+	public void setup() throws IOException {
+		file = File.createTempFile(getClass().getSimpleName(), ".map");
+		MmapAllocator allocator = mapping.equals("buffer") ? MmapAllocator.Factory.create(Entry.class)
+				: new DirectBufferMmapAllocator(1L << 29, Entry.class);
+		array = allocator.mmap(file, SIZE, Entry.class);
+		Random random = new Random(1);
+		for(int i = 0; i < indexes.length; i++) {
+			indexes[i] = (random.nextLong() & Long.MAX_VALUE) % SIZE;
+			array.get(indexes[i]).value(i);
+		}
+	}
+
+	@TearDown
+	public void teardown() {
+		array.free();
+		file.delete();
+	}
+
+	@Benchmark
+	public long randomGet() {
+		return array.get(indexes[next++ & (indexes.length - 1)]).value();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(MmapRandomAccessBenchmark.class.getSimpleName())
+				.forks(1)
+				.build()).run();
+	}
+
+	@Struct({
+		@Field(name="value", type=Type.LONG) })
+	public static interface Entry {
+		long value();
+		void value(final long value);
+	}
+}
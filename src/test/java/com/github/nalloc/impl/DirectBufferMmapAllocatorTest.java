@@ -15,21 +15,27 @@
 package com.github.nalloc.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
 
 import org.junit.After;
 import org.junit.Test;
 
 import com.github.nalloc.Array;
 import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.MmapAllocator.Advice;
 import com.github.nalloc.Struct;
 import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Layout;
 import com.github.nalloc.Struct.Type;
 
 /**
@@ -39,7 +45,7 @@ import com.github.nalloc.Struct.Type;
  */
 public class DirectBufferMmapAllocatorTest {
 
-	final MmapAllocator allocator = MmapAllocator.Factory.create(MyMappedStruct.class);
+	final MmapAllocator allocator = MmapAllocator.Factory.create(MyMappedStruct.class, MyColumns.class);
 	File file;
 
 	/* Aayush
@@ -99,6 +105,255 @@ public class DirectBufferMmapAllocatorTest {
 		}
 	}
 
+	/* Aayush
+	This method maps a file with space for 2 structs, writes to the second struct, and remaps the file with space for 100 structs. It then checks that the file grew, that the old value is in the new array, and that a value written through the new array can also be read through the old array.
+	*/
+	@Test
+	public void shouldRemapFileToGrowArray() throws IOException {
+		try(Array<MyMappedStruct> array = allocator.mmap(file(), 2, MyMappedStruct.class)) {
+			array.get(1).id(1);
+			try(Array<MyMappedStruct> grown = allocator.remap(array, 100)) {
+				assertEquals(100, grown.size());
+				assertEquals(100 * grown.deref().getSize(), file.length());
+				assertEquals(1, grown.get(1).id());
+				assertEquals(0, grown.get(99).id());
+
+				grown.get(0).id(2);
+				assertEquals(2, array.get(0).id());
+			}
+		}
+	}
+
+	/* Aayush
+	This method tries to remap an anonymous mapping, which fails because there is no file to grow.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectRemappingAnonymousArray() throws IOException {
+		try(Array<MyMappedStruct> array = allocator.mmap(10, MyMappedStruct.class)) {
+			allocator.remap(array, 20);
+		}
+	}
+
+	/* Aayush
+	This method writes to two structs of a mapped file, flushes one struct and then the whole array, and checks that reading the file returns the written values.
+	*/
+	@Test
+	public void shouldForceArrayToFile() throws IOException {
+		try(Array<MyMappedStruct> array = allocator.mmap(file(), 1000, MyMappedStruct.class)) {
+			array.get(1).id(11);
+			array.get(999).id(999);
+			allocator.force(array, 1, 2);
+			allocator.force(array);
+
+			try(RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+				ByteBuffer bytes = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+				raf.getChannel().read(bytes, 8);
+				assertEquals(11, bytes.getLong(0));
+			}
+		}
+	}
+
+	/* Aayush
+	This method maps a file read-only and as a private mapping, deletes the file, and flushes both arrays. Nothing is written back from them, so flushing must not open or create the file again.
+	*/
+	@Test
+	public void shouldForceReadOnlyAndPrivateMappingsWithoutOpeningFile() throws IOException {
+		allocator.mmap(file(), 10, MyMappedStruct.class).free();
+		try(Array<MyMappedStruct> readOnly = allocator.mmapReadOnly(file, MyMappedStruct.class);
+				Array<MyMappedStruct> copy = allocator.mmapPrivate(file, MyMappedStruct.class)) {
+			assertTrue(file.delete());
+			copy.get(1).id(1);
+			allocator.force(readOnly, 1, 2);
+			allocator.force(copy, 1, 2);
+			allocator.force(copy);
+			assertFalse(file.exists());
+		}
+	}
+
+	/* Aayush
+	This method gives every kind of advice for a range of a mapped file and checks that the structs keep their values, also after the pages have been dropped with DONT_NEED.
+	*/
+	@Test
+	public void shouldKeepContentAfterAdvice() throws IOException {
+		try(Array<MyMappedStruct> array = allocator.mmap(file(), 10000, MyMappedStruct.class)) {
+			array.get(5000).id(5);
+			for(Advice advice : Advice.values()) {
+				allocator.advise(array, 0, 10000, advice);
+			}
+			assertEquals(5, array.get(5000).id());
+		}
+	}
+
+	/* Aayush
+	This method touches the pages of a mapped file and of an anonymous mapping with 4 threads and checks that the values written before are unchanged.
+	*/
+	@Test
+	public void shouldTouchPagesWithoutChangingContent() throws IOException {
+		try(Array<MyMappedStruct> mapped = allocator.mmap(file(), 10000, MyMappedStruct.class);
+				Array<MyMappedStruct> anonymous = allocator.mmap(10000, MyMappedStruct.class)) {
+			mapped.get(9999).id(1);
+			anonymous.get(3).id(2);
+			allocator.touch(mapped, 0, 10000, 4);
+			allocator.touch(anonymous, 3, 9000, 4);
+			allocator.touch(anonymous, 10, 10, 4);
+
+			assertEquals(1, mapped.get(9999).id());
+			assertEquals(2, anonymous.get(3).id());
+		}
+	}
+
+	/* Aayush
+	This method touches an anonymous mapping from an interrupted thread. The touch waits for all of its threads before returning, so the array can be freed right after, and the thread stays interrupted.
+	*/
+	@Test
+	public void shouldFinishTouchingWhenInterrupted() {
+		try(Array<MyMappedStruct> anonymous = allocator.mmap(100000, MyMappedStruct.class)) {
+			anonymous.get(99999).id(3);
+			Thread.currentThread().interrupt();
+			allocator.touch(anonymous, 0, 100000, 4);
+			assertTrue(Thread.interrupted());
+			assertEquals(3, anonymous.get(99999).id());
+		}
+	}
+
+	/* Aayush
+	This method pins a mapped file in memory and checks that the pinned bytes are counted until the array is freed.
+	*/
+	@Test
+	public void shouldLockMappedArrayUntilFree() throws IOException {
+		long locked = allocator.locked();
+		Array<MyMappedStruct> array = allocator.mmap(file(), 1000, MyMappedStruct.class);
+		allocator.lock(array);
+		allocator.lock(array);
+		assertTrue(allocator.locked() > locked);
+		array.get(999).id(1);
+		array.free();
+		assertEquals(locked, allocator.locked());
+	}
+
+	/* Aayush
+	This method writes 10 structs to a file and maps the file again for reading only. It checks that the values can be read, that the whole file is mapped and that writing a value fails.
+	*/
+	@Test(expected=ReadOnlyBufferException.class)
+	public void shouldMapFileReadOnly() throws IOException {
+		try(Array<MyMappedStruct> array = allocator.mmap(file(), 10, MyMappedStruct.class)) {
+			array.get(9).id(9);
+		}
+		try(Array<MyMappedStruct> array = allocator.mmapReadOnly(file, MyMappedStruct.class)) {
+			assertEquals(10, array.size());
+			assertEquals(9, array.get(9).id());
+			assertTrue(allocator.toBytes(array).isReadOnly());
+			array.get(9).id(1);
+		}
+	}
+
+	/* Aayush
+	This method maps a file for reading only and tries to clear a struct, which fails.
+	*/
+	@Test(expected=ReadOnlyBufferException.class)
+	public void shouldRejectClearingReadOnlyArray() throws IOException {
+		allocator.mmap(file(), 1, MyMappedStruct.class).free();
+		try(Array<MyMappedStruct> array = allocator.mmapReadOnly(file, MyMappedStruct.class)) {
+			array.clear(0);
+		}
+	}
+
+	/* Aayush
+	This method maps a file for reading only and remaps it after another mapping has grown the file. Remapping past the end of the file fails because a read-only mapping never grows the file.
+	*/
+	@Test(expected=IOException.class)
+	public void shouldRemapReadOnlyArrayUpToFileLength() throws IOException {
+		allocator.mmap(file(), 1, MyMappedStruct.class).free();
+		try(Array<MyMappedStruct> array = allocator.mmapReadOnly(file, MyMappedStruct.class)) {
+			Array<MyMappedStruct> writer = allocator.mmap(file, 5, MyMappedStruct.class);
+			writer.get(4).id(4);
+			writer.free();
+			try(Array<MyMappedStruct> remapped = allocator.remap(array, 5)) {
+				assertEquals(4, remapped.get(4).id());
+			}
+			allocator.remap(array, 6);
+		}
+	}
+
+	/* Aayush
+	This method writes a struct to a file and maps the file as a private copy. It changes the struct in the copy and checks that a shared mapping of the same file still sees the old value, also after the copy is freed.
+	*/
+	@Test
+	public void shouldNotWritePrivateMappingToFile() throws IOException {
+		try(Array<MyMappedStruct> shared = allocator.mmap(file(), 10, MyMappedStruct.class)) {
+			shared.get(5).id(5);
+			Array<MyMappedStruct> copy = allocator.mmapPrivate(file, MyMappedStruct.class);
+			assertEquals(10, copy.size());
+			assertEquals(5, copy.get(5).id());
+			copy.get(5).id(6);
+			assertEquals(6, copy.get(5).id());
+			assertEquals(5, shared.get(5).id());
+			allocator.force(copy);
+			copy.free();
+			assertEquals(5, shared.get(5).id());
+		}
+	}
+
+	/* Aayush
+	This method changes a struct of a private copy of a file and advises that the pages of the copy are not needed. It checks that the change is kept, because dropping the copied pages would bring back the content of the file.
+	*/
+	@Test
+	public void shouldKeepPrivateChangesAfterDontNeed() throws IOException {
+		allocator.mmap(file(), 10000, MyMappedStruct.class).free();
+		try(Array<MyMappedStruct> copy = allocator.mmapPrivate(file, MyMappedStruct.class)) {
+			copy.get(5000).id(6);
+			allocator.advise(copy, 0, 10000, Advice.DONT_NEED);
+			allocator.advise(copy.slice(0, 10000), 0, 10000, Advice.DONT_NEED);
+			assertEquals(6, copy.get(5000).id());
+		}
+	}
+
+	/* Aayush
+	This method tries to remap a private copy of a file, which fails because the changes of the copy would be lost.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectRemappingPrivateArray() throws IOException {
+		allocator.mmap(file(), 1, MyMappedStruct.class).free();
+		try(Array<MyMappedStruct> array = allocator.mmapPrivate(file, MyMappedStruct.class)) {
+			allocator.remap(array, 2);
+		}
+	}
+
+	/* Aayush
+	This method maps 10 structs, takes a slice of structs 3 to 5 and converts the slice into a byte buffer. It checks that the buffer covers only the two structs of the slice and that the slice can be flushed to the file.
+	*/
+	@Test
+	public void shouldAccessSliceAsByteBuffer() throws IOException {
+		try(Array<MyMappedStruct> array = allocator.mmap(file(), 10, MyMappedStruct.class)) {
+			array.get(4).id(4);
+			Array<MyMappedStruct> slice = array.slice(3, 5);
+			ByteBuffer buffer = allocator.toBytes(slice);
+
+			assertEquals(16, buffer.remaining());
+			assertEquals(4, buffer.getLong(8));
+			buffer.putLong(0, 3);
+			assertEquals(3, array.get(3).id());
+			allocator.force(slice);
+		}
+	}
+
+	/* Aayush
+	This method tries to flush an anonymous mapping, which fails because there is no file.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectForcingAnonymousArray() throws IOException {
+		try(Array<MyMappedStruct> array = allocator.mmap(10, MyMappedStruct.class)) {
+			allocator.force(array, 0, 1);
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectForcingRangeOutsideArray() throws IOException {
+		try(Array<MyMappedStruct> array = allocator.mmap(file(), 10, MyMappedStruct.class)) {
+			allocator.force(array, 5, 11);
+		}
+	}
+
 	@Test(expected=IllegalArgumentException.class)
 	public void shouldRejectCastingIndirectBuffer() throws IOException {
 		allocator.mmap(ByteBuffer.allocate(8), MyMappedStruct.class);
@@ -109,6 +364,27 @@ public class DirectBufferMmapAllocatorTest {
 		allocator.mmap(ByteBuffer.allocateDirect(8), MyMappedStruct.class);
 	}
 
+	/* Aayush
+	This method writes 4 columnar structs to a file and reopens it with the same size, which keeps the values. Reopening it as 8 structs fails, because the columns after the first would be read from the wrong offsets.
+	*/
+	@Test
+	public void shouldRejectReopeningColumnarFileWithDifferentSize() throws IOException {
+		try(Array<MyColumns> array = allocator.mmap(file(), 4, MyColumns.class)) {
+			for(int i = 0; i < 4; i++) {
+				array.get(i).count(100 + i);
+			}
+		}
+		try(Array<MyColumns> array = allocator.mmap(file, 4, MyColumns.class)) {
+			assertEquals(101, array.get(1).count());
+		}
+		try {
+			allocator.mmap(file, 8, MyColumns.class);
+			fail();
+		} catch(IllegalStateException e) {
+			assertEquals(4 * 12, file.length());
+		}
+	}
+
 	/* Aayush
 	This method deletes file if the object's value is not null.
 	*/
@@ -133,4 +409,15 @@ public class DirectBufferMmapAllocatorTest {
 		void id(final long id);
 		long getSize();
 	}
+
+	/* Aayush
+	This method creates the struct named MyColumns whose fields are stored in columns.
+	*/
+	@Struct(layout=Layout.COLUMNAR, value={
+		@Field(name="id", type=Type.LONG),
+		@Field(name="count", type=Type.INT) })
+	static interface MyColumns {
+		int count();
+		void count(final int count);
+	}
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.Flusher;
+import com.github.nalloc.MmapAllocator;
+
+/**
+ * Unit tests for {@link GroupCommitFlusher}.
+ *
+ * @author Antti Laisi
+ */
+public class GroupCommitFlusherTest {
+
+	final MmapAllocator allocator = MmapAllocator.Factory.create(Val.class);
+	File file;
+
+	/* Aayush
+	This method has 8 threads each write 100 structs and wait for a flush of every struct, and checks that every flush completes.
+	*/
+	@Test
+	public void shouldCompleteFlushesFromManyWriters() throws Exception {
+		final int writers = 8;
+		final int count = 100;
+		try(final Array<Val> array = allocator.mmap(file(), writers * count, Val.class);
+				final Flusher flusher = allocator.flusher(array)) {
+			ExecutorService executor = Executors.newFixedThreadPool(writers);
+			try {
+				List<Future<Void>> results = new ArrayList<>();
+				for(int w = 0; w < writers; w++) {
+					final int first = w * count;
+					final Array<Val> own = array.clone();
+					results.add(executor.submit(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							for(int i = first; i < first + count; i++) {
+								own.get(i).val(i);
+								flusher.flush(i, i + 1).get();
+							}
+							return null;
+						}
+					}));
+				}
+				for(Future<Void> result : results) {
+					result.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/* Aayush
+	This method requests a flush and closes the flusher right away, checking that the flush is still completed.
+	*/
+	@Test
+	public void shouldCompletePendingFlushOnClose() throws IOException {
+		try(Array<Val> array = allocator.mmap(file(), 10, Val.class)) {
+			Flusher flusher = allocator.flusher(array);
+			Future<Void> flushed = flusher.flush(0, 10);
+			flusher.close();
+			assertTrue(flushed.isDone());
+		}
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void shouldRejectFlushAfterClose() throws IOException {
+		try(Array<Val> array = allocator.mmap(file(), 10, Val.class)) {
+			Flusher flusher = allocator.flusher(array);
+			flusher.close();
+			flusher.flush(0, 1);
+		}
+	}
+
+	/* Aayush
+	This method deletes file if the object's value is not null.
+	*/
+	@After
+	public void cleanup() {
+		if(file != null) {
+			file.delete();
+		}
+	}
+
+	File file() throws IOException {
+		return file = File.createTempFile(getClass().getSimpleName(), ".map");
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.NativeHeapAllocator;
+
+/**
+ * Unit tests for {@link HeapArrayCursor}.
+ *
+ * @author Antti Laisi
+ */
+public class HeapArrayCursorTest {
+
+	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.create(Val.class);
+
+	/* Aayush
+	This method walks through an array of 3 vals with a cursor and checks every index and value, and that the cursor stops after the last val.
+	*/
+	@Test
+	public void shouldScanArray() {
+		try(Array<Val> array = allocator.calloc(3, Val.class)) {
+			for(int i = 0; i < 3; i++) {
+				array.get(i).val(i * 10);
+			}
+			Array.Cursor<Val> cursor = array.cursor();
+			for(int i = 0; i < 3; i++) {
+				assertTrue(cursor.next());
+				assertEquals(i, cursor.index());
+				assertEquals(i * 10, cursor.get().val());
+			}
+			assertFalse(cursor.next());
+			assertEquals(0, cursor.remaining());
+		}
+	}
+
+	/* Aayush
+	This method splits a cursor over 5 vals and checks that the returned cursor has the first 2 vals, the original cursor keeps the last 3, and that the two cursors use different structs.
+	*/
+	@Test
+	public void shouldSplitRemainingRange() {
+		try(Array<Val> array = allocator.calloc(5, Val.class)) {
+			Array.Cursor<Val> cursor = array.cursor();
+			Array.Cursor<Val> prefix = cursor.trySplit();
+			assertEquals(2, prefix.remaining());
+			assertEquals(3, cursor.remaining());
+
+			assertTrue(prefix.next());
+			assertTrue(cursor.next());
+			assertEquals(0, prefix.index());
+			assertEquals(2, cursor.index());
+			assertTrue(prefix.get() != cursor.get());
+			assertNull(array.slice(0, 1).cursor().trySplit());
+		}
+	}
+
+	/* Aayush
+	This method sums 100000 vals with fork-join tasks that split the cursor until each part has at most 1000 vals, and checks that the parallel sum is correct.
+	*/
+	@Test
+	public void shouldScanSplitsInParallel() {
+		try(Array<Val> array = allocator.calloc(100000, Val.class)) {
+			for(int i = 0; i < 100000; i++) {
+				array.get(i).val(i);
+			}
+			assertEquals(99999L * 100000 / 2, (long) new ForkJoinPool(4).invoke(new Sum(array.cursor())));
+		}
+	}
+
+	@SuppressWarnings("serial")
+	static class Sum extends RecursiveTask<Long> {
+		final Array.Cursor<Val> cursor;
+		Sum(final Array.Cursor<Val> cursor) {
+			this.cursor = cursor;
+		}
+		@Override
+		protected Long compute() {
+			if(cursor.remaining() > 1000) {
+				Sum left = new Sum(cursor.trySplit());
+				left.fork();
+				long right = new Sum(cursor).compute();
+				return left.join() + right;
+			}
+			long sum = 0;
+			while(cursor.next()) {
+				sum += cursor.get().val();
+			}
+			return sum;
+		}
+	}
+}
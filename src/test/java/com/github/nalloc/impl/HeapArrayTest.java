@@ -14,6 +14,7 @@
 
 package com.github.nalloc.impl;
 
+import static com.github.nalloc.impl.PointerArithmetics.UNSAFE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -21,6 +22,11 @@ import org.junit.Test;
 
 import com.github.nalloc.Array;
 import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Pointer;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Layout;
+import com.github.nalloc.Struct.Type;
 
 /**
  * Unit tests for {@link HeapArray}.
@@ -29,7 +35,7 @@ import com.github.nalloc.NativeHeapAllocator;
  */
 public class HeapArrayTest {
 
-	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.create(Val.class);
+	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.create(Val.class, Column.class);
 
 	/* Aayush
 	This method allocates two arrays, s1 and s2, switches their memory addresses, and checks if the fields previously set stay the same.
@@ -65,6 +71,84 @@ public class HeapArrayTest {
 		}
 	}
 
+	/* Aayush
+	This method sets 10 vals and clears vals 2 to 8 at once. It checks that only the vals in the range were set to 0.
+	*/
+	@Test
+	public void shouldClearRange() {
+		try(Array<Val> array = allocator.calloc(10, Val.class)) {
+			for(int i = 0; i < 10; i++) {
+				array.get(i).val(i + 1);
+			}
+			array.clear(2, 8);
+			assertEquals(2, array.get(1).val());
+			assertEquals(0, array.get(2).val());
+			assertEquals(0, array.get(7).val());
+			assertEquals(9, array.get(8).val());
+		}
+	}
+
+	/* Aayush
+	This method copies 3 vals from one array to another and checks that the vals arrived at the right indexes.
+	*/
+	@Test
+	public void shouldCopyBetweenArrays() {
+		try(Array<Val> src = allocator.calloc(5, Val.class);
+				Array<Val> dest = allocator.calloc(5, Val.class)) {
+			for(int i = 0; i < 5; i++) {
+				src.get(i).val(i + 1);
+			}
+			src.copy(1, dest, 2, 3);
+			assertEquals(0, dest.get(1).val());
+			assertEquals(2, dest.get(2).val());
+			assertEquals(4, dest.get(4).val());
+		}
+	}
+
+	/* Aayush
+	This method moves vals inside one array so that the old and new ranges overlap, in both directions, and checks that every val was moved correctly.
+	*/
+	@Test
+	public void shouldMoveOverlappingRange() {
+		try(Array<Val> array = allocator.calloc(10, Val.class)) {
+			for(int i = 0; i < 10; i++) {
+				array.get(i).val(i);
+			}
+			array.move(2, 0, 8);
+			assertEquals(2, array.get(0).val());
+			assertEquals(9, array.get(7).val());
+			array.move(0, 2, 8);
+			assertEquals(2, array.get(2).val());
+			assertEquals(9, array.get(9).val());
+		}
+	}
+
+	/* Aayush
+	This method fills 97 vals of an array with a copy of one val of the same array and checks the edges of the filled range.
+	*/
+	@Test
+	public void shouldFillRangeFromTemplate() {
+		try(Array<Val> array = allocator.calloc(100, Val.class)) {
+			array.get(0).val(42);
+			array.fill(2, 99, array.get(0));
+			assertEquals(0, array.get(1).val());
+			assertEquals(42, array.get(2).val());
+			assertEquals(42, array.get(98).val());
+			assertEquals(0, array.get(99).val());
+		}
+	}
+
+	/* Aayush
+	This method tries to copy more vals than the destination array has space for, which fails.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectCopyOutOfBounds() {
+		try(Array<Val> src = allocator.calloc(5, Val.class);
+				Array<Val> dest = allocator.calloc(2, Val.class)) {
+			src.copy(0, dest, 0, 3);
+		}
+	}
+
 	/* Aayush
 	This method allocates the val array as ptr and checks if ptr begins with "0x".
 	*/
@@ -87,4 +171,92 @@ public class HeapArrayTest {
 		}
 	}
 
+	/* Aayush
+	This method allocates a columnar array of 4 structs and checks that all ids are stored next to each other, followed by all counts.
+	*/
+	@Test
+	public void shouldStoreColumnarFieldsContiguously() {
+		try(Array<Column> array = allocator.calloc(4, Column.class)) {
+			for(int i = 0; i < 4; i++) {
+				array.get(i).id(i + 1);
+				array.get(i).count(i + 10);
+			}
+			assertEquals(2, UNSAFE.getLong(array.address() + 8));
+			assertEquals(4, UNSAFE.getLong(array.address() + 24));
+			assertEquals(10, UNSAFE.getInt(array.address() + 32));
+			assertEquals(13, UNSAFE.getInt(array.address() + 44));
+			assertEquals(3, array.get(2).id());
+			assertEquals(12, array.get(2).count());
+		}
+	}
+
+	/* Aayush
+	This method grows and then shrinks a columnar array and checks that every struct keeps its values while the columns move.
+	*/
+	@Test
+	public void shouldKeepColumnarValuesOnRealloc() {
+		try(Array<Column> array = allocator.calloc(3, Column.class)) {
+			for(int i = 0; i < 3; i++) {
+				array.get(i).id(i + 1);
+				array.get(i).count(i + 10);
+			}
+			allocator.realloc(array, 1000);
+			assertEquals(3, array.get(2).id());
+			assertEquals(12, array.get(2).count());
+			assertEquals(10, UNSAFE.getInt(array.address() + 1000 * 8));
+
+			allocator.realloc(array, 2);
+			assertEquals(2, array.get(1).id());
+			assertEquals(11, array.get(1).count());
+		}
+	}
+
+	/* Aayush
+	This method clears, moves and fills ranges of a columnar array and scans it with a cursor, checking that every field of every struct is right.
+	*/
+	@Test
+	public void shouldApplyBulkOperationsToColumns() {
+		try(Array<Column> array = allocator.calloc(10, Column.class)) {
+			for(int i = 0; i < 10; i++) {
+				array.get(i).id(i);
+				array.get(i).count(i);
+			}
+			array.move(5, 0, 5);
+			array.clear(5, 7);
+			array.fill(7, 10, array.get(0));
+
+			long[] ids = { 5, 6, 7, 8, 9, 0, 0, 5, 5, 5 };
+			Array.Cursor<Column> cursor = array.cursor();
+			while(cursor.next()) {
+				assertEquals(ids[(int) cursor.index()], cursor.get().id());
+				assertEquals(ids[(int) cursor.index()], cursor.get().count());
+			}
+		}
+	}
+
+	/* Aayush
+	This method allocates a single columnar struct with malloc and checks that it works like a normal struct.
+	*/
+	@Test
+	public void shouldStoreSingleColumnarStructInRow() {
+		try(Pointer<Column> ptr = allocator.malloc(Column.class)) {
+			ptr.deref().id(1);
+			ptr.deref().count(2);
+			assertEquals(1, UNSAFE.getLong(ptr.address()));
+			assertEquals(2, UNSAFE.getInt(ptr.address() + 8));
+		}
+	}
+
+	/* Aayush
+	This method creates a struct whose fields are stored column by column in arrays.
+	*/
+	@Struct(layout=Layout.COLUMNAR, value={
+		@Field(name="id", type=Type.LONG),
+		@Field(name="count", type=Type.INT) })
+	static interface Column {
+		long id();
+		void id(final long id);
+		int count();
+		void count(final int count);
+	}
 }
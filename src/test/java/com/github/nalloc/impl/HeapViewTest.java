@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.View;
+
+/**
+ * Unit tests for {@link HeapView}.
+ *
+ * @author Antti Laisi
+ */
+public class HeapViewTest {
+
+	final View<Val> view = NativeHeapAllocator.Factory.create(Val.class).view(Val.class);
+
+	/* Aayush
+	This method allocates two structs as plain memory addresses, writes a value to each one through the view, and checks that both values can be read back.
+	*/
+	@Test
+	public void shouldAccessStructsByAddress() {
+		long a1 = view.malloc();
+		long a2 = view.malloc();
+		view.at(a1).val(1);
+		view.at(a2).val(2);
+
+		assertEquals(1, view.at(a1).val());
+		assertEquals(2, view.at(a2).val());
+		assertSame(view.at(a1), view.at(a2));
+		view.free(a1);
+		view.free(a2);
+	}
+
+	/* Aayush
+	This method allocates an array of 3 structs as a plain memory address, writes to the last index, and checks that the other indexes are 0.
+	*/
+	@Test
+	public void shouldCallocArrayByAddress() {
+		long array = view.calloc(3);
+		view.at(array, 2).val(3);
+
+		assertEquals(0, view.at(array, 0).val());
+		assertEquals(3, view.at(array, 2).val());
+		assertEquals(view.at(array + 2 * view.sizeOf()).val(), view.at(array, 2).val());
+		view.free(array, 3);
+	}
+
+	/* Aayush
+	This method tries to allocate an array of size 0 as a plain memory address and fails.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldFailCallocZero() {
+		view.calloc(0);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.MmapAllocator;
+
+/**
+ * Unit tests for {@link MappedArray}, or {@link SegmentedArray} when native mappings are not available.
+ *
+ * @author Antti Laisi
+ */
+public class MappedArrayTest {
+
+	static final long LARGE = (3L << 30) / 4;
+
+	final MmapAllocator allocator = MmapAllocator.Factory.create(Val.class);
+	File file;
+
+	/* Aayush
+	This method creates a temporary file.
+	*/
+	@Before
+	public void setup() throws IOException {
+		file = File.createTempFile(getClass().getSimpleName(), ".map");
+	}
+
+	/* Aayush
+	This method maps a 3GB file, writes a value to the first and the last index, and checks that the values can be read back and that the file is 3GB long.
+	*/
+	@Test
+	public void shouldMapFileLargerThan2GB() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, LARGE, Val.class)) {
+			assertLarge(array);
+			array.get(0).val(1);
+			array.get(LARGE - 1).val(2);
+
+			assertEquals(1, array.get(0).val());
+			assertEquals(2, array.get(LARGE - 1).val());
+			assertEquals(3L << 30, file.length());
+		}
+	}
+
+	/* Aayush
+	This method maps a 3GB file, writes a value past the 2GB mark, frees the array, maps the file again, and checks that the value was saved to the file.
+	*/
+	@Test
+	public void shouldPersistBeyond2GB() throws IOException {
+		long index = (5L << 29) / 4;
+		try(Array<Val> array = allocator.mmap(file, LARGE, Val.class)) {
+			array.get(index).val(123);
+		}
+		try(Array<Val> array = allocator.mmap(file, LARGE, Val.class)) {
+			assertEquals(123, array.get(index).val());
+		}
+	}
+
+	/* Aayush
+	This method maps a small file, writes a value, and remaps the file to 3GB. It checks that the value is kept and that the last index of the grown array can be written.
+	*/
+	@Test
+	public void shouldRemapPast2GB() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, 10, Val.class)) {
+			array.get(9).val(9);
+			try(Array<Val> grown = allocator.remap(array, LARGE)) {
+				assertLarge(grown);
+				assertEquals(9, grown.get(9).val());
+				grown.get(LARGE - 1).val(1);
+				assertEquals(1, grown.get(LARGE - 1).val());
+			}
+		}
+	}
+
+	/* Aayush
+	This method maps a 3GB file and tries to get it as a ByteBuffer, which fails because a ByteBuffer can only hold 2GB.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectCastingToBytes() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, LARGE, Val.class)) {
+			allocator.toBytes(array);
+		}
+	}
+
+	/* Aayush
+	This method checks that a large array is a single native mapping when the JVM allows it, and a mapping in segments otherwise.
+	*/
+	static void assertLarge(final Array<?> array) {
+		assertTrue(MappedMemory.isAvailable() ? array instanceof MappedArray : array instanceof SegmentedArray);
+	}
+
+	/* Aayush
+	This method deletes file if the object's value is not null.
+	*/
+	@After
+	public void cleanup() {
+		if(file != null) {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.Index;
+import com.github.nalloc.Index.Cursor;
+import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Type;
+
+/**
+ * Unit tests for {@link MmapBTreeIndex}.
+ *
+ * @author Antti Laisi
+ */
+public class MmapBTreeIndexTest {
+
+	final MmapAllocator allocator = MmapAllocator.Factory.create(Trade.class);
+	File file;
+	File indexFile;
+
+	/* Aayush
+	This method indexes 5 trades by timestamp, two of them with the same timestamp, and checks that a range query returns the trades in the range in timestamp order.
+	*/
+	@Test
+	public void shouldIterateRangeInKeyOrder() throws IOException {
+		try(Array<Trade> trades = allocator.mmap(file(), 5, Trade.class);
+				Index<Trade> index = allocator.mmapIndex(indexFile, trades, "timestamp")) {
+			long[] timestamps = { 50, 10, 30, 30, 70 };
+			for(int i = 0; i < timestamps.length; i++) {
+				trades.get(i).timestamp(timestamps[i]);
+				trades.get(i).price(i);
+				index.add(i);
+			}
+
+			Cursor<Trade> cursor = index.range(20, 50);
+			assertTrue(cursor.next());
+			assertEquals(30, cursor.get().timestamp());
+			assertEquals(2, cursor.index());
+			assertTrue(cursor.next());
+			assertEquals(3, cursor.get().price());
+			assertTrue(cursor.next());
+			assertEquals(50, cursor.key());
+			assertFalse(cursor.next());
+			assertFalse(cursor.next());
+		}
+	}
+
+	/* Aayush
+	This method indexes 100000 trades by a random price so that the tree gets several levels, removes every third trade, and checks that a range query over all prices returns the remaining trades in sorted order.
+	*/
+	@Test
+	public void shouldSplitNodesAndRemoveEntries() throws IOException {
+		int count = 100000;
+		Random random = new Random(1);
+		try(Array<Trade> trades = allocator.mmap(file(), count, Trade.class);
+				Index<Trade> index = allocator.mmapIndex(indexFile, trades, "price")) {
+			for(int i = 0; i < count; i++) {
+				trades.get(i).price(random.nextInt(1000) - 500);
+				index.add(i);
+			}
+			for(int i = 0; i < count; i += 3) {
+				assertTrue(index.remove(i));
+			}
+			assertFalse(index.remove(0));
+			assertEquals(count - (count + 2) / 3, index.size());
+
+			long seen = 0;
+			long previous = Long.MIN_VALUE;
+			for(Cursor<Trade> cursor = index.range(Integer.MIN_VALUE, Integer.MAX_VALUE); cursor.next(); seen++) {
+				assertTrue(cursor.key() >= previous);
+				assertEquals(cursor.key(), cursor.get().price());
+				assertTrue(cursor.index() % 3 != 0);
+				previous = cursor.key();
+			}
+			assertEquals(index.size(), seen);
+		}
+	}
+
+	/* Aayush
+	This method builds an index, closes it and maps the index file again, checking that range queries work without adding the trades again.
+	*/
+	@Test
+	public void shouldReopenIndexFromFile() throws IOException {
+		try(Array<Trade> trades = allocator.mmap(file(), 1000, Trade.class)) {
+			try(Index<Trade> index = allocator.mmapIndex(indexFile, trades, "timestamp")) {
+				for(int i = 0; i < 1000; i++) {
+					trades.get(i).timestamp(1000 - i);
+					index.add(i);
+				}
+			}
+			try(Index<Trade> index = allocator.mmapIndex(indexFile, trades, "timestamp")) {
+				assertEquals(1000, index.size());
+				Cursor<Trade> cursor = index.range(1, 1);
+				assertTrue(cursor.next());
+				assertEquals(999, cursor.index());
+			}
+		}
+	}
+
+	/* Aayush
+	This method builds an index of a writable array, then maps the array and the index file read-only. It checks that range queries work and that adding to the read-only index fails.
+	*/
+	@Test
+	public void shouldMapIndexOfReadOnlyArray() throws IOException {
+		try(Array<Trade> trades = allocator.mmap(file(), 1000, Trade.class);
+				Index<Trade> index = allocator.mmapIndex(indexFile, trades, "timestamp")) {
+			for(int i = 0; i < 1000; i++) {
+				trades.get(i).timestamp(1000 - i);
+				index.add(i);
+			}
+		}
+		assertTrue(indexFile.setReadOnly());
+		try(Array<Trade> trades = allocator.mmapReadOnly(file, Trade.class);
+				Index<Trade> index = allocator.mmapIndex(indexFile, trades, "timestamp")) {
+			assertEquals(1000, index.size());
+			Cursor<Trade> cursor = index.range(1, 2);
+			assertTrue(cursor.next());
+			assertEquals(999, cursor.index());
+			assertEquals(1, cursor.get().timestamp());
+			assertTrue(cursor.next());
+			assertEquals(998, cursor.index());
+			assertFalse(cursor.next());
+			try {
+				index.add(0);
+				fail("Read-only index was modified");
+			} catch(ReadOnlyBufferException e) {
+				assertEquals(1000, index.size());
+			}
+		}
+	}
+
+	/* Aayush
+	This method maps an index of a read-only array from an empty file, which fails because read-only indexes can't be built.
+	*/
+	@Test(expected=IllegalStateException.class)
+	public void shouldRejectNewIndexOfReadOnlyArray() throws IOException {
+		allocator.mmap(file(), 10, Trade.class).close();
+		try(Array<Trade> trades = allocator.mmapReadOnly(file, Trade.class)) {
+			allocator.mmapIndex(indexFile, trades, "timestamp");
+		}
+	}
+
+	/* Aayush
+	This method maps an index file that was built for the timestamp field as an index of the price field, which fails.
+	*/
+	@Test(expected=IllegalStateException.class)
+	public void shouldRejectIndexOfAnotherField() throws IOException {
+		try(Array<Trade> trades = allocator.mmap(file(), 1, Trade.class)) {
+			allocator.mmapIndex(indexFile, trades, "timestamp").close();
+			allocator.mmapIndex(indexFile, trades, "price");
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectStringKey() throws IOException {
+		try(Array<Trade> trades = allocator.mmap(file(), 1, Trade.class)) {
+			allocator.mmapIndex(indexFile, trades, "symbol");
+		}
+	}
+
+	/* Aayush
+	This method deletes the array file and the index file if they are not null.
+	*/
+	@After
+	public void cleanup() {
+		if(file != null) {
+			file.delete();
+			indexFile.delete();
+		}
+	}
+
+	File file() throws IOException {
+		file = File.createTempFile(getClass().getSimpleName(), ".map");
+		indexFile = new File(file.getPath() + ".idx");
+		return file;
+	}
+
+	/* Aayush
+	This method creates the struct named Trade with a timestamp, a price and a symbol.
+	*/
+	@Struct({
+		@Field(name="timestamp", type=Type.LONG),
+		@Field(name="price", type=Type.INT),
+		@Field(name="symbol", type=Type.STRING, len=4) })
+	static interface Trade {
+		long timestamp();
+		void timestamp(final long timestamp);
+		int price();
+		void price(final int price);
+		String symbol();
+		void symbol(final String symbol);
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.RingBuffer;
+import com.github.nalloc.RingBuffer.WaitStrategy;
+
+/**
+ * Unit tests for {@link MmapRingBuffer}.
+ *
+ * @author Antti Laisi
+ */
+public class MmapRingBufferTest {
+
+	final MmapAllocator allocator = MmapAllocator.Factory.create(Val.class);
+	File file;
+
+	/* Aayush
+	This method claims an entry, writes 7 to it and publishes it, then waits for the entry on the consumer side and checks that it reads 7.
+	*/
+	@Test
+	public void shouldPublishAndConsumeEntry() throws IOException {
+		try(RingBuffer<Val> ring = allocator.mmapRing(file(), 8, Val.class, false, WaitStrategy.BUSY_SPIN)) {
+			long sequence = ring.claim(1);
+			ring.write(sequence).val(7);
+			ring.publish(sequence, 1);
+
+			assertEquals(sequence, ring.waitFor(ring.readSequence()));
+			assertEquals(7, ring.read(sequence).val());
+			ring.release(sequence);
+			assertEquals(sequence + 1, ring.readSequence());
+		}
+	}
+
+	/* Aayush
+	This method publishes a batch of 3 entries and checks that the consumer sees all 3 with a single wait.
+	*/
+	@Test
+	public void shouldConsumeBatch() throws IOException {
+		try(RingBuffer<Val> ring = allocator.mmapRing(file(), 8, Val.class, false, WaitStrategy.BUSY_SPIN)) {
+			long first = ring.claim(3);
+			for(int i = 0; i < 3; i++) {
+				ring.write(first + i).val(i);
+			}
+			ring.publish(first, 3);
+
+			assertEquals(first + 2, ring.waitFor(first));
+			assertEquals(2, ring.read(first + 2).val());
+		}
+	}
+
+	/* Aayush
+	This method fills the ring and checks that no more entries can be claimed until the consumer releases one.
+	*/
+	@Test
+	public void shouldNotClaimWhenFull() throws IOException {
+		try(RingBuffer<Val> ring = allocator.mmapRing(file(), 4, Val.class, false, WaitStrategy.BUSY_SPIN)) {
+			ring.publish(ring.claim(4), 4);
+			assertEquals(-1, ring.tryClaim(1));
+
+			ring.release(ring.waitFor(0) - 3);
+			assertEquals(4, ring.tryClaim(1));
+		}
+	}
+
+	/* Aayush
+	This method writes entries in a ring, closes it and maps the same file again, checking that the consumer continues from where it stopped.
+	*/
+	@Test
+	public void shouldKeepSequencesInFile() throws IOException {
+		try(RingBuffer<Val> ring = allocator.mmapRing(file(), 4, Val.class, false, WaitStrategy.BUSY_SPIN)) {
+			long first = ring.claim(2);
+			ring.write(first + 1).val(42);
+			ring.publish(first, 2);
+			ring.release(first);
+		}
+		try(RingBuffer<Val> ring = allocator.mmapRing(file, 4, Val.class, false, WaitStrategy.BUSY_SPIN)) {
+			assertEquals(1, ring.readSequence());
+			assertEquals(1, ring.waitFor(1));
+			assertEquals(42, ring.read(1).val());
+			assertEquals(2, ring.claim(1));
+		}
+	}
+
+	/* Aayush
+	This method maps a file as a ring with a different capacity than it was created with, which fails.
+	*/
+	@Test(expected=IllegalStateException.class)
+	public void shouldRejectDifferentCapacity() throws IOException {
+		allocator.mmapRing(file(), 4, Val.class, false, WaitStrategy.BUSY_SPIN).close();
+		allocator.mmapRing(file, 8, Val.class, false, WaitStrategy.BUSY_SPIN);
+	}
+
+	/* Aayush
+	This method maps a ring file with a larger capacity than it was created with and checks that the file was not extended before the mapping was rejected.
+	*/
+	@Test
+	public void shouldNotExtendFileOfDifferentCapacity() throws IOException {
+		allocator.mmapRing(file(), 4, Val.class, false, WaitStrategy.BUSY_SPIN).close();
+		long length = file.length();
+		try {
+			allocator.mmapRing(file, 1024, Val.class, false, WaitStrategy.BUSY_SPIN);
+			fail("Ring buffer of different capacity was mapped");
+		} catch(IllegalStateException e) {
+			assertEquals(length, file.length());
+		}
+	}
+
+	/* Aayush
+	This method writes a header that was left initializing by a process that died, and checks that mapping the file initializes the ring again after the timeout.
+	*/
+	@Test
+	public void shouldRecoverFromDeadInitializer() throws IOException {
+		try(FileChannel channel = FileChannel.open(file().toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+			header.putLong(0, MmapRingBuffer.INITIALIZING);
+			channel.write(header);
+		}
+		long start = System.nanoTime();
+		try(RingBuffer<Val> ring = allocator.mmapRing(file, 4, Val.class, false, WaitStrategy.PARK)) {
+			assertTrue(System.nanoTime() - start >= MmapRingBuffer.INIT_TIMEOUT);
+			assertEquals(4, ring.capacity());
+			long sequence = ring.claim(1);
+			ring.write(sequence).val(3);
+			ring.publish(sequence, 1);
+			assertEquals(3, ring.read(ring.waitFor(sequence)).val());
+		}
+	}
+
+	/* Aayush
+	This method maps the same file twice with two allocators, so the rings share no Java objects or mappings. A thread produces 10000 entries through the first mapping while this thread consumes them through the second one, and the sum of consumed values is checked.
+	*/
+	@Test
+	public void shouldShareRingBetweenMappings() throws Exception {
+		final int count = 10000;
+		final MmapAllocator other = MmapAllocator.Factory.create(Val.class);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try(final RingBuffer<Val> producer = allocator.mmapRing(file(), 16, Val.class, false, WaitStrategy.YIELD);
+				RingBuffer<Val> consumer = other.mmapRing(file, 16, Val.class, false, WaitStrategy.YIELD)) {
+			Future<?> future = executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for(int i = 0; i < count; i++) {
+						long sequence = producer.claim(1);
+						producer.write(sequence).val(i);
+						producer.publish(sequence, 1);
+					}
+					return null;
+				}
+			});
+			long sum = 0;
+			long next = consumer.readSequence();
+			while(next < count) {
+				long last = consumer.waitFor(next);
+				for(long s = next; s <= last; s++) {
+					sum += consumer.read(s).val();
+				}
+				consumer.release(last);
+				next = last + 1;
+			}
+			future.get();
+			assertEquals((long) count * (count - 1) / 2, sum);
+			assertEquals(count, producer.readSequence());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectCapacityNotPowerOfTwo() throws IOException {
+		allocator.mmapRing(file(), 6, Val.class, false, WaitStrategy.BUSY_SPIN);
+	}
+
+	/* Aayush
+	This method runs 4 producer threads that each publish 10000 entries in small batches through a ring of 64 entries while this thread consumes them, and checks that the sum of consumed values is correct.
+	*/
+	@Test
+	public void shouldPassEntriesFromManyProducers() throws Exception {
+		final int producers = 4;
+		final int count = 10000;
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		try(RingBuffer<Val> ring = allocator.mmapRing(file(), 64, Val.class, true, WaitStrategy.YIELD)) {
+			List<Future<?>> futures = new ArrayList<>();
+			for(int p = 0; p < producers; p++) {
+				final RingBuffer<Val> producer = ring.clone();
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for(int i = 0; i < count; i += 2) {
+							long sequence = producer.claim(2);
+							producer.write(sequence).val(i);
+							producer.write(sequence + 1).val(i + 1);
+							producer.publish(sequence, 2);
+						}
+						return null;
+					}
+				}));
+			}
+
+			long sum = 0;
+			long next = ring.readSequence();
+			while(next < producers * count) {
+				long last = ring.waitFor(next);
+				for(long s = next; s <= last; s++) {
+					sum += ring.read(s).val();
+				}
+				ring.release(last);
+				next = last + 1;
+			}
+			for(Future<?> future : futures) {
+				future.get();
+			}
+			assertEquals(producers * ((long) count * (count - 1) / 2), sum);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/* Aayush
+	This method deletes file if the object's value is not null.
+	*/
+	@After
+	public void cleanup() {
+		if(file != null) {
+			file.delete();
+		}
+	}
+
+	File file() throws IOException {
+		file = File.createTempFile(getClass().getSimpleName(), ".map");
+		file.delete();
+		return file;
+	}
+}
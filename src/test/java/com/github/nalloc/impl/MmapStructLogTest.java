@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.StructLog;
+import com.github.nalloc.StructLog.Reader;
+
+/**
+ * Unit tests for {@link MmapStructLog}.
+ *
+ * @author Antti Laisi
+ */
+public class MmapStructLogTest {
+
+	final MmapAllocator allocator = MmapAllocator.Factory.create(Val.class);
+	File directory;
+
+	/* Aayush
+	This method appends a struct and checks that a reader sees it only after it has been published.
+	*/
+	@Test
+	public void shouldReadPublishedStructs() throws IOException {
+		try(StructLog<Val> log = allocator.mmapLog(directory(), 16, Val.class);
+				Reader<Val> reader = log.reader(0)) {
+			log.append().val(3);
+			assertFalse(reader.next());
+
+			log.publish();
+			assertTrue(reader.next());
+			assertEquals(3, reader.get().val());
+			assertEquals(0, reader.sequence());
+			assertFalse(reader.next());
+		}
+	}
+
+	/* Aayush
+	This method appends 10 structs to a log with 4 structs per segment and checks that 3 segment files are created and that a reader goes through all of them in order.
+	*/
+	@Test
+	public void shouldRollOverSegments() throws IOException {
+		try(StructLog<Val> log = allocator.mmapLog(directory(), 4, Val.class)) {
+			for(int i = 0; i < 10; i++) {
+				log.append().val(i);
+			}
+			log.publish();
+			assertEquals(10, log.writeSequence());
+			assertEquals(3, directory.listFiles().length);
+
+			try(Reader<Val> reader = log.reader(2)) {
+				for(int i = 2; i < 10; i++) {
+					assertTrue(reader.next());
+					assertEquals(i, reader.get().val());
+					assertEquals(i, reader.sequence());
+				}
+				assertFalse(reader.next());
+			}
+		}
+	}
+
+	/* Aayush
+	This method appends structs to a log, closes it and opens the directory again, checking that the log continues after the last struct.
+	*/
+	@Test
+	public void shouldContinueAfterReopen() throws IOException {
+		try(StructLog<Val> log = allocator.mmapLog(directory(), 4, Val.class)) {
+			for(int i = 0; i < 6; i++) {
+				log.append().val(i);
+			}
+		}
+		try(StructLog<Val> log = allocator.mmapLog(directory, 4, Val.class)) {
+			assertEquals(6, log.writeSequence());
+			log.append().val(6);
+			log.publish();
+			try(Reader<Val> reader = log.reader(6)) {
+				assertTrue(reader.next());
+				assertEquals(6, reader.get().val());
+			}
+		}
+	}
+
+	/* Aayush
+	This method fills 3 segments and deletes everything before sequence 9, checking that the two old segments are deleted and the log starts from sequence 8.
+	*/
+	@Test
+	public void shouldDeleteOldSegments() throws IOException {
+		try(StructLog<Val> log = allocator.mmapLog(directory(), 4, Val.class)) {
+			for(int i = 0; i < 10; i++) {
+				log.append();
+			}
+			assertEquals(0, log.firstSequence());
+			assertEquals(2, log.deleteBefore(9));
+			assertEquals(8, log.firstSequence());
+			assertEquals(0, log.deleteBefore(100));
+		}
+	}
+
+	/* Aayush
+	This method appends 100000 structs on another thread while this thread tails the log, and checks that every struct is read in order.
+	*/
+	@Test
+	public void shouldTailLogFromAnotherThread() throws Exception {
+		final int count = 100000;
+		final StructLog<Val> log = allocator.mmapLog(directory(), 1024, Val.class);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try(Reader<Val> reader = log.reader(0)) {
+			Future<?> writer = executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for(int i = 0; i < count; i++) {
+						log.append().val(i);
+						log.publish();
+					}
+					return null;
+				}
+			});
+			for(int i = 0; i < count; ) {
+				if(reader.next()) {
+					assertEquals(i, reader.get().val());
+					i++;
+				}
+			}
+			writer.get();
+		} finally {
+			executor.shutdown();
+			log.close();
+		}
+	}
+
+	/* Aayush
+	This method creates a segment and publishes 3 structs to it, then creates the same segment again like a process that lost the race to create it. It checks that the second create opens the existing segment instead of replacing it, and that no temporary files are left.
+	*/
+	@Test
+	public void shouldNotReplaceSegmentCreatedFirst() throws IOException {
+		DirectBufferMmapAllocator mmap = new DirectBufferMmapAllocator(Val.class);
+		NativeStruct struct = NativeStruct.create(new StructClassGenerator(Val.class).generate(Val.class));
+		assertTrue(directory().mkdir());
+		LogSegment first = LogSegment.create(mmap, directory, 0, 16, struct);
+		first.publish(3);
+		LogSegment second = LogSegment.create(mmap, directory, 0, 16, struct);
+		try {
+			assertEquals(3, second.published());
+			assertEquals(1, directory.listFiles().length);
+		} finally {
+			first.free();
+			second.free();
+		}
+	}
+
+	/* Aayush
+	This method deletes the log directory and its segment files if the directory is not null.
+	*/
+	@After
+	public void cleanup() {
+		if(directory != null) {
+			for(File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	File directory() throws IOException {
+		directory = File.createTempFile(getClass().getSimpleName(), ".log");
+		directory.delete();
+		return directory;
+	}
+}
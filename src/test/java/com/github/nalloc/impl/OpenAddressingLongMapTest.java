@@ -0,0 +1,298 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.nalloc.ArenaAllocator;
+import com.github.nalloc.LongMap;
+import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Type;
+
+/**
+ * Unit tests for {@link OpenAddressingLongMap}.
+ *
+ * @author Antti Laisi
+ */
+public class OpenAddressingLongMapTest {
+
+	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.create(Val.class);
+	File file;
+
+	/* Aayush
+	This method puts a key in the map, writes 5 to its struct and checks that get returns the struct with 5, and that a missing key returns null.
+	*/
+	@Test
+	public void shouldPutAndGetStruct() {
+		try(LongMap<Val> map = allocator.longMap(16, Val.class)) {
+			map.put(123).val(5);
+
+			assertEquals(5, map.get(123).val());
+			assertNull(map.get(124));
+			assertEquals(1, map.size());
+		}
+	}
+
+	/* Aayush
+	This method checks that putting a key that is already in the map returns the same struct instead of a new one.
+	*/
+	@Test
+	public void shouldReturnExistingStructOnPut() {
+		try(LongMap<Val> map = allocator.longMap(16, Val.class)) {
+			map.put(7).val(1);
+
+			assertEquals(1, map.put(7).val());
+			assertEquals(1, map.size());
+		}
+	}
+
+	/* Aayush
+	This method checks that key 0 can be stored and removed like any other key.
+	*/
+	@Test
+	public void shouldStoreZeroKey() {
+		try(LongMap<Val> map = allocator.longMap(16, Val.class)) {
+			assertNull(map.get(0));
+			map.put(0).val(9);
+
+			assertEquals(9, map.get(0).val());
+			assertTrue(map.remove(0));
+			assertFalse(map.remove(0));
+			assertNull(map.get(0));
+			assertEquals(0, map.size());
+		}
+	}
+
+	/* Aayush
+	This method puts and removes random keys many times, starting from a small map so it has to grow, and checks after every change that the map matches a java.util.HashMap.
+	*/
+	@Test
+	public void shouldMatchHashMapWhileGrowing() {
+		Map<Long, Integer> expected = new HashMap<>();
+		Random random = new Random(1);
+		try(LongMap<Val> map = allocator.longMap(4, Val.class)) {
+			for(int i = 0; i < 20000; i++) {
+				long key = random.nextInt(5000) - 100;
+				if(random.nextInt(3) == 0) {
+					assertEquals(expected.remove(key) != null, map.remove(key));
+				} else {
+					map.put(key).val(i);
+					expected.put(key, i);
+				}
+				assertEquals(expected.size(), map.size());
+			}
+			for(long key = -100; key < 4900; key++) {
+				Val val = map.get(key);
+				if(expected.containsKey(key)) {
+					assertEquals(expected.get(key).intValue(), val.val());
+				} else {
+					assertNull(val);
+				}
+			}
+		}
+	}
+
+	/* Aayush
+	This method fills a map in a file so that it grows, closes it, maps the file again and checks that every entry is still there.
+	*/
+	@Test
+	public void shouldReopenMapFromFile() throws IOException {
+		MmapAllocator mmap = MmapAllocator.Factory.create(Val.class);
+		try(LongMap<Val> map = mmap.mmapLongMap(file(), 8, Val.class)) {
+			for(int i = 1; i <= 1000; i++) {
+				map.put(i * 31L).val(i);
+			}
+		}
+		assertFalse(new File(file.getPath() + ".resize").exists());
+		try(LongMap<Val> map = mmap.mmapLongMap(file, 8, Val.class)) {
+			assertEquals(1000, map.size());
+			for(int i = 1; i <= 1000; i++) {
+				assertEquals(i, map.get(i * 31L).val());
+			}
+		}
+	}
+
+	/* Aayush
+	This method leaves a resize file whose header was never written next to a map file and checks that reopening ignores and removes it.
+	*/
+	@Test
+	public void shouldIgnoreResizeFileWithoutHeader() throws IOException {
+		MmapAllocator mmap = MmapAllocator.Factory.create(Val.class);
+		try(LongMap<Val> map = mmap.mmapLongMap(file(), 8, Val.class)) {
+			for(int i = 1; i <= 100; i++) {
+				map.put(i).val(i);
+			}
+		}
+		File resize = new File(file.getPath() + ".resize");
+		Files.write(resize.toPath(), new byte[4096]);
+		try(LongMap<Val> map = mmap.mmapLongMap(file, 8, Val.class)) {
+			assertFalse(resize.exists());
+			assertEquals(100, map.size());
+			for(int i = 1; i <= 100; i++) {
+				assertEquals(i, map.get(i).val());
+			}
+		}
+	}
+
+	/* Aayush
+	This method creates a map whose tables are allocated from an arena and checks that it grows like a normal map.
+	*/
+	@Test
+	public void shouldAllocateTablesFromArena() {
+		try(ArenaAllocator arena = NativeHeapAllocator.Factory.createArena(4096, Val.class)) {
+			LongMap<Val> map = arena.longMap(8, Val.class);
+			for(int i = 0; i < 100; i++) {
+				map.put(i).val(i);
+			}
+			assertEquals(100, map.size());
+			assertEquals(42, map.get(42).val());
+		}
+	}
+
+	/* Aayush
+	This method grows a map whose storage returns memory filled with garbage instead of zeros. It checks that the grown table is allocated before the table is 3/4 full, so it can be zeroed a part at a time, and that the map still matches a java.util.HashMap.
+	*/
+	@Test
+	public void shouldZeroGrownTableIncrementally() throws IOException {
+		GarbageStorage storage = new GarbageStorage(allocator);
+		Map<Long, Integer> expected = new HashMap<>();
+		Random random = new Random(2);
+		try(LongMap<Val> map = new OpenAddressingLongMap<>(storage, 8,
+				NativeStruct.create(new StructClassGenerator(Val.class).generate(Val.class)))) {
+			assertEquals(1, storage.allocations);
+			for(int i = 1; storage.allocations == 1; i++) {
+				map.put(i).val(i);
+				expected.put((long) i, i);
+			}
+			// a table of 16 slots grows on the put of the 13th key
+			assertEquals(11, map.size());
+			for(int i = 0; i < 20000; i++) {
+				long key = random.nextInt(5000);
+				if(random.nextInt(3) == 0) {
+					assertEquals(expected.remove(key) != null, map.remove(key));
+				} else {
+					map.put(key).val(i);
+					expected.put(key, i);
+				}
+			}
+			assertEquals(expected.size(), map.size());
+			for(Map.Entry<Long, Integer> entry : expected.entrySet()) {
+				assertEquals(entry.getValue().intValue(), map.get(entry.getKey()).val());
+			}
+		}
+	}
+
+	/* Aayush
+	This method fills heap and file backed maps of cache line aligned values past growing and checks that every value starts at a multiple of 64 bytes.
+	*/
+	@Test
+	public void shouldAlignValuesToStructAlignment() throws IOException {
+		try(LongMap<CacheLine> map = NativeHeapAllocator.Factory.create(CacheLine.class).longMap(8, CacheLine.class)) {
+			assertAligned(map);
+		}
+		try(LongMap<CacheLine> map = MmapAllocator.Factory.create(CacheLine.class).mmapLongMap(file(), 8, CacheLine.class)) {
+			assertAligned(map);
+		}
+	}
+
+	private static void assertAligned(final LongMap<CacheLine> map) {
+		for(long i = 0; i < 100; i++) {
+			map.put(i).value(i);
+			assertEquals(0, ((NativeStruct) map.get(i)).address % 64);
+		}
+		for(long i = 0; i < 100; i++) {
+			assertEquals(i, map.get(i).value());
+			assertEquals(0, ((NativeStruct) map.get(i)).address % 64);
+		}
+	}
+
+	/* Aayush
+	This method deletes file and its resize file if the object's value is not null.
+	*/
+	@After
+	public void cleanup() {
+		if(file != null) {
+			file.delete();
+			new File(file.getPath() + ".resize").delete();
+		}
+	}
+
+	/* Aayush
+	This class allocates tables from the heap and fills them with garbage, like malloc() may return.
+	*/
+	static final class GarbageStorage implements LongMapStorage {
+
+		final HeapLongMapStorage heap;
+		int allocations;
+
+		GarbageStorage(final NativeHeapAllocator allocator) {
+			heap = new HeapLongMapStorage(allocator, Val.class, 4, Long.MAX_VALUE);
+		}
+
+		@Override
+		public HeapArray<?>[] existing() {
+			return heap.existing();
+		}
+
+		@Override
+		public HeapArray<?> allocate(final long length) {
+			allocations++;
+			HeapArray<?> table = heap.allocate(length);
+			PointerArithmetics.UNSAFE.setMemory(table.address(), table.size() * 4, (byte) 0x5A);
+			return table;
+		}
+
+		@Override
+		public boolean zeroes(final long length) {
+			return false;
+		}
+
+		@Override
+		public void replaced() {
+		}
+	}
+
+	/* Aayush
+	This method creates a struct with a long field that is aligned to a 64-byte cache line.
+	*/
+	@Struct(align=64, value={
+		@Field(name="value",type=Type.LONG) })
+	static interface CacheLine {
+		long value();
+		void value(long value);
+	}
+
+	File file() throws IOException {
+		file = File.createTempFile(getClass().getSimpleName(), ".map");
+		file.delete();
+		return file;
+	}
+}
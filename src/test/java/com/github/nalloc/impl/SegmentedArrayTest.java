@@ -0,0 +1,346 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.FieldScan;
+import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.MmapAllocator.Advice;
+
+/**
+ * Unit tests for {@link SegmentedArray}. Segments of 4100 bytes hold 1024 structs of 4 bytes.
+ *
+ * @author Antti Laisi
+ */
+public class SegmentedArrayTest {
+
+	static final int SEGMENT = 1024;
+	static final int SIZE = 3 * SEGMENT - 100;
+
+	final MmapAllocator allocator = new DirectBufferMmapAllocator(4100, Val.class);
+	File file;
+
+	/* Aayush
+	This method creates a temporary file.
+	*/
+	@Before
+	public void setup() throws IOException {
+		file = File.createTempFile(getClass().getSimpleName(), ".map");
+	}
+
+	/* Aayush
+	This method maps a file that is longer than a segment, writes the index of every struct to it, and reads the values back by index and with a cursor.
+	*/
+	@Test
+	public void shouldAddressStructsAcrossSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			assertTrue(array instanceof SegmentedArray);
+			assertEquals(3, ((SegmentedArray<?>) array).buffers.length);
+			assertEquals(SIZE * 4L, file.length());
+			for(int i = 0; i < SIZE; i++) {
+				array.get(i).val(i);
+			}
+			for(int i = 0; i < SIZE; i++) {
+				assertEquals(i, array.get(i).val());
+			}
+			Array.Cursor<Val> cursor = array.cursor();
+			int next = 0;
+			while(cursor.next()) {
+				assertEquals(next++, cursor.get().val());
+			}
+			assertEquals(SIZE, next);
+		}
+	}
+
+	/* Aayush
+	This method writes values to every segment, frees the array, and checks that the values are read back from the file read-only and as a private mapping.
+	*/
+	@Test
+	public void shouldPersistAcrossSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			fill(array);
+		}
+		try(Array<Val> array = allocator.mmapReadOnly(file, Val.class)) {
+			assertTrue(array instanceof SegmentedArray);
+			assertFilled(array);
+		}
+		try(Array<Val> array = allocator.mmapPrivate(file, Val.class)) {
+			assertTrue(array instanceof SegmentedArray);
+			array.get(SEGMENT).val(-1);
+			assertEquals(-1, array.get(SEGMENT).val());
+		}
+		try(Array<Val> array = allocator.mmapReadOnly(file, Val.class)) {
+			assertFilled(array);
+		}
+	}
+
+	/* Aayush
+	This method moves overlapping ranges that cross segment boundaries forward and backward, and compares the result to the same moves done on a Java array.
+	*/
+	@Test
+	public void shouldMoveAcrossSegments() throws IOException {
+		int[] expected = new int[SIZE];
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			fill(array);
+			for(int i = 0; i < SIZE; i++) {
+				expected[i] = i;
+			}
+			array.move(900, 1000, 1500);
+			System.arraycopy(expected, 900, expected, 1000, 1500);
+			assertContent(expected, array);
+			array.move(1100, 50, 1800);
+			System.arraycopy(expected, 1100, expected, 50, 1800);
+			assertContent(expected, array);
+			array.move(10, 11, SIZE - 11);
+			System.arraycopy(expected, 10, expected, 11, SIZE - 11);
+			assertContent(expected, array);
+		}
+	}
+
+	/* Aayush
+	This method copies a range that crosses segments from a segmented array to a contiguous array and back to another position.
+	*/
+	@Test
+	public void shouldCopyBetweenSegmentedAndContiguousArrays() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class);
+				Array<Val> contiguous = allocator.mmap(SIZE, Val.class)) {
+			fill(array);
+			array.copy(500, contiguous, 0, 2000);
+			for(int i = 0; i < 2000; i++) {
+				assertEquals(500 + i, contiguous.get(i).val());
+			}
+			contiguous.copy(0, array, 1000, 1500);
+			for(int i = 0; i < 1500; i++) {
+				assertEquals(500 + i, array.get(1000 + i).val());
+			}
+		}
+	}
+
+	/* Aayush
+	This method fills and clears ranges that cross segment boundaries and checks that structs outside the ranges are not changed.
+	*/
+	@Test
+	public void shouldFillAndClearAcrossSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class);
+				Array<Val> template = allocator.mmap(1, Val.class)) {
+			template.get(0).val(7);
+			array.fill(1000, 2100, template.get(0));
+			array.get(SIZE - 1).val(1);
+			assertEquals(0, array.get(999).val());
+			for(int i = 1000; i < 2100; i++) {
+				assertEquals(7, array.get(i).val());
+			}
+			assertEquals(0, array.get(2100).val());
+
+			array.clear(1020, 2050);
+			assertEquals(7, array.get(1019).val());
+			for(int i = 1020; i < 2050; i++) {
+				assertEquals(0, array.get(i).val());
+			}
+			assertEquals(7, array.get(2050).val());
+			assertEquals(1, array.get(SIZE - 1).val());
+		}
+	}
+
+	/* Aayush
+	This method splits a cursor over a segmented array and checks that both halves together visit every struct once.
+	*/
+	@Test
+	public void shouldSplitCursorAcrossSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			fill(array);
+			Array.Cursor<Val> suffix = array.cursor();
+			Array.Cursor<Val> prefix = suffix.trySplit();
+			long sum = 0;
+			while(prefix.next()) {
+				assertEquals(prefix.index(), prefix.get().val());
+				sum += prefix.get().val();
+			}
+			while(suffix.next()) {
+				assertEquals(suffix.index(), suffix.get().val());
+				sum += suffix.get().val();
+			}
+			assertEquals((long) SIZE * (SIZE - 1) / 2, sum);
+		}
+	}
+
+	/* Aayush
+	This method slices a range within the second segment, checks the slice and its bytes, and checks that an empty slice at the end of the array works.
+	*/
+	@Test
+	public void shouldSliceWithinSegment() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			fill(array);
+			Array<Val> slice = array.slice(SEGMENT + 10, 2 * SEGMENT);
+			assertEquals(SEGMENT + 10, slice.get(0).val());
+			assertEquals(2 * SEGMENT - 1, slice.get(slice.size() - 1).val());
+			ByteBuffer bytes = allocator.toBytes(slice);
+			assertEquals((SEGMENT - 10) * 4, bytes.remaining());
+			assertEquals(SEGMENT + 10, bytes.getInt(0));
+			assertEquals(0, array.slice(SIZE, SIZE).size());
+		}
+	}
+
+	/* Aayush
+	This method slices a range that spans three segments and checks reading by index and with a split cursor, slicing the slice, clearing and copying across segment boundaries, and locking the slice.
+	*/
+	@Test
+	public void shouldSliceAcrossSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			fill(array);
+			Array<Val> slice = array.slice(SEGMENT - 10, 2 * SEGMENT + 10);
+			assertEquals(SEGMENT + 20, slice.size());
+			for(int i = 0; i < slice.size(); i++) {
+				assertEquals(SEGMENT - 10 + i, slice.get(i).val());
+			}
+			Array.Cursor<Val> suffix = slice.cursor();
+			Array.Cursor<Val> prefix = suffix.trySplit();
+			long next = 0;
+			while(prefix.next()) {
+				assertEquals(next++, prefix.index());
+				assertEquals(SEGMENT - 10 + prefix.index(), prefix.get().val());
+			}
+			while(suffix.next()) {
+				assertEquals(next++, suffix.index());
+				assertEquals(SEGMENT - 10 + suffix.index(), suffix.get().val());
+			}
+			assertEquals(slice.size(), next);
+			assertEquals(2 * SEGMENT + 4, slice.slice(5, SEGMENT + 15).get(SEGMENT + 9).val());
+
+			slice.clear(5, 15);
+			assertEquals(0, array.get(SEGMENT - 5).val());
+			assertEquals(0, array.get(SEGMENT + 4).val());
+			assertEquals(SEGMENT + 5, array.get(SEGMENT + 5).val());
+			slice.copy(SEGMENT + 5, slice, 5, 10);
+			assertEquals(2 * SEGMENT - 5, array.get(SEGMENT - 5).val());
+			assertEquals(2 * SEGMENT + 4, array.get(SEGMENT + 4).val());
+			allocator.lock(slice);
+			slice.free();
+			assertEquals(2 * SEGMENT + 9, array.get(2 * SEGMENT + 9).val());
+		}
+	}
+
+	/* Aayush
+	This method slices a range that crosses a segment boundary and checks that it can't be accessed as a single ByteBuffer.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectBytesOfSliceAcrossSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			allocator.toBytes(array.slice(SEGMENT - 1, SEGMENT + 1));
+		}
+	}
+
+	/* Aayush
+	This method flushes, advises, touches and locks ranges that cross segment boundaries and checks that the values are kept.
+	*/
+	@Test
+	public void shouldForceAndAdviseAcrossSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			fill(array);
+			allocator.force(array);
+			allocator.force(array, 1000, 2100);
+			allocator.advise(array, 1000, 2100, Advice.WILL_NEED);
+			allocator.advise(array, 0, SIZE, Advice.DONT_NEED);
+			allocator.advise(array, 0, SIZE, Advice.SEQUENTIAL);
+			allocator.touch(array, 500, 2500, 2);
+			allocator.lock(array);
+			assertFilled(array);
+		}
+	}
+
+	/* Aayush
+	This method sums an int field over a range that crosses segment boundaries.
+	*/
+	@Test
+	public void shouldScanAcrossSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			fill(array);
+			FieldScan scan = FieldScan.Factory.create(array, "val");
+			assertEquals((long) SIZE * (SIZE - 1) / 2, scan.sum(0, SIZE));
+			assertEquals(1000, scan.min(1000, 2100));
+			assertEquals(2099, scan.max(1000, 2100));
+			assertEquals(51, scan.count(0, SIZE, 1000, 1050));
+		}
+	}
+
+	/* Aayush
+	This method maps a short file, writes a value, and remaps the file longer than a segment. It checks that the value is kept and that the last index of the grown array can be written.
+	*/
+	@Test
+	public void shouldRemapIntoSegments() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, 10, Val.class)) {
+			assertTrue(array instanceof MmapArray);
+			array.get(9).val(9);
+			try(Array<Val> grown = allocator.remap(array, SIZE)) {
+				assertTrue(grown instanceof SegmentedArray);
+				assertEquals(9, grown.get(9).val());
+				grown.get(SIZE - 1).val(1);
+				assertEquals(1, grown.get(SIZE - 1).val());
+			}
+		}
+	}
+
+	/* Aayush
+	This method checks that clones of a segmented array share its memory.
+	*/
+	@Test
+	public void shouldCloneArray() throws IOException {
+		try(Array<Val> array = allocator.mmap(file, SIZE, Val.class)) {
+			Array<Val> clone = array.clone();
+			clone.get(SIZE - 1).val(5);
+			assertEquals(5, array.get(SIZE - 1).val());
+		}
+	}
+
+	/* Aayush
+	This method deletes file if the object's value is not null.
+	*/
+	@After
+	public void cleanup() {
+		if(file != null) {
+			file.delete();
+		}
+	}
+
+	static void fill(final Array<Val> array) {
+		for(int i = 0; i < array.size(); i++) {
+			array.get(i).val(i);
+		}
+	}
+
+	static void assertFilled(final Array<Val> array) {
+		assertEquals(SIZE, array.size());
+		for(int i = 0; i < SIZE; i++) {
+			assertEquals(i, array.get(i).val());
+		}
+	}
+
+	static void assertContent(final int[] expected, final Array<Val> array) {
+		for(int i = 0; i < expected.length; i++) {
+			assertEquals("index " + i, expected[i], array.get(i).val());
+		}
+	}
+}
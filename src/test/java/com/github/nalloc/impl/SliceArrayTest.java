@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.NativeHeapAllocator;
+
+/**
+ * Unit tests for {@link SliceArray}.
+ *
+ * @author Antti Laisi
+ */
+public class SliceArrayTest {
+
+	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.create(Val.class);
+
+	/* Aayush
+	This method allocates an array of 10 vals and takes a slice of indexes 2 to 5. It checks that the slice has 3 vals and that writing through the slice changes the array, and the other way around.
+	*/
+	@Test
+	public void shouldShareMemoryWithArray() {
+		try(Array<Val> array = allocator.calloc(10, Val.class)) {
+			Array<Val> slice = array.slice(2, 5);
+			assertEquals(3, slice.size());
+			assertEquals(array.address() + 8, slice.address());
+
+			slice.get(0).val(1);
+			array.get(4).val(2);
+			assertEquals(1, array.get(2).val());
+			assertEquals(2, slice.get(2).val());
+		}
+	}
+
+	/* Aayush
+	This method takes a slice of a slice and a clone of it, and checks that both point to the right vals of the original array.
+	*/
+	@Test
+	public void shouldSliceSlice() {
+		try(Array<Val> array = allocator.calloc(10, Val.class)) {
+			array.get(7).val(7);
+			Array<Val> slice = array.slice(5, 10).slice(1, 3);
+			assertEquals(2, slice.size());
+			assertEquals(7, slice.get(1).val());
+			assertEquals(7, slice.clone().get(1).val());
+		}
+	}
+
+	/* Aayush
+	This method frees a slice and checks that the values of the original array are still there.
+	*/
+	@Test
+	public void shouldNotFreeArrayOnFree() {
+		try(Array<Val> array = allocator.calloc(10, Val.class)) {
+			array.get(9).val(9);
+			array.slice(0, 10).free();
+			assertEquals(9, array.get(9).val());
+		}
+	}
+
+	/* Aayush
+	This method tries to take a slice that ends past the end of the array, which fails.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectSliceOutOfBounds() {
+		try(Array<Val> array = allocator.calloc(10, Val.class)) {
+			array.slice(5, 11);
+		}
+	}
+}
@@ -26,6 +26,7 @@ import com.github.nalloc.NativeHeapAllocator;
 import com.github.nalloc.Pointer;
 import com.github.nalloc.Struct;
 import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Layout;
 import com.github.nalloc.Struct.Type;
 
 /**
@@ -172,6 +173,206 @@ public class StructTest {
 		}
 	}
 
+	/* Aayush
+	This function defines ptr as the pointer to the AtomicTypes structure and creates atomic as a struct at pointer ptr. It then:
+	1.) Sets the seq field with a volatile write and reads it with a volatile read
+	2.) Sets the seq field with an ordered write
+	3.) Compare-and-sets the seq field with a wrong and a right expected value
+	4.) Adds to the count field and checks that the old value is returned
+	*/
+	@Test
+	public void shouldAccessAtomicFields() {
+		try(Pointer<AtomicTypes> ptr = struct(AtomicTypes.class)) {
+			AtomicTypes atomic = ptr.deref();
+
+			atomic.seqVolatile(5);
+			assertEquals(5, atomic.seqVolatile());
+			atomic.seqOrdered(6);
+			assertEquals(6, atomic.seq());
+
+			assertTrue(!atomic.seqCompareAndSet(5, 7));
+			assertTrue(atomic.seqCompareAndSet(6, 7));
+			assertEquals(7, atomic.seq());
+
+			atomic.count(1);
+			assertEquals(1, atomic.countGetAndAdd(2));
+			assertTrue(atomic.countCompareAndSet(3, 4));
+			assertEquals(4, atomic.countVolatile());
+		}
+	}
+
+	/* Aayush
+	This function starts 4 threads that each add 1 to the same count field 10000 times and checks that no addition was lost.
+	*/
+	@Test
+	public void shouldAddAtomicallyFromManyThreads() throws InterruptedException {
+		try(final Pointer<AtomicTypes> ptr = struct(AtomicTypes.class)) {
+			ptr.deref().count(0);
+			Thread[] threads = new Thread[4];
+			for(int t = 0; t < threads.length; t++) {
+				final AtomicTypes atomic = ptr.clone().deref();
+				threads[t] = new Thread() {
+					@Override
+					public void run() {
+						for(int i = 0; i < 10000; i++) {
+							atomic.countGetAndAdd(1);
+						}
+					}
+				};
+				threads[t].start();
+			}
+			for(Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(40000, ptr.deref().countVolatile());
+		}
+	}
+
+	/* Aayush
+	This function tries to create a struct whose atomic long field starts at byte 1, which fails because the field is not aligned.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectUnalignedAtomicField() {
+		struct(UnalignedAtomic.class);
+	}
+
+	/* Aayush
+	This function tries to create a packed struct of 12 bytes with an atomic long at offset 0. The field is aligned in the first struct of an array but not in the second one at byte 12, so the struct is rejected.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectAtomicFieldUnalignedInArrays() {
+		struct(PackedCounter.class);
+	}
+
+	/* Aayush
+	This function allocates an array of 2 naturally aligned counters and checks that the atomic field of the second struct is at an address that is a multiple of 8 and can be updated atomically.
+	*/
+	@Test
+	public void shouldAlignAtomicFieldOfSecondArrayElement() {
+		try(Array<AlignedCounter> array = NativeHeapAllocator.Factory.create(AlignedCounter.class)
+				.calloc(2, AlignedCounter.class)) {
+			AlignedCounter second = array.get(1);
+			assertEquals(16, second.getSize());
+			assertEquals(0, (array.address() + second.getSize()) % 8);
+			assertEquals(0, second.counterGetAndAdd(5));
+			assertTrue(second.counterCompareAndSet(5, 6));
+			assertEquals(6, second.counter());
+			assertEquals(0, array.get(0).counter());
+		}
+	}
+
+	/* Aayush
+	This function tries to create a packed struct with an int followed by a nested struct that has an atomic long. The nested struct would start at byte 4, so the struct is rejected.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectNestedAtomicStructAtUnalignedOffset() {
+		struct(PackedNestedCounter.class);
+	}
+
+	/* Aayush
+	This function tries to create a packed struct of 12 bytes that starts with a nested struct with an atomic long. The nested struct of the second struct of an array would start at byte 12, so the struct is rejected.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectNestedAtomicStructUnalignedInArrays() {
+		struct(TrailingIntCounter.class);
+	}
+
+	/* Aayush
+	This function allocates an array of 2 naturally aligned structs with a nested atomic counter and checks that the counter of the second struct is at a multiple of 8 bytes and can be updated atomically.
+	*/
+	@Test
+	public void shouldAlignNestedAtomicStruct() {
+		try(Array<AlignedNestedCounter> array = NativeHeapAllocator.Factory.create(AlignedNestedCounter.class)
+				.calloc(2, AlignedNestedCounter.class)) {
+			AlignedNestedCounter second = array.get(1);
+			assertEquals(16, second.getSize());
+			assertEquals(8, second.getOffset("inner"));
+			assertEquals(0, ((NativeStruct) second.inner()).address % 8);
+			assertEquals(0, second.inner().counterGetAndAdd(5));
+			assertEquals(5, second.inner().counterGetAndAdd(1));
+			assertEquals(0, array.get(0).inner().counterGetAndAdd(0));
+		}
+	}
+
+	/* Aayush
+	This function creates a struct laid out like a C compiler would lay it out and checks that:
+	1.) The int field starts at byte 4 and the char after it at byte 8
+	2.) The long field starts at byte 16 and can be used atomically
+	3.) The struct is 24 bytes long and aligned to 8 bytes
+	*/
+	@Test
+	public void shouldAlignFieldsNaturally() {
+		try(Pointer<CAligned> ptr = struct(CAligned.class)) {
+			CAligned aligned = ptr.deref();
+			aligned.b((byte) 1);
+			aligned.i(2);
+			aligned.c('3');
+			aligned.lGetAndAdd(4);
+
+			assertEquals(0, aligned.getOffset("b"));
+			assertEquals(4, aligned.getOffset("i"));
+			assertEquals(8, aligned.getOffset("c"));
+			assertEquals(16, aligned.getOffset("l"));
+			assertEquals(24, aligned.getSize());
+			assertEquals(8, aligned.getAlignment());
+			assertEquals(1, aligned.b());
+			assertEquals(2, aligned.i());
+			assertEquals('3', aligned.c());
+			assertEquals(4, aligned.l());
+		}
+	}
+
+	/* Aayush
+	This function creates a struct with a byte followed by a nested aligned struct and checks that the nested struct starts at byte 8.
+	*/
+	@Test
+	public void shouldAlignNestedStructs() {
+		try(Pointer<WithNestedAligned> ptr = struct(WithNestedAligned.class)) {
+			WithNestedAligned nested = ptr.deref();
+			nested.aligned().i(5);
+
+			assertEquals(8, nested.getOffset("aligned"));
+			assertEquals(32, nested.getSize());
+			assertEquals(5, nested.aligned().i());
+		}
+	}
+
+	/* Aayush
+	This function allocates an array of structs with two counters on cache lines of their own and checks that:
+	1.) The second counter starts at byte 64 and the struct is 128 bytes long
+	2.) Every struct of the array starts at a multiple of 64 bytes
+	*/
+	@Test
+	public void shouldPadFieldsToCacheLines() {
+		try(Array<CacheLineCounters> array = NativeHeapAllocator.Factory.create(CacheLineCounters.class).calloc(4, CacheLineCounters.class)) {
+			CacheLineCounters counters = array.get(0);
+
+			assertEquals(0, counters.getOffset("reads"));
+			assertEquals(64, counters.getOffset("writes"));
+			assertEquals(128, counters.getSize());
+			assertEquals(64, counters.getAlignment());
+			for(int i = 0; i < 4; i++) {
+				assertEquals(0, ((NativeStruct) array.get(i)).address % 64);
+			}
+		}
+	}
+
+	/* Aayush
+	This function tries to create a struct with a field aligned to 3 bytes, which fails because alignments must be powers of two.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectInvalidAlignment() {
+		struct(InvalidAlignment.class);
+	}
+
+	/* Aayush
+	This function tries to create an aligned struct stored in columns, which fails because only structs stored in rows can be aligned.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectAlignedColumnarStruct() {
+		struct(AlignedColumns.class);
+	}
+
 	/* Aayush
 	This method allocates space in memory and returns a pointer to the space.
 	*/
@@ -247,6 +448,101 @@ public class StructTest {
 		long getSize();
 	}
 
+	/* Aayush
+	This method creates the AtomicTypes struct with its 2 atomic fields, aligned so that the struct size is a multiple of 8.
+	*/
+	@Struct(align=1, value={
+		@Field(name="seq", type=Type.LONG, atomic=true),
+		@Field(name="count", type=Type.INT, atomic=true) })
+	static interface AtomicTypes {
+		long seq();
+		void seq(final long value);
+		long seqVolatile();
+		void seqVolatile(final long value);
+		void seqOrdered(final long value);
+		boolean seqCompareAndSet(final long expect, final long update);
+		int count();
+		void count(final int value);
+		int countVolatile();
+		boolean countCompareAndSet(final int expect, final int update);
+		int countGetAndAdd(final int delta);
+	}
+
+	/* Aayush
+	This method creates the PackedCounter struct with an atomic long field followed by an int field, packed into 12 bytes.
+	*/
+	@Struct({
+		@Field(name="counter", type=Type.LONG, atomic=true),
+		@Field(name="x", type=Type.INT) })
+	static interface PackedCounter {
+		long counterGetAndAdd(final long delta);
+	}
+
+	/* Aayush
+	This method creates the AlignedCounter struct with the fields of PackedCounter aligned naturally, which pads it to 16 bytes.
+	*/
+	@Struct(align=1, value={
+		@Field(name="counter", type=Type.LONG, atomic=true),
+		@Field(name="x", type=Type.INT) })
+	static interface AlignedCounter {
+		long counter();
+		long counterGetAndAdd(final long delta);
+		boolean counterCompareAndSet(final long expect, final long update);
+		long getSize();
+	}
+
+	/* Aayush
+	This method creates the InnerCounter struct with a single atomic long field, aligned to 8 bytes.
+	*/
+	@Struct(align=8, value={
+		@Field(name="counter", type=Type.LONG, atomic=true) })
+	static interface InnerCounter {
+		long counterGetAndAdd(final long delta);
+	}
+
+	/* Aayush
+	This method creates the PackedNestedCounter struct with an int field followed by an InnerCounter, packed so the counter starts at byte 4.
+	*/
+	@Struct({
+		@Field(name="x", type=Type.INT),
+		@Field(name="inner", type=Type.STRUCT, struct=InnerCounter.class) })
+	static interface PackedNestedCounter {
+		InnerCounter inner();
+	}
+
+	/* Aayush
+	This method creates the TrailingIntCounter struct with an InnerCounter followed by an int field, packed into 12 bytes.
+	*/
+	@Struct({
+		@Field(name="inner", type=Type.STRUCT, struct=InnerCounter.class),
+		@Field(name="x", type=Type.INT) })
+	static interface TrailingIntCounter {
+		InnerCounter inner();
+	}
+
+	/* Aayush
+	This method creates the AlignedNestedCounter struct with the fields of PackedNestedCounter aligned naturally, which puts the counter at byte 8.
+	*/
+	@Struct(align=1, value={
+		@Field(name="x", type=Type.INT),
+		@Field(name="inner", type=Type.STRUCT, struct=InnerCounter.class) })
+	static interface AlignedNestedCounter {
+		InnerCounter inner();
+		long getSize();
+		long getOffset(final String name);
+	}
+
+	/* Aayush
+	This method creates the UnalignedAtomic struct with a byte field followed by an atomic long field.
+	*/
+	@Struct({
+		@Field(name="b", type=Type.BYTE),
+		@Field(name="l", type=Type.LONG, atomic=true) })
+	static interface UnalignedAtomic {
+		long l();
+		void l(final long value);
+	}
+
 	/* Aayush
 	This method creates the WithNestedStruct struct with its 1 field, which is a nested struct.
 	*/
@@ -267,4 +563,71 @@ public class StructTest {
 		long getSize();
 	}
 
+	/* Aayush
+	This method creates the CAligned struct with its 4 fields aligned like in C.
+	*/
+	@Struct(c=true, align=1, value={
+		@Field(name="b", type=Type.BYTE),
+		@Field(name="i", type=Type.INT),
+		@Field(name="c", type=Type.CHAR),
+		@Field(name="l", type=Type.LONG, atomic=true) })
+	static interface CAligned {
+		byte b();
+		void b(final byte value);
+		int i();
+		void i(final int value);
+		char c();
+		void c(final char value);
+		long l();
+		long lGetAndAdd(final long delta);
+		long getSize();
+		long getOffset(final String name);
+		long getAlignment();
+	}
+
+	/* Aayush
+	This method creates the WithNestedAligned struct with a byte field followed by a nested aligned struct.
+	*/
+	@Struct(c=true, align=1, value={
+		@Field(name="b", type=Type.BYTE),
+		@Field(name="aligned", type=Type.STRUCT, struct=CAligned.class) })
+	static interface WithNestedAligned {
+		CAligned aligned();
+		long getSize();
+		long getOffset(final String name);
+	}
+
+	/* Aayush
+	This method creates the CacheLineCounters struct with 2 counters on cache lines of their own.
+	*/
+	@Struct({
+		@Field(name="reads", type=Type.LONG, atomic=true, align=64),
+		@Field(name="writes", type=Type.LONG, atomic=true, align=64) })
+	static interface CacheLineCounters {
+		long readsGetAndAdd(final long delta);
+		long writesGetAndAdd(final long delta);
+		long getSize();
+		long getOffset(final String name);
+		long getAlignment();
+	}
+
+	/* Aayush
+	This method creates the InvalidAlignment struct with a field aligned to 3 bytes.
+	*/
+	@Struct({
+		@Field(name="l", type=Type.LONG, align=3) })
+	static interface InvalidAlignment {
+		long l();
+	}
+
+	/* Aayush
+	This method creates the AlignedColumns struct that is both aligned and stored in columns.
+	*/
+	@Struct(align=1, layout=Layout.COLUMNAR, value={
+		@Field(name="b", type=Type.BYTE),
+		@Field(name="l", type=Type.LONG) })
+	static interface AlignedColumns {
+		long l();
+	}
+
 }
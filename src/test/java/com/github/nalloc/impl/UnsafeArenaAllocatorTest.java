@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.ArenaAllocator;
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Pointer;
+import com.github.nalloc.View;
+
+/**
+ * Unit tests for {@link UnsafeArenaAllocator}.
+ *
+ * @author Antti Laisi
+ */
+public class UnsafeArenaAllocatorTest {
+
+	final ArenaAllocator arena = NativeHeapAllocator.Factory.createArena(64, Val.class);
+
+	/* Aayush
+	This method allocates two Val structs from the arena and checks that the second one is placed right after the first one, 8 bytes apart because of alignment.
+	*/
+	@Test
+	public void shouldBumpPointer() {
+		Pointer<Val> p1 = arena.malloc(Val.class);
+		Pointer<Val> p2 = arena.malloc(Val.class);
+		p1.deref().val(1);
+		p2.deref().val(2);
+
+		assertEquals(8, p2.address() - p1.address());
+		assertEquals(1, p1.deref().val());
+		assertEquals(2, p2.deref().val());
+	}
+
+	/* Aayush
+	This method allocates more structs than fit into one chunk and checks that every struct keeps its own value.
+	*/
+	@Test
+	public void shouldAllocateNewChunks() {
+		Pointer<?>[] pointers = new Pointer<?>[100];
+		for(int i = 0; i < pointers.length; i++) {
+			Pointer<Val> ptr = arena.malloc(Val.class);
+			ptr.deref().val(i);
+			pointers[i] = ptr;
+		}
+		for(int i = 0; i < pointers.length; i++) {
+			assertEquals(i, ((Val) pointers[i].deref()).val());
+		}
+	}
+
+	/* Aayush
+	This method allocates an array bigger than a chunk and checks that it is cleared to 0 and can be written to.
+	*/
+	@Test
+	public void shouldCallocArrayLargerThanChunk() {
+		Pointer<Val> before = arena.malloc(Val.class);
+		Array<Val> array = arena.calloc(100, Val.class);
+		Pointer<Val> after = arena.malloc(Val.class);
+
+		array.get(99).val(99);
+		assertEquals(0, array.get(0).val());
+		assertEquals(99, array.get(99).val());
+		assertEquals(8, after.address() - before.address());
+	}
+
+	/* Aayush
+	This method allocates structs aligned to cache lines after a small struct, both within a chunk and larger than a chunk, and checks that every one of them starts at a multiple of 64 bytes.
+	*/
+	@Test
+	public void shouldAlignToStructAlignment() {
+		try(ArenaAllocator aligned = NativeHeapAllocator.Factory.createArena(1024, Val.class, StructTest.CacheLineCounters.class)) {
+			aligned.malloc(Val.class);
+			assertEquals(0, aligned.malloc(StructTest.CacheLineCounters.class).address() % 64);
+			aligned.malloc(Val.class);
+			Array<StructTest.CacheLineCounters> small = aligned.calloc(3, StructTest.CacheLineCounters.class);
+			aligned.malloc(Val.class);
+			Array<StructTest.CacheLineCounters> large = aligned.calloc(20, StructTest.CacheLineCounters.class);
+			large = aligned.realloc(large, 40);
+
+			for(int i = 0; i < 3; i++) {
+				assertEquals(0, ((NativeStruct) small.get(i)).address % 64);
+			}
+			for(int i = 0; i < 40; i++) {
+				assertEquals(0, ((NativeStruct) large.get(i)).address % 64);
+			}
+		}
+	}
+
+	/* Aayush
+	This method resets the arena and checks that the next struct reuses the memory of the first struct.
+	*/
+	@Test
+	public void shouldReuseChunksAfterReset() {
+		long address = arena.malloc(Val.class).address();
+		arena.calloc(100, Val.class);
+		arena.reset();
+
+		assertEquals(address, arena.malloc(Val.class).address());
+		assertEquals(0, arena.calloc(2, Val.class).get(1).val());
+	}
+
+	/* Aayush
+	This method grows the latest array in place and then grows an older array, which has to be copied to a new place. It checks that the values are kept.
+	*/
+	@Test
+	public void shouldReallocInPlaceAndByCopy() {
+		Array<Val> first = arena.calloc(2, Val.class);
+		first.get(1).val(7);
+		long address = first.address();
+
+		arena.realloc(first, 4);
+		assertEquals(address, first.address());
+
+		arena.malloc(Val.class);
+		arena.realloc(first, 6);
+		assertTrue(address != first.address());
+		assertEquals(6, first.size());
+		assertEquals(7, first.get(1).val());
+	}
+
+	/* Aayush
+	This method allocates two structs as plain memory addresses through a view and checks that they are next to each other in the arena.
+	*/
+	@Test
+	public void shouldBumpPointerThroughView() {
+		View<Val> view = arena.view(Val.class);
+		long a1 = view.malloc();
+		long a2 = view.calloc(2);
+		view.at(a2, 1).val(3);
+
+		assertEquals(8, a2 - a1);
+		assertEquals(3, view.at(a2 + 4).val());
+	}
+
+	/* Aayush
+	This method closes the arena after each test so the chunks are given back.
+	*/
+	@After
+	public void cleanup() {
+		arena.close();
+	}
+}
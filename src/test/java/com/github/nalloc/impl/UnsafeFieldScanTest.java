@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.FieldScan;
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Layout;
+import com.github.nalloc.Struct.Type;
+
+/**
+ * Unit tests for {@link UnsafeFieldScan}.
+ *
+ * @author Antti Laisi
+ */
+public class UnsafeFieldScanTest {
+
+	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.create(Val.class, Trade.class, Column.class);
+
+	/* Aayush
+	This method sums, finds the smallest and largest value, and counts values of an int field in an array where the ints are next to each other.
+	*/
+	@Test
+	public void shouldAggregateContiguousIntField() {
+		try(Array<Val> array = allocator.calloc(103, Val.class)) {
+			for(int i = 0; i < 103; i++) {
+				array.get(i).val(i - 50);
+			}
+			FieldScan scan = FieldScan.Factory.create(array, "val");
+			assertEquals(51 + 52, scan.sum(0, 103));
+			assertEquals(-50, scan.min(0, 103));
+			assertEquals(52, scan.max(0, 103));
+			assertEquals(11, scan.count(0, 103, -5, 5));
+			assertEquals(-50 - 49, scan.sum(0, 2));
+		}
+	}
+
+	/* Aayush
+	This method aggregates a long field that sits in the middle of a wider struct, so values are read with a stride of the struct size.
+	*/
+	@Test
+	public void shouldAggregateStridedLongField() {
+		try(Array<Trade> array = allocator.calloc(10, Trade.class)) {
+			for(int i = 0; i < 10; i++) {
+				array.get(i).id(-1);
+				array.get(i).price(i * 100L);
+				array.get(i).quantity(7);
+			}
+			FieldScan scan = FieldScan.Factory.create(array, "price");
+			assertEquals(4500, scan.sum(0, 10));
+			assertEquals(200, scan.min(2, 5));
+			assertEquals(400, scan.max(2, 5));
+			assertEquals(3, scan.count(0, 10, 150, 450));
+			assertEquals(70, FieldScan.Factory.create(array, "quantity").sum(0, 10));
+		}
+	}
+
+	/* Aayush
+	This method aggregates the long column of a columnar array and checks that the result follows the array when it grows.
+	*/
+	@Test
+	public void shouldAggregateColumnarField() {
+		try(Array<Column> array = allocator.calloc(10, Column.class)) {
+			for(int i = 0; i < 10; i++) {
+				array.get(i).price(i);
+				array.get(i).quantity(100);
+			}
+			FieldScan scan = FieldScan.Factory.create(array, "price");
+			assertEquals(45, scan.sum(0, 10));
+			allocator.realloc(array, 20);
+			array.get(19).price(5);
+			array.clear(10, 19);
+			assertEquals(50, scan.sum(0, 20));
+			assertEquals(0, scan.min(0, 20));
+			assertEquals(Long.MIN_VALUE, scan.max(3, 3));
+		}
+	}
+
+	/* Aayush
+	This method tries to scan a string field, which fails because only int and long fields can be scanned.
+	*/
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldRejectNonNumericField() {
+		try(Array<Trade> array = allocator.calloc(1, Trade.class)) {
+			FieldScan.Factory.create(array, "symbol");
+		}
+	}
+
+	/* Aayush
+	This method scans an array whose struct class inherits its @Struct interface from a superclass instead of implementing it directly.
+	*/
+	@Test
+	public void shouldFindInheritedStructInterface() {
+		try(Array<Val> array = allocator.calloc(10, Val.class)) {
+			for(int i = 0; i < 10; i++) {
+				array.get(i).val(i);
+			}
+			HeapArray<Val> inherited = new HeapArray<>(((HeapArray<Val>) array).address(), 10,
+					NativeStruct.create(InheritedVal.class));
+			assertEquals(45, FieldScan.Factory.create(inherited, "val").sum(0, 10));
+		}
+	}
+
+	/* Aayush
+	This method creates a struct of a trade with a price between other fields.
+	*/
+	@Struct({
+		@Field(name="id", type=Type.LONG),
+		@Field(name="symbol", type=Type.STRING, len=12),
+		@Field(name="price", type=Type.LONG),
+		@Field(name="quantity", type=Type.INT) })
+	static interface Trade {
+		void id(final long id);
+		long price();
+		void price(final long price);
+		void quantity(final int quantity);
+	}
+
+	/* Aayush
+	This method creates a struct whose fields are stored column by column in arrays.
+	*/
+	@Struct(layout=Layout.COLUMNAR, value={
+		@Field(name="quantity", type=Type.INT),
+		@Field(name="price", type=Type.LONG) })
+	static interface Column {
+		void price(final long price);
+		void quantity(final int quantity);
+	}
+
+	/* Aayush
+	This method creates a hand-written struct class for the Val struct.
+	*/
+	public static class ValStruct extends NativeStruct implements Val {
+		@Override
+		public int val() {
+			return PointerArithmetics.UNSAFE.getInt(address);
+		}
+
+		@Override
+		public void val(final int value) {
+			PointerArithmetics.UNSAFE.putInt(address, value);
+		}
+
+		@Override
+		protected long getSize() {
+			return 4;
+		}
+
+		@Override
+		protected long getOffset(final String name) {
+			return 0;
+		}
+
+		@Override
+		protected long getAlignment() {
+			return 4;
+		}
+	}
+
+	/* Aayush
+	This method creates a struct class that implements Val only through its superclass.
+	*/
+	public static final class InheritedVal extends ValStruct {
+	}
+}
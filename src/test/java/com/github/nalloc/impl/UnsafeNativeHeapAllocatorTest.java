@@ -16,6 +16,9 @@ package com.github.nalloc.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
 
 import org.junit.Test;
 
@@ -81,6 +84,51 @@ public class UnsafeNativeHeapAllocatorTest {
 		}
 	}
 
+	/* Aayush
+	This method allocates an array of 100 MyStruct structs and pins it in memory. It then checks that the pinned bytes are counted, and that they are no longer counted after the array is freed.
+	*/
+	@Test
+	public void shouldLockArrayUntilFree() throws IOException {
+		long locked = allocator.locked();
+		Array<MyStruct> array = allocator.calloc(100, MyStruct.class);
+		allocator.lock(array);
+		assertEquals(locked + 100 * ((NativeStruct) array.deref()).getSize(), allocator.locked());
+		array.get(99).name("name");
+		array.free();
+		assertEquals(locked, allocator.locked());
+	}
+
+	/* Aayush
+	This method pins two slices of one array that share a page of memory. It checks that freeing the first slice keeps the shared page pinned for the second one, and that freeing the second one releases the page.
+	*/
+	@Test
+	public void shouldKeepSharedPagesLocked() throws IOException {
+		try(Array<MyStruct> array = allocator.calloc(2, MyStruct.class)) {
+			Array<MyStruct> first = array.slice(0, 1);
+			Array<MyStruct> second = array.slice(1, 2);
+			allocator.lock(first);
+			allocator.lock(second);
+
+			first.free();
+			assertTrue(MemoryLock.isLocked(second.address()));
+			second.free();
+			assertTrue(!MemoryLock.isLocked(second.address()));
+		}
+	}
+
+	/* Aayush
+	This method pins an array in memory and then resizes it. It checks that resizing releases the pin, because the array may move to another place in memory.
+	*/
+	@Test
+	public void shouldUnlockOnRealloc() throws IOException {
+		long locked = allocator.locked();
+		try(Array<MyStruct> array = allocator.calloc(1, MyStruct.class)) {
+			allocator.lock(array);
+			allocator.realloc(array, 3);
+			assertEquals(locked, allocator.locked());
+		}
+	}
+
 	/* Aayush
 	This method tries to allocates space for an array but fails because the array is of size 0 with no elements.
 	*/
@@ -89,6 +137,47 @@ public class UnsafeNativeHeapAllocatorTest {
 		allocator.calloc(0, MyStruct.class);
 	}
 
+	/* Aayush
+	This method allocates structs aligned to 64 bytes from the C heap, as calloc does without JNA. It checks that every struct starts at a multiple of 64 bytes and is zeroed, and that the structs stay aligned and keep their values after the array grows.
+	*/
+	@Test
+	public void shouldAlignArrayWithoutZeroPages() {
+		UnsafeNativeHeapAllocator heap = new UnsafeNativeHeapAllocator(CacheLine.class);
+		NativeStruct struct = NativeStruct.create(heap.implementations.get(CacheLine.class));
+		try(Array<CacheLine> array = UnsafeNativeHeapAllocator.callocAligned(3, struct)) {
+			for(int i = 0; i < 3; i++) {
+				assertEquals(0, ((NativeStruct) array.get(i)).address % 64);
+				assertEquals(0, array.get(i).value());
+				array.get(i).value(i + 1);
+			}
+			heap.realloc(array, 100);
+			for(int i = 0; i < 100; i++) {
+				assertEquals(0, ((NativeStruct) array.get(i)).address % 64);
+			}
+			for(int i = 0; i < 3; i++) {
+				assertEquals(i + 1, array.get(i).value());
+			}
+		}
+	}
+
+	/* Aayush
+	This method allocates uninitialized arrays of plain and cache line aligned structs and checks that every struct of the aligned array starts at a multiple of 64 bytes.
+	*/
+	@Test
+	public void shouldMallocArrayWithoutZeroing() {
+		UnsafeNativeHeapAllocator heap = new UnsafeNativeHeapAllocator(0, MyStruct.class, CacheLine.class);
+		try(Array<MyStruct> array = heap.malloc(3, MyStruct.class)) {
+			assertTrue(array.getClass() == HeapArray.class);
+			assertEquals(3, array.size());
+		}
+		try(Array<CacheLine> array = heap.malloc(3, CacheLine.class)) {
+			assertTrue(array instanceof AlignedArray);
+			for(int i = 0; i < 3; i++) {
+				assertEquals(0, ((NativeStruct) array.get(i)).address % 64);
+			}
+		}
+	}
+
 	/* Aayush
 	This method creates the struct and field that will be used to test in this file.
 	*/
@@ -98,4 +187,14 @@ public class UnsafeNativeHeapAllocatorTest {
 		String name();
 		void name(String value);
 	}
+
+	/* Aayush
+	This method creates a struct with a long field that is aligned to a 64-byte cache line.
+	*/
+	@Struct(align=64, value={
+		@Field(name="value",type=Type.LONG) })
+	static interface CacheLine {
+		long value();
+		void value(long value);
+	}
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Pointer;
+import com.github.nalloc.Struct;
+import com.github.nalloc.Struct.Field;
+import com.github.nalloc.Struct.Type;
+import com.github.nalloc.View;
+
+/**
+ * Unit tests for {@link UnsafePooledAllocator}.
+ *
+ * @author Antti Laisi
+ */
+public class UnsafePooledAllocatorTest {
+
+	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.createPooled(256, Val.class, Wide.class);
+
+	/* Aayush
+	This method allocates a Val struct, frees it, and checks that the next allocation of the same struct type gets the same memory address back.
+	*/
+	@Test
+	public void shouldReuseFreedStruct() {
+		Pointer<Val> ptr = allocator.malloc(Val.class);
+		long address = ptr.address();
+		ptr.free();
+
+		try(Pointer<Val> reused = allocator.malloc(Val.class)) {
+			assertEquals(address, reused.address());
+		}
+	}
+
+	/* Aayush
+	This method allocates two struct types and checks that they come from different pools, so freeing a Val struct is never reused for a Wide struct.
+	*/
+	@Test
+	public void shouldKeepPoolPerStructType() {
+		Pointer<Val> val = allocator.malloc(Val.class);
+		long address = val.address();
+		val.free();
+
+		try(Pointer<Wide> wide = allocator.malloc(Wide.class)) {
+			assertTrue(address != wide.address());
+		}
+	}
+
+	/* Aayush
+	This method allocates more structs than fit into one slab, writes a value to every struct, and checks that no struct overwrote another one.
+	*/
+	@Test
+	public void shouldAllocateNewSlabs() {
+		Pointer<?>[] pointers = new Pointer<?>[100];
+		for(int i = 0; i < pointers.length; i++) {
+			Pointer<Wide> ptr = allocator.malloc(Wide.class);
+			ptr.deref().a(i);
+			ptr.deref().b(-i);
+			pointers[i] = ptr;
+		}
+		for(int i = 0; i < pointers.length; i++) {
+			Wide wide = (Wide) pointers[i].deref();
+			assertEquals(i, wide.a());
+			assertEquals(-i, wide.b());
+			pointers[i].free();
+		}
+	}
+
+	/* Aayush
+	This method allocates an array from the pooled allocator and checks that arrays still work like in the normal allocator.
+	*/
+	@Test
+	public void shouldCallocArrayFromNativeHeap() {
+		try(Array<Val> array = allocator.calloc(3, Val.class)) {
+			array.get(2).val(3);
+			assertEquals(0, array.get(1).val());
+			assertEquals(3, array.get(2).val());
+		}
+	}
+
+	/* Aayush
+	This method allocates a struct as a plain memory address through a view, frees it, and checks that the next allocation through the view reuses the address. It also checks that an array of 1 struct is cleared to 0.
+	*/
+	@Test
+	public void shouldReuseFreedAddressThroughView() {
+		View<Val> view = allocator.view(Val.class);
+		long address = view.malloc();
+		view.at(address).val(5);
+		view.free(address);
+
+		assertEquals(address, view.calloc(1));
+		assertEquals(0, view.at(address).val());
+		view.free(address, 1);
+	}
+
+	/* Aayush
+	This method creates the struct named Wide with two long fields.
+	*/
+	@Struct({
+		@Field(name="a", type=Type.LONG),
+		@Field(name="b", type=Type.LONG) })
+	static interface Wide {
+		long a();
+		void a(final long value);
+		long b();
+		void b(final long value);
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.Pointer;
+import com.github.nalloc.View;
+
+/**
+ * Unit tests for {@link UnsafeThreadCachingAllocator}.
+ *
+ * @author Antti Laisi
+ */
+public class UnsafeThreadCachingAllocatorTest {
+
+	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.createThreadCaching(256, Val.class);
+
+	/* Aayush
+	This method allocates a struct, frees it on the same thread, and checks that the next allocation reuses the same address.
+	*/
+	@Test
+	public void shouldReuseStructFreedByOwner() {
+		Pointer<Val> ptr = allocator.malloc(Val.class);
+		long address = ptr.address();
+		ptr.free();
+
+		try(Pointer<Val> reused = allocator.malloc(Val.class)) {
+			assertEquals(address, reused.address());
+		}
+	}
+
+	/* Aayush
+	This method allocates a struct on another thread and checks that it does not get the same address as a struct allocated on this thread.
+	*/
+	@Test
+	public void shouldKeepPoolPerThread() throws Exception {
+		final Pointer<Val> local = allocator.malloc(Val.class);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			long remote = executor.submit(new Callable<Long>() {
+				@Override
+				public Long call() {
+					return allocator.malloc(Val.class).address();
+				}
+			}).get();
+			assertTrue(remote != local.address());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/* Aayush
+	This method allocates structs on this thread, frees them on another thread, and checks that this thread gets the freed addresses back on the next allocations.
+	*/
+	@Test
+	public void shouldHandBackStructsFreedByOtherThreads() throws Exception {
+		final Set<Long> freed = new HashSet<>();
+		final Pointer<?>[] pointers = new Pointer<?>[10];
+		for(int i = 0; i < pointers.length; i++) {
+			pointers[i] = allocator.malloc(Val.class);
+			freed.add(pointers[i].address());
+		}
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					for(Pointer<?> ptr : pointers) {
+						ptr.free();
+					}
+				}
+			}).get();
+		} finally {
+			executor.shutdown();
+		}
+		for(int i = 0; i < pointers.length; i++) {
+			assertTrue(freed.remove(allocator.malloc(Val.class).address()));
+		}
+	}
+
+	/* Aayush
+	This method allocates two structs on a thread that then terminates, one freed by that thread and one freed afterwards by this thread. It checks that a new thread adopts the pool of the terminated thread and gets both addresses back.
+	*/
+	@Test
+	public void shouldAdoptPoolOfTerminatedThread() throws Exception {
+		final Pointer<?>[] pointers = new Pointer<?>[2];
+		Thread owner = new Thread() {
+			@Override
+			public void run() {
+				pointers[0] = allocator.malloc(Val.class);
+				pointers[1] = allocator.malloc(Val.class);
+				pointers[0].free();
+			}
+		};
+		owner.start();
+		owner.join();
+		pointers[1].free();
+
+		final Set<Long> reused = new HashSet<>();
+		Thread adopter = new Thread() {
+			@Override
+			public void run() {
+				reused.add(allocator.malloc(Val.class).address());
+				reused.add(allocator.malloc(Val.class).address());
+			}
+		};
+		adopter.start();
+		adopter.join();
+		assertTrue(reused.contains(pointers[0].address()));
+		assertTrue(reused.contains(pointers[1].address()));
+	}
+
+	/* Aayush
+	This method allocates a struct as a plain memory address through a view, frees it, and checks that the next allocation on the same thread reuses the address.
+	*/
+	@Test
+	public void shouldReuseFreedAddressThroughView() {
+		View<Val> view = allocator.view(Val.class);
+		long address = view.malloc();
+		view.free(address);
+
+		assertEquals(address, view.malloc());
+	}
+
+	/* Aayush
+	This method runs 4 threads that each allocate, write, check and free structs many times, and checks that no thread ever sees a value written by another thread.
+	*/
+	@Test
+	public void shouldAllocateConcurrently() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] futures = new Future<?>[4];
+			for(int t = 0; t < futures.length; t++) {
+				final int id = t;
+				futures[t] = executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						Pointer<?>[] pointers = new Pointer<?>[64];
+						for(int round = 0; round < 1000; round++) {
+							for(int i = 0; i < pointers.length; i++) {
+								Pointer<Val> ptr = allocator.malloc(Val.class);
+								ptr.deref().val(id);
+								pointers[i] = ptr;
+							}
+							for(Pointer<?> ptr : pointers) {
+								assertEquals(id, ((Val) ptr.deref()).val());
+								ptr.free();
+							}
+						}
+						return null;
+					}
+				});
+			}
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
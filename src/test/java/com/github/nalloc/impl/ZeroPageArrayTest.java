@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.nalloc.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.nalloc.Array;
+import com.github.nalloc.MmapAllocator;
+import com.github.nalloc.NativeHeapAllocator;
+import com.github.nalloc.View;
+
+/**
+ * Unit tests for {@link ZeroPageArray}.
+ *
+ * @author Antti Laisi
+ */
+public class ZeroPageArrayTest {
+
+	final NativeHeapAllocator allocator = NativeHeapAllocator.Factory.create(4096, Val.class);
+
+	/* Aayush
+	This method skips the tests when JNA is not available to map zeroed pages.
+	*/
+	@Before
+	public void assumeZeroPages() {
+		assumeTrue(MappedMemory.isZeroedAvailable());
+	}
+
+	/* Aayush
+	This method allocates an array bigger than the threshold and checks that it comes from zeroed pages, that every index is 0, and that values can be written.
+	*/
+	@Test
+	public void shouldCallocFromZeroedPages() {
+		try(Array<Val> array = allocator.calloc(1 << 20, Val.class)) {
+			assertTrue(array instanceof ZeroPageArray);
+			assertEquals(0, array.get(0).val());
+			assertEquals(0, array.get((1 << 20) - 1).val());
+
+			array.get(12345).val(6);
+			assertEquals(6, array.get(12345).val());
+		}
+	}
+
+	/* Aayush
+	This method allocates an array from zeroed pages and checks in /proc/self/maps that its memory is a private anonymous mapping, not a file in shared memory.
+	*/
+	@Test
+	public void shouldMapPrivateAnonymousMemory() throws IOException {
+		try(Array<Val> array = allocator.calloc(1 << 20, Val.class)) {
+			String mapping = mapping(array.address());
+			assertTrue(mapping, mapping.split("\\s+")[1].endsWith("p"));
+			assertEquals(mapping, 5, mapping.trim().split("\\s+").length);
+		}
+	}
+
+	/* Aayush
+	This method allocates a small array and checks that it does not come from zeroed pages.
+	*/
+	@Test
+	public void shouldCallocSmallArraysFromHeap() {
+		try(Array<Val> array = allocator.calloc(16, Val.class)) {
+			assertTrue(!(array instanceof ZeroPageArray));
+		}
+	}
+
+	/* Aayush
+	This method grows and shrinks an array from zeroed pages and checks that the values are kept and the new indexes are 0.
+	*/
+	@Test
+	public void shouldReallocZeroedPages() {
+		try(Array<Val> array = allocator.calloc(2048, Val.class)) {
+			array.get(2047).val(1);
+			allocator.realloc(array, 4096);
+
+			assertEquals(4096, array.size());
+			assertEquals(1, array.get(2047).val());
+			assertEquals(0, array.get(4095).val());
+
+			allocator.realloc(array, 1500);
+			assertEquals(1500, array.size());
+		}
+	}
+
+	/* Aayush
+	This method grows an array of 1TB of zeroed pages by another 1TB and shrinks it again. Copying the array would commit 1TB of memory, so realloc must move the pages without copying them. Values written before are kept and the new last index is 0.
+	*/
+	@Test
+	public void shouldReallocTerabyteWithoutCopying() {
+		long nmemb = (1L << 40) / 4;
+		try(Array<Val> array = allocator.calloc(nmemb, Val.class)) {
+			array.get(0).val(1);
+			array.get(nmemb - 1).val(2);
+			allocator.realloc(array, 2 * nmemb);
+
+			assertEquals(1, array.get(0).val());
+			assertEquals(2, array.get(nmemb - 1).val());
+			assertEquals(0, array.get(2 * nmemb - 1).val());
+
+			allocator.realloc(array, 10);
+			assertEquals(1, array.get(0).val());
+		}
+	}
+
+	/* Aayush
+	This method reserves an anonymous mapping of 1TB, checks in /proc/self/maps that it is private anonymous memory, writes to the first and the last index, and checks the values. Only the touched pages use memory.
+	*/
+	@Test
+	public void shouldReserveTerabyteAnonymousMapping() throws IOException {
+		long nmemb = (1L << 40) / 4;
+		try(Array<Val> array = MmapAllocator.Factory.create(Val.class).mmap(nmemb, Val.class)) {
+			assertTrue(array instanceof ZeroPageArray);
+			String mapping = mapping(array.address());
+			assertTrue(mapping, mapping.split("\\s+")[1].endsWith("p"));
+			assertEquals(mapping, 5, mapping.trim().split("\\s+").length);
+			array.get(0).val(1);
+			array.get(nmemb - 1).val(2);
+
+			assertEquals(1, array.get(0).val());
+			assertEquals(0, array.get(nmemb / 2).val());
+			assertEquals(2, array.get(nmemb - 1).val());
+		}
+	}
+
+	/* Aayush
+	This method gives every kind of advice for an anonymous mapping larger than 2GB and checks that a written value is kept, because dropping pages of private memory would lose it.
+	*/
+	@Test
+	public void shouldKeepAnonymousContentAfterAdvice() {
+		MmapAllocator mmap = MmapAllocator.Factory.create(Val.class);
+		long nmemb = (3L << 30) / 4;
+		try(Array<Val> array = mmap.mmap(nmemb, Val.class)) {
+			array.get(nmemb - 1).val(7);
+			for(MmapAllocator.Advice advice : MmapAllocator.Advice.values()) {
+				mmap.advise(array, 0, nmemb, advice);
+			}
+			assertEquals(7, array.get(nmemb - 1).val());
+		}
+	}
+
+	/* Aayush
+	This method allocates a big array as a plain memory address through a view and checks that it is 0 and can be written to before freeing it.
+	*/
+	@Test
+	public void shouldCallocZeroedPagesThroughView() {
+		View<Val> view = allocator.view(Val.class);
+		long address = view.calloc(1 << 20);
+		assertEquals(0, view.at(address, 1000).val());
+		view.at(address, 1000).val(1);
+		assertEquals(1, view.at(address, 1000).val());
+		view.free(address, 1 << 20);
+	}
+
+	/* Aayush
+	This method finds the line of /proc/self/maps that describes the mapping containing an address.
+	*/
+	static String mapping(final long address) throws IOException {
+		for(String line : Files.readAllLines(Paths.get("/proc/self/maps"), StandardCharsets.UTF_8)) {
+			String[] range = line.split("\\s+")[0].split("-");
+			if(Long.parseLong(range[0], 16) <= address && address < Long.parseLong(range[1], 16)) {
+				return line;
+			}
+		}
+		throw new IllegalArgumentException("Address is not mapped: " + address);
+	}
+}